@@ -0,0 +1,83 @@
+package com.technicaltest.authentication;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed loop HTTP load generator used to compare the platform and the virtual thread modes: each simulated client
+ * sends its next request as soon as the previous one completed. Only needs the JDK, run it against a started backend:
+ * <pre>
+ * java src/jmh/java/com/technicaltest/authentication/LoadTest.java http://localhost:8080/api/user/fetch 2000 60 $TOKEN
+ * </pre>
+ * Arguments: url, concurrent clients, duration in seconds and an optional bearer token.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length < 3) {
+            System.err.println("usage: LoadTest <url> <clients> <seconds> [bearer token]");
+            System.exit(1);
+        }
+        URI uri = URI.create(args[0]);
+        int clients = Integer.parseInt(args[1]);
+        long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(args[2]));
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri).timeout(Duration.ofSeconds(60)).GET();
+        if (args.length > 3) {
+            builder.header("Authorization", "Bearer " + args[3]);
+        }
+        HttpRequest request = builder.build();
+        HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        AtomicLong errors = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(clients);
+        long startedAt = System.nanoTime();
+        long endAt = startedAt + durationNanos;
+
+        for (int i = 0; i < clients; i++) {
+            send(httpClient, request, endAt, latencies, errors, done);
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - startedAt;
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        System.out.printf("clients=%d requests=%d errors=%d throughput=%.1f req/s%n",
+                clients, sorted.length, errors.get(), sorted.length / (elapsedNanos / 1e9));
+        System.out.printf("latency ms: p50=%.1f p90=%.1f p99=%.1f max=%.1f%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 1.0));
+    }
+
+    private static void send(HttpClient httpClient, HttpRequest request, long endAt,
+                             ConcurrentLinkedQueue<Long> latencies, AtomicLong errors, CountDownLatch done) {
+        if (System.nanoTime() >= endAt) {
+            done.countDown();
+            return;
+        }
+        long sentAt = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, failure) -> {
+                    if (failure != null || response.statusCode() >= 400) {
+                        errors.incrementAndGet();
+                    } else {
+                        latencies.add(System.nanoTime() - sentAt);
+                    }
+                    send(httpClient, request, endAt, latencies, errors, done);
+                });
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+}
@@ -0,0 +1,69 @@
+package com.technicaltest.authentication.models;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hash of a user, before and after it was keyed by the username, and the set operations that rely on it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityIdentityBenchmark {
+
+    private User user;
+
+    private Set<User> users;
+
+    @Setup
+    public void setUp() {
+        Role userRole = new Role(ERole.ROLE_USER);
+        userRole.setId(1);
+
+        user = new User("admin", "admin@email.lu", "$2a$10$vnbLuJrMxF6brARBGTSo.eUaTc1My.Rf.2bjnsFIcbXEwm1oztF3.");
+        user.setId(123_456L);
+        user.setRoles(Set.of(userRole));
+        users = new HashSet<>();
+        for (long id = 1; id <= 1_000; id++) {
+            User other = new User("user" + id, "user" + id + "@email.lu", "password");
+            other.setId(id);
+            users.add(other);
+        }
+        users.add(user);
+    }
+
+    /**
+     * The former hash: the id concatenated with 1 and parsed back, then the username, email and roles.
+     */
+    @Benchmark
+    public int legacyHashCode() {
+        int result = Integer.parseInt(user.getId() + "1");
+        result = 31 * result + user.getUsername().hashCode();
+        result = 31 * result + Objects.hashCode(user.getEmail());
+        result = 31 * result + Objects.hashCode(user.getRoles());
+        return result;
+    }
+
+    @Benchmark
+    public int usernameHashCode() {
+        return user.hashCode();
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return users.contains(user);
+    }
+
+    @Benchmark
+    public boolean addAndRemove() {
+        User transientUser = new User("transient", "transient@email.lu", "password");
+        return users.add(transientUser) && users.remove(transientUser);
+    }
+}
@@ -0,0 +1,50 @@
+package com.technicaltest.authentication.security.jwt;
+
+import com.technicaltest.authentication.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sign and verify cost of each token algorithm, without the verified token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAlgorithmBenchmark {
+
+    @Param({"HS512", "RS256", "ES256", "EdDSA"})
+    private JwsAlgorithm algorithm;
+
+    private JwtUtils jwtUtils;
+
+    private UserDetailsImpl userDetails;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        jwtUtils = new JwtUtils(new JwtKeys("secretKey", algorithm, "", "", "", "", 86400000, 0), 86400000, true,
+                new VerifiedTokenCache(false, 1, false, 1, 1, meterRegistry));
+        userDetails = new UserDetailsImpl(1L, "admin", "admin@email.lu", "password",
+                List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")));
+        token = jwtUtils.generateJwtToken(userDetails);
+    }
+
+    @Benchmark
+    public String sign() {
+        return jwtUtils.generateJwtToken(userDetails);
+    }
+
+    @Benchmark
+    public VerifiedJwt verify() {
+        return jwtUtils.verifyJwtToken(token);
+    }
+}
@@ -0,0 +1,73 @@
+package com.technicaltest.authentication.security.jwt;
+
+import com.technicaltest.authentication.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verification throughput with and without a thread publishing and promoting the signing key back and forth every
+ * millisecond, far more often than any deployment would. The rotating thread mostly sleeps so that it does not take the
+ * cores of the verifying ones. The HS512 keys make the verification cheap, so that any contention on the key ring would show.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtKeyRotationBenchmark {
+
+    private JwtKeys jwtKeys;
+
+    private JwtUtils jwtUtils;
+
+    private JwtKey first;
+
+    private JwtKey second;
+
+    private boolean toggle;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        jwtKeys = new JwtKeys("secretKey", JwsAlgorithm.HS512, "", "", "", "", 86400000, 0);
+        jwtUtils = new JwtUtils(jwtKeys, 86400000, true, new VerifiedTokenCache(false, 1, false, 1, 1, new SimpleMeterRegistry()));
+        first = JwtKey.hmac(new SecretKeySpec("first-secret".getBytes(StandardCharsets.UTF_8), "HmacSHA512"), "");
+        second = JwtKey.hmac(new SecretKeySpec("second-secret".getBytes(StandardCharsets.UTF_8), "HmacSHA512"), "");
+        jwtKeys.rotate(first);
+        jwtKeys.promote();
+        token = jwtUtils.generateJwtToken(new UserDetailsImpl(1L, "admin", "admin@email.lu", null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))));
+    }
+
+    @Benchmark
+    @Group("steady")
+    @GroupThreads(3)
+    public VerifiedJwt verifySteady() {
+        return jwtUtils.verifyJwtToken(token);
+    }
+
+    @Benchmark
+    @Group("rotating")
+    @GroupThreads(3)
+    public VerifiedJwt verifyRotating() {
+        return jwtUtils.verifyJwtToken(token);
+    }
+
+    @Benchmark
+    @Group("rotating")
+    @GroupThreads(1)
+    public boolean rotate() throws InterruptedException {
+        toggle = !toggle;
+        boolean rotated = jwtKeys.rotate(toggle ? second : first) && jwtKeys.promote();
+        Thread.sleep(1);
+        return rotated;
+    }
+}
@@ -0,0 +1,89 @@
+package com.technicaltest.authentication.security.jwt;
+
+import com.technicaltest.authentication.security.services.UserDetailsImpl;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issuing and verification. {@code legacyParse} reproduces the former per call
+ * {@code Jwts.parser().setSigningKey(String)} usage, run with {@code -prof gc} to compare allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtUtilsBenchmark {
+
+    private static final String SECRET = "secretKey";
+
+    private JwtUtils fastPath;
+
+    private JwtUtils jjwtOnly;
+
+    private JwtUtils cached;
+
+    private Authentication authentication;
+
+    private String token;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.HS512, "", "", "", "", 86400000, 0);
+        fastPath = new JwtUtils(jwtKeys, 86400000, true, new VerifiedTokenCache(false, 1, false, 1, 1, meterRegistry));
+        jjwtOnly = new JwtUtils(jwtKeys, 86400000, false, new VerifiedTokenCache(false, 1, false, 1, 1, meterRegistry));
+        cached = new JwtUtils(jwtKeys, 86400000, true, new VerifiedTokenCache(true, 1000, false, 1, 1, meterRegistry));
+
+        UserDetailsImpl userDetails = new UserDetailsImpl(1L, "admin", "admin@email.lu", "password",
+                List.of(new SimpleGrantedAuthority("ROLE_USER"), new SimpleGrantedAuthority("ROLE_ADMIN")));
+        authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        token = fastPath.generateJwtToken(authentication);
+        cached.verifyJwtToken(token);
+    }
+
+    @Benchmark
+    public String generateJwtToken() {
+        return fastPath.generateJwtToken(authentication);
+    }
+
+    @Benchmark
+    public VerifiedJwt verifyFastPath() {
+        return fastPath.verifyJwtToken(token);
+    }
+
+    @Benchmark
+    public VerifiedJwt verifyJjwt() {
+        return jjwtOnly.verifyJwtToken(token);
+    }
+
+    @Benchmark
+    public VerifiedJwt verifyCached() {
+        return cached.verifyJwtToken(token);
+    }
+
+    @Benchmark
+    public boolean validateJwtToken() {
+        return fastPath.validateJwtToken(token);
+    }
+
+    @Benchmark
+    public String getUserNameFromJwtToken() {
+        return fastPath.getUserNameFromJwtToken(token);
+    }
+
+    @Benchmark
+    public String legacyParse() {
+        // validateJwtToken then getUserNameFromJwtToken, each building its own parser
+        Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token);
+        return Jwts.parser().setSigningKey(SECRET).parseClaimsJws(token).getBody().getSubject();
+    }
+}
@@ -0,0 +1,94 @@
+package com.technicaltest.authentication.security.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The first user check done by {@link SignupService} on every signup, against user tables of growing size. The rest
+ * of a signup (unique index lookups, one insert) does not depend on the number of users either. Needs a PostgreSQL
+ * database, set with -Dbenchmark.jdbcUrl (default: the local docker one), the users are created in the
+ * signup_benchmark schema. Excluded from the default benchmark run, it only runs when named:
+ * ./mvnw -Pbenchmark verify -Djmh.args="-jvmArgs -Dbenchmark.jdbcUrl=jdbc:postgresql://localhost:32768/postgres SignupFirstUserCheckBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignupFirstUserCheckBenchmark {
+
+    private static final String SCHEMA = "signup_benchmark";
+
+    @Param({"10", "10000", "1000000"})
+    public int users;
+
+    private Connection connection;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("benchmark.jdbcUrl", "jdbc:postgresql://localhost:32768/postgres"),
+                System.getProperty("benchmark.username", "postgres"),
+                System.getProperty("benchmark.password", "postgres"));
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+            statement.execute("CREATE SCHEMA " + SCHEMA);
+            statement.execute("SET search_path TO " + SCHEMA);
+            statement.execute("CREATE TABLE roles (id integer PRIMARY KEY, name varchar(20))");
+            statement.execute("CREATE TABLE users (id bigint PRIMARY KEY, email varchar(50) UNIQUE, password varchar(120), username varchar(20) UNIQUE)");
+            statement.execute("CREATE TABLE user_roles (user_id bigint REFERENCES users, role_id integer REFERENCES roles, PRIMARY KEY (user_id, role_id))");
+            statement.execute("INSERT INTO roles VALUES (1, 'ROLE_USER'), (2, 'ROLE_ADMIN')");
+            statement.execute("INSERT INTO users SELECT i, 'user' || i || '@email.lu', '$2a$10$vnbLuJrMxF6brARBGTSo.eUaTc1My.Rf.2bjnsFIcbXEwm1oztF3.', 'user' || i "
+                    + "FROM generate_series(1, " + users + ") AS i");
+            statement.execute("INSERT INTO user_roles SELECT id, 1 FROM users");
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP SCHEMA " + SCHEMA + " CASCADE");
+        }
+        connection.close();
+    }
+
+    /**
+     * What UserRepository.existsAny runs.
+     */
+    @Benchmark
+    public boolean existsAny() throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT EXISTS(SELECT 1 FROM users)")) {
+            resultSet.next();
+            return resultSet.getBoolean(1);
+        }
+    }
+
+    /**
+     * The former check, userRepository.findAll().isEmpty(): every user is read with its roles. Entity building is
+     * left out, so this is a lower bound of its cost.
+     */
+    @Benchmark
+    public boolean findAllIsEmpty() throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT u.id, u.email, u.password, u.username, r.id, r.name "
+                     + "FROM users u LEFT JOIN user_roles ur ON ur.user_id = u.id LEFT JOIN roles r ON r.id = ur.role_id")) {
+            while (resultSet.next()) {
+                rows.add(new Object[]{resultSet.getLong(1), resultSet.getString(2), resultSet.getString(3),
+                        resultSet.getString(4), resultSet.getInt(5), resultSet.getString(6)});
+            }
+        }
+        return rows.isEmpty();
+    }
+}
@@ -0,0 +1,53 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import com.technicaltest.authentication.models.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Principal building and the role extraction done by {@link AuthenticationService} at sign in.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserDetailsBenchmark {
+
+    private User user;
+
+    private UserDetailsImpl userDetails;
+
+    @Setup
+    public void setUp() {
+        Role userRole = new Role(ERole.ROLE_USER);
+        userRole.setId(1);
+        Role adminRole = new Role(ERole.ROLE_ADMIN);
+        adminRole.setId(2);
+
+        user = new User("admin", "admin@email.lu", "$2a$10$vnbLuJrMxF6brARBGTSo.eUaTc1My.Rf.2bjnsFIcbXEwm1oztF3.");
+        user.setId(1L);
+        user.setRoles(Set.of(userRole, adminRole));
+        userDetails = UserDetailsImpl.build(user);
+    }
+
+    @Benchmark
+    public UserDetailsImpl build() {
+        return UserDetailsImpl.build(user);
+    }
+
+    @Benchmark
+    public Object initRoles() {
+        return AuthenticationService.initRoles(userDetails);
+    }
+
+    @Benchmark
+    public boolean isSuspendedUser() {
+        return AuthenticationService.isSuspendedUser(userDetails);
+    }
+}
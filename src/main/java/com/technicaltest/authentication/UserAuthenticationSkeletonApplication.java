@@ -1,13 +1,20 @@
 package com.technicaltest.authentication;
 
 import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
 @SpringBootApplication
 public class UserAuthenticationSkeletonApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(UserAuthenticationSkeletonApplication.class, args);
+        SpringApplication application = new SpringApplication(UserAuthenticationSkeletonApplication.class);
+        if (UserImportCommand.isRequested(args) || UserExportCommand.isRequested(args)) {
+            // command line modes, see UserImportCommand and UserExportCommand
+            application.setWebApplicationType(WebApplicationType.NONE);
+            System.exit(SpringApplication.exit(application.run(args)));
+        }
+        application.run(args);
     }
 
 }
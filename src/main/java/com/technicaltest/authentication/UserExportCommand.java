@@ -0,0 +1,76 @@
+package com.technicaltest.authentication;
+
+import com.technicaltest.authentication.security.services.UserExportService;
+import com.technicaltest.authentication.security.services.UserFileFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Command line mode exporting the users to a CSV or NDJSON file, gzip compressed when its name ends with .gz:
+ * java -jar authentication.jar --authorization.app.export.file=users.csv.gz [--authorization.app.export.afterId=1000]
+ * The application starts without its web server and stops once the file is written.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(UserExportCommand.FILE_PROPERTY)
+public class UserExportCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportCommand.class);
+
+    static final String FILE_PROPERTY = "authorization.app.export.file";
+
+    final UserExportService userExportService;
+
+    final Path file;
+
+    final long afterId;
+
+    private int exitCode;
+
+    public UserExportCommand(UserExportService userExportService, @Value("${" + FILE_PROPERTY + "}") Path file,
+                             @Value("${authorization.app.export.afterId:0}") long afterId) {
+        this.userExportService = userExportService;
+        this.file = file;
+        this.afterId = afterId;
+    }
+
+    static boolean isRequested(String[] args) {
+        return Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + FILE_PROPERTY + "="));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        UserFileFormat format = UserFileFormat.of(file.getFileName().toString());
+        if (format == null) {
+            logger.error("{} is neither a .csv nor a .ndjson file, compressed or not", file);
+            exitCode = 2;
+            return;
+        }
+
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024)) {
+            userExportService.export(format, UserFileFormat.isGzip(file.toString()), afterId, output);
+        }
+    }
+
+    /**
+     * @return 0 when the file is written, 2 when its extension is not supported
+     */
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
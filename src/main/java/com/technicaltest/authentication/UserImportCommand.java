@@ -0,0 +1,80 @@
+package com.technicaltest.authentication;
+
+import com.technicaltest.authentication.payload.response.UserImportReport;
+import com.technicaltest.authentication.security.services.UserFileFormat;
+import com.technicaltest.authentication.security.services.UserImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.ExitCodeGenerator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Command line mode importing a CSV or NDJSON file, gzip compressed or not, the format is told by its extension:
+ * java -jar authentication.jar --authorization.app.import.file=users.csv
+ * The application starts without its web server and stops once the file is imported.
+ */
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(UserImportCommand.FILE_PROPERTY)
+public class UserImportCommand implements ApplicationRunner, ExitCodeGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportCommand.class);
+
+    static final String FILE_PROPERTY = "authorization.app.import.file";
+
+    final UserImportService userImportService;
+
+    final Path file;
+
+    private int exitCode;
+
+    public UserImportCommand(UserImportService userImportService, @Value("${" + FILE_PROPERTY + "}") Path file) {
+        this.userImportService = userImportService;
+        this.file = file;
+    }
+
+    static boolean isRequested(String[] args) {
+        return Arrays.stream(args).anyMatch(arg -> arg.startsWith("--" + FILE_PROPERTY + "="));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        UserFileFormat format = UserFileFormat.of(file.getFileName().toString());
+        if (format == null) {
+            logger.error("{} is neither a .csv nor a .ndjson file, compressed or not", file);
+            exitCode = 2;
+            return;
+        }
+
+        UserImportReport report;
+        try (InputStream input = UserFileFormat.isGzip(file.toString())
+                ? new GZIPInputStream(Files.newInputStream(file)) : Files.newInputStream(file)) {
+            report = userImportService.importUsers(input, format);
+        }
+        report.getRejections().forEach(rejection -> logger.warn("Line {} rejected: {}", rejection.getLine(), rejection.getReason()));
+        if (report.getRejected() > report.getRejections().size()) {
+            logger.warn("{} more rejections not listed", report.getRejected() - report.getRejections().size());
+        }
+        exitCode = report.getRejected() == 0 ? 0 : 1;
+    }
+
+    /**
+     * @return 0 when every row was imported, 1 when some were rejected, 2 when the file could not be read
+     */
+    @Override
+    public int getExitCode() {
+        return exitCode;
+    }
+}
@@ -1,5 +1,6 @@
 package com.technicaltest.authentication.config;
 
+import io.r2dbc.spi.ConnectionFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -7,6 +8,7 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.jdbc.datasource.init.DataSourceInitializer;
 import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.r2dbc.connection.init.ConnectionFactoryInitializer;
 
 import javax.sql.DataSource;
 
@@ -15,6 +17,7 @@ import javax.sql.DataSource;
 public class DataInitializerConfig {
 
     @Bean
+    @Profile("!reactive")
     public DataSourceInitializer dataSourceInitializer(@Qualifier("dataSource") final DataSource dataSource) {
         ResourceDatabasePopulator resourceDatabasePopulator = new ResourceDatabasePopulator();
         resourceDatabasePopulator.addScript(new ClassPathResource("/sql_scripts/initData.sql"));
@@ -23,4 +26,17 @@ public class DataInitializerConfig {
         dataSourceInitializer.setDatabasePopulator(resourceDatabasePopulator);
         return dataSourceInitializer;
     }
+
+    /**
+     * The reactive profile has no JDBC data source, the same script runs through R2DBC.
+     */
+    @Bean
+    @Profile("reactive")
+    public ConnectionFactoryInitializer connectionFactoryInitializer(final ConnectionFactory connectionFactory) {
+        ConnectionFactoryInitializer connectionFactoryInitializer = new ConnectionFactoryInitializer();
+        connectionFactoryInitializer.setConnectionFactory(connectionFactory);
+        connectionFactoryInitializer.setDatabasePopulator(
+                new org.springframework.r2dbc.connection.init.ResourceDatabasePopulator(new ClassPathResource("/sql_scripts/initData.sql")));
+        return connectionFactoryInitializer;
+    }
 }
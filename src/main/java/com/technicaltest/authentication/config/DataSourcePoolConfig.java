@@ -0,0 +1,91 @@
+package com.technicaltest.authentication.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Sizes the Hikari pool of the servlet stack. More connections than the database can serve in parallel only move the
+ * wait from the pool to the database, so unless a size is given the pool gets the PostgreSQL rule of thumb, twice the
+ * cores of the database plus one, bounded by the expected concurrent requests and by the connections this instance
+ * may open. The pool is fixed size: a burst does not wait for new connections to be opened.
+ * The pool metrics, wait time included, are published by Spring Boot as hikaricp.connections.*.
+ * The exports and streamed listings take their connections from a {@link StreamingDataSource} of their own.
+ */
+@Configuration
+@Profile("!reactive")
+public class DataSourcePoolConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataSourcePoolConfig.class);
+
+    /**
+     * Static, as a post processor: it must not get the configuration created early along with it.
+     */
+    @Bean
+    public static BeanPostProcessor hikariPoolSizer(@Value("${authorization.app.datasource.poolSize:0}") int configuredPoolSize,
+                                                    @Value("${authorization.app.datasource.databaseCores:0}") int databaseCores,
+                                                    @Value("${authorization.app.datasource.expectedConcurrency:0}") int expectedConcurrency,
+                                                    @Value("${authorization.app.datasource.maxConnections:0}") int maxConnections) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                // the pool only starts on the first connection checkout, it can still be resized here
+                if (bean instanceof HikariDataSource dataSource) {
+                    int cores = databaseCores > 0 ? databaseCores : Runtime.getRuntime().availableProcessors();
+                    int size = poolSize(configuredPoolSize, cores, expectedConcurrency, maxConnections);
+                    dataSource.setMaximumPoolSize(size);
+                    dataSource.setMinimumIdle(size);
+                    logger.info("Connection pool {} sized to {} connections", dataSource.getPoolName(), size);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Opens its connections on demand, and has no leak detection: its connections are held as long as the export.
+     */
+    @Bean(destroyMethod = "close")
+    public StreamingDataSource streamingDataSource(DataSourceProperties dataSourceProperties, MeterRegistry meterRegistry,
+                                                   @Value("${authorization.app.datasource.streamingPoolSize:2}") int poolSize,
+                                                   @Value("${spring.datasource.hikari.connection-timeout:30000}") long connectionTimeout) {
+        HikariDataSource dataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("authentication-streaming");
+        dataSource.setMaximumPoolSize(poolSize);
+        dataSource.setMinimumIdle(0);
+        dataSource.setConnectionTimeout(connectionTimeout);
+        dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new StreamingDataSource(dataSource);
+    }
+
+    /**
+     * @param configuredPoolSize  used as is when positive
+     * @param cores               cores of the database server
+     * @param expectedConcurrency requests expected to use a connection at the same time, 0 when unknown
+     * @param maxConnections      connections this instance may open, i.e. the max_connections of the server left once
+     *                            the reserved ones are removed, divided by the number of instances, 0 when unbounded
+     */
+    static int poolSize(int configuredPoolSize, int cores, int expectedConcurrency, int maxConnections) {
+        if (configuredPoolSize > 0) {
+            return configuredPoolSize;
+        }
+        int size = cores * 2 + 1;
+        if (expectedConcurrency > 0) {
+            size = Math.min(size, expectedConcurrency);
+        }
+        if (maxConnections > 0) {
+            size = Math.min(size, maxConnections);
+        }
+        return size;
+    }
+}
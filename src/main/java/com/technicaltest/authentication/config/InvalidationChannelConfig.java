@@ -0,0 +1,49 @@
+package com.technicaltest.authentication.config;
+
+import com.technicaltest.authentication.security.invalidation.InvalidationChannel;
+import com.technicaltest.authentication.security.invalidation.LocalInvalidationChannel;
+import com.technicaltest.authentication.security.invalidation.LoopbackInvalidationChannel;
+import com.technicaltest.authentication.security.invalidation.PostgresInvalidationChannel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+
+/**
+ * Selects how user changes reach the other nodes through {@code authorization.app.invalidation.channel}:
+ * {@code local} (default, single node), {@code postgres} (LISTEN/NOTIFY) or {@code loopback} (in memory, tests).
+ */
+@Configuration
+public class InvalidationChannelConfig {
+
+    private static final String CHANNEL_PROPERTY = "authorization.app.invalidation.channel";
+
+    @Bean
+    @ConditionalOnProperty(name = CHANNEL_PROPERTY, havingValue = "local", matchIfMissing = true)
+    public InvalidationChannel localInvalidationChannel() {
+        return new LocalInvalidationChannel();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = CHANNEL_PROPERTY, havingValue = "loopback")
+    public InvalidationChannel loopbackInvalidationChannel() {
+        return new LoopbackInvalidationChannel();
+    }
+
+    @Bean(destroyMethod = "stop")
+    @ConditionalOnProperty(name = CHANNEL_PROPERTY, havingValue = "postgres")
+    public PostgresInvalidationChannel postgresInvalidationChannel(DataSourceProperties dataSourceProperties, JdbcTemplate jdbcTemplate,
+                                                           @Value("${authorization.app.invalidation.pollTimeoutMs:500}") int pollTimeoutMs,
+                                                           @Value("${authorization.app.invalidation.reconnectDelayMs:1000}") long reconnectDelayMs) {
+        // the listener keeps its connection open forever, it must not be taken from the pool
+        SimpleDriverDataSource listenerDataSource = dataSourceProperties.initializeDataSourceBuilder()
+                .type(SimpleDriverDataSource.class)
+                .build();
+        PostgresInvalidationChannel channel = new PostgresInvalidationChannel(jdbcTemplate, listenerDataSource, pollTimeoutMs, reconnectDelayMs);
+        channel.start();
+        return channel;
+    }
+}
@@ -0,0 +1,54 @@
+package com.technicaltest.authentication.config;
+
+import com.technicaltest.authentication.security.crypto.BCryptStrengthCalibrator;
+import com.technicaltest.authentication.security.crypto.PasswordHashingExecutor;
+import com.technicaltest.authentication.security.crypto.PooledPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.crypto.password.Pbkdf2PasswordEncoder;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Versioned password hashes: new hashes are prefixed with the id of the algorithm, e.g. {bcrypt}, so the algorithm
+ * or its cost can change without resetting the existing passwords. Hashes stored before the prefix existed are
+ * plain BCrypt and keep matching. Anything not produced by the current encoder is upgraded on the next sign in.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+    static final String BCRYPT = "bcrypt";
+    static final String ARGON2 = "argon2";
+    static final String PBKDF2 = "pbkdf2";
+
+    @Bean
+    public PooledPasswordEncoder passwordEncoder(@Value("${authorization.app.passwordHashing.encoder:bcrypt}") String encoderId,
+                                                 @Value("${authorization.app.passwordHashing.bcryptStrength:0}") int bcryptStrength,
+                                                 @Value("${authorization.app.passwordHashing.budgetMs:50}") long budgetMs,
+                                                 PasswordHashingExecutor passwordHashingExecutor) {
+        int strength = bcryptStrength > 0 ? bcryptStrength : BCryptStrengthCalibrator.calibrate(Duration.ofMillis(budgetMs));
+
+        return new PooledPasswordEncoder(delegatingPasswordEncoder(encoderId, strength), passwordHashingExecutor);
+    }
+
+    static DelegatingPasswordEncoder delegatingPasswordEncoder(String encoderId, int bcryptStrength) {
+        Map<String, PasswordEncoder> encoders = Map.of(
+                BCRYPT, new BCryptPasswordEncoder(bcryptStrength),
+                ARGON2, new Argon2PasswordEncoder(),
+                PBKDF2, new Pbkdf2PasswordEncoder());
+        if (!encoders.containsKey(encoderId)) {
+            throw new IllegalArgumentException("Unknown password encoder " + encoderId + ", expected one of " + encoders.keySet());
+        }
+
+        DelegatingPasswordEncoder passwordEncoder = new DelegatingPasswordEncoder(encoderId, encoders);
+        // legacy hashes have no {id} prefix, they were all produced by a BCryptPasswordEncoder
+        passwordEncoder.setDefaultPasswordEncoderForMatches(new BCryptPasswordEncoder());
+        return passwordEncoder;
+    }
+}
@@ -0,0 +1,30 @@
+package com.technicaltest.authentication.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Server of the reactive profile: Netty, even though Tomcat is on the classpath for the servlet stack, on a small
+ * fixed number of event loop threads.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveServerConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public LoopResources eventLoopResources(@Value("${authorization.app.reactive.eventLoopThreads:0}") int eventLoopThreads) {
+        int threads = eventLoopThreads > 0 ? eventLoopThreads : Runtime.getRuntime().availableProcessors();
+        return LoopResources.create("auth-event-loop", threads, true);
+    }
+
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory(LoopResources eventLoopResources) {
+        NettyReactiveWebServerFactory factory = new NettyReactiveWebServerFactory();
+        factory.addServerCustomizers(httpServer -> httpServer.runOn(eventLoopResources));
+        return factory;
+    }
+}
@@ -0,0 +1,28 @@
+package com.technicaltest.authentication.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+
+/**
+ * Pool of the connections held while an export or a streamed listing is written, for up to
+ * spring.mvc.async.request-timeout. Kept apart from the request pool, they neither take its connections from the short
+ * requests nor trip its leak detection. Not a {@link DataSource} bean, which would replace the one of Spring Boot.
+ */
+public final class StreamingDataSource implements AutoCloseable {
+
+    private final HikariDataSource dataSource;
+
+    public StreamingDataSource(HikariDataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public DataSource get() {
+        return dataSource;
+    }
+
+    @Override
+    public void close() {
+        dataSource.close();
+    }
+}
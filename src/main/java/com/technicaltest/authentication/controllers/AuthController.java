@@ -1,35 +1,61 @@
 package com.technicaltest.authentication.controllers;
 
 import com.technicaltest.authentication.payload.request.LoginRequest;
+import com.technicaltest.authentication.payload.request.RefreshTokenRequest;
 import com.technicaltest.authentication.payload.request.SignupRequest;
 import com.technicaltest.authentication.security.services.AuthenticationService;
+import com.technicaltest.authentication.security.services.RefreshTokenService;
 import com.technicaltest.authentication.security.services.SignupService;
+import com.technicaltest.authentication.security.throttle.ClientAddressResolver;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.util.Collections;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/auth")
+@Profile("!reactive")
 public class AuthController {
 
 	final AuthenticationService authenticationService;
 
 	final SignupService signupService;
 
-	public AuthController(AuthenticationService authenticationService, SignupService signupService) {
+	final RefreshTokenService refreshTokenService;
+
+	final ClientAddressResolver clientAddressResolver;
+
+	public AuthController(AuthenticationService authenticationService, SignupService signupService,
+						  RefreshTokenService refreshTokenService, ClientAddressResolver clientAddressResolver) {
 		this.authenticationService = authenticationService;
 		this.signupService = signupService;
+		this.refreshTokenService = refreshTokenService;
+		this.clientAddressResolver = clientAddressResolver;
 	}
 
 	@PostMapping("/signin")
-	public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
-		return authenticationService.doAuthenticate(loginRequest);
+	public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest, HttpServletRequest request) {
+		String clientAddress = clientAddressResolver.resolve(request.getRemoteAddr(),
+				Collections.list(request.getHeaders(ClientAddressResolver.FORWARDED_FOR)));
+		return authenticationService.doAuthenticate(loginRequest, clientAddress);
 	}
 
 	@PostMapping("/signup")
 	public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
 		return signupService.doSignup(signUpRequest);
 	}
+
+	@PostMapping("/refresh")
+	public ResponseEntity<?> refreshToken(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+		return refreshTokenService.doRefresh(refreshTokenRequest);
+	}
+
+	@PostMapping("/signout")
+	public ResponseEntity<?> signOut(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+		return refreshTokenService.doSignout(refreshTokenRequest);
+	}
 }
@@ -0,0 +1,49 @@
+package com.technicaltest.authentication.controllers;
+
+import com.technicaltest.authentication.security.jwt.JwtKeys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+/**
+ * Publishes the public keys of the tokens so that the other services verify them locally.
+ * The set is cacheable by any cache for {@code authorization.app.jwt.jwksMaxAgeSeconds} and revalidated with its ETag.
+ * Served on both stacks.
+ */
+@RestController
+public class JwksController {
+
+	final JwtKeys jwtKeys;
+
+	private final CacheControl cacheControl;
+
+	public JwksController(JwtKeys jwtKeys,
+						  @Value("${authorization.app.jwt.jwksMaxAgeSeconds:3600}") long jwksMaxAgeSeconds) {
+		this.jwtKeys = jwtKeys;
+		this.cacheControl = CacheControl.maxAge(Duration.ofSeconds(jwksMaxAgeSeconds)).cachePublic();
+	}
+
+	@GetMapping("/.well-known/jwks.json")
+	public ResponseEntity<String> getJwks(@RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+		String eTag = jwtKeys.getJwksETag();
+		if (eTag.equals(ifNoneMatch)) {
+			return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+					.cacheControl(cacheControl)
+					.eTag(eTag)
+					.build();
+		}
+		return ResponseEntity.ok()
+				.cacheControl(cacheControl)
+				.eTag(eTag)
+				.contentType(MediaType.APPLICATION_JSON)
+				.body(jwtKeys.getJwks());
+	}
+}
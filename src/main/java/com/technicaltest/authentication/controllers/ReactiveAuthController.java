@@ -0,0 +1,66 @@
+package com.technicaltest.authentication.controllers;
+
+import com.technicaltest.authentication.payload.request.LoginRequest;
+import com.technicaltest.authentication.payload.request.SignupRequest;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.security.jwt.ReactiveAuthEntryPointJwt;
+import com.technicaltest.authentication.security.services.ReactiveAuthenticationService;
+import com.technicaltest.authentication.security.services.ReactiveSignupService;
+import com.technicaltest.authentication.security.throttle.ClientAddressResolver;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.net.InetSocketAddress;
+
+/**
+ * Reactive counterpart of {@link AuthController}, same contract.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/auth")
+@Profile("reactive")
+public class ReactiveAuthController {
+
+	final ReactiveAuthenticationService authenticationService;
+
+	final ReactiveSignupService signupService;
+
+	final ReactiveAuthEntryPointJwt unauthorizedHandler;
+
+	final ClientAddressResolver clientAddressResolver;
+
+	public ReactiveAuthController(ReactiveAuthenticationService authenticationService, ReactiveSignupService signupService,
+								  ReactiveAuthEntryPointJwt unauthorizedHandler, ClientAddressResolver clientAddressResolver) {
+		this.authenticationService = authenticationService;
+		this.signupService = signupService;
+		this.unauthorizedHandler = unauthorizedHandler;
+		this.clientAddressResolver = clientAddressResolver;
+	}
+
+	@PostMapping("/signin")
+	public Mono<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest, ServerWebExchange exchange) {
+		InetSocketAddress remoteAddress = exchange.getRequest().getRemoteAddress();
+		String clientAddress = clientAddressResolver.resolve(
+				remoteAddress == null ? null : remoteAddress.getAddress().getHostAddress(),
+				exchange.getRequest().getHeaders().get(ClientAddressResolver.FORWARDED_FOR));
+		return authenticationService.doAuthenticate(loginRequest, clientAddress);
+	}
+
+	@PostMapping("/signup")
+	public Mono<ResponseEntity<MessageResponse>> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
+		return signupService.doSignup(signUpRequest);
+	}
+
+	/**
+	 * Same response as the servlet stack, where the security filters turn a failed sign in into a 401.
+	 */
+	@ExceptionHandler(AuthenticationException.class)
+	public Mono<Void> authenticationFailed(ServerWebExchange exchange, AuthenticationException exception) {
+		return unauthorizedHandler.commence(exchange, exception);
+	}
+}
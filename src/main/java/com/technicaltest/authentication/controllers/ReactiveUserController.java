@@ -0,0 +1,55 @@
+package com.technicaltest.authentication.controllers;
+
+import com.technicaltest.authentication.models.User;
+import com.technicaltest.authentication.payload.request.PasswordChangeRequest;
+import com.technicaltest.authentication.payload.request.UserRoleUpdateRequest;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.security.services.ReactiveUserService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+
+/**
+ * Reactive counterpart of {@link UserController}, same contract.
+ */
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/user")
+@Profile("reactive")
+public class ReactiveUserController {
+
+    final ReactiveUserService userService;
+
+    public ReactiveUserController(ReactiveUserService userService) {
+        this.userService = userService;
+    }
+
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    @PutMapping("/role")
+    public Mono<ResponseEntity<MessageResponse>> updateUserRoles(@Valid @RequestBody UserRoleUpdateRequest userRoleUpdateRequest) {
+        return userService.updateUserRoles(userRoleUpdateRequest);
+    }
+
+    @PatchMapping("/password")
+    @PreAuthorize("hasAuthority('ROLE_USER')")
+    public Mono<ResponseEntity<MessageResponse>> changePassword(@Valid @RequestBody PasswordChangeRequest passwordChangeRequest) {
+        return userService.changePassword(passwordChangeRequest);
+    }
+
+    @DeleteMapping("/delete/{id}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public Mono<ResponseEntity<MessageResponse>> deleteUser(@PathVariable(value = "id") Long id) {
+        return userService.deleteUser(id);
+    }
+
+    @GetMapping("/fetch")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public Mono<ResponseEntity<Flux<User>>> findUsers() {
+        return userService.findAll();
+    }
+}
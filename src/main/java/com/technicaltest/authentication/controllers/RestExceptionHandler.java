@@ -0,0 +1,33 @@
+package com.technicaltest.authentication.controllers;
+
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.security.crypto.PasswordHashingRejectedException;
+import com.technicaltest.authentication.security.throttle.LoginThrottledException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.TOO_MANY_REQUESTS;
+import static com.technicaltest.authentication.payload.response.MessageResponse.TOO_MANY_SIGN_IN_ATTEMPTS;
+
+@RestControllerAdvice
+public class RestExceptionHandler {
+
+    @ExceptionHandler(PasswordHashingRejectedException.class)
+    public ResponseEntity<MessageResponse> passwordHashingRejected(PasswordHashingRejectedException exception) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(new MessageResponse(TOO_MANY_REQUESTS));
+    }
+
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<MessageResponse> loginThrottled(LoginThrottledException exception) {
+        return ResponseEntity
+                .status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(new MessageResponse(TOO_MANY_SIGN_IN_ATTEMPTS));
+    }
+}
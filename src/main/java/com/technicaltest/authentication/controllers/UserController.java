@@ -1,26 +1,51 @@
 package com.technicaltest.authentication.controllers;
 
 import com.technicaltest.authentication.models.User;
+import com.technicaltest.authentication.payload.request.BulkDeletionRequest;
+import com.technicaltest.authentication.payload.request.BulkPasswordChangeRequest;
+import com.technicaltest.authentication.payload.request.BulkRoleUpdateRequest;
 import com.technicaltest.authentication.payload.request.PasswordChangeRequest;
+import com.technicaltest.authentication.payload.request.UserExportRequest;
+import com.technicaltest.authentication.payload.request.UserListingRequest;
 import com.technicaltest.authentication.payload.request.UserRoleUpdateRequest;
+import com.technicaltest.authentication.payload.response.BulkItemResult;
 import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.security.services.UserExportService;
+import com.technicaltest.authentication.security.services.UserImportService;
+import com.technicaltest.authentication.security.services.UserListingService;
 import com.technicaltest.authentication.security.services.UserService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/user")
+@Profile("!reactive")
 public class UserController {
 
     final UserService userService;
 
-    public UserController(UserService userService) {
+    final UserListingService userListingService;
+
+    final UserImportService userImportService;
+
+    final UserExportService userExportService;
+
+    public UserController(UserService userService, UserListingService userListingService, UserImportService userImportService,
+                          UserExportService userExportService) {
         this.userService = userService;
+        this.userListingService = userListingService;
+        this.userImportService = userImportService;
+        this.userExportService = userExportService;
     }
 
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
@@ -41,9 +66,54 @@ public class UserController {
         return userService.deleteUser(id);
     }
 
+    @PutMapping("/bulk/role")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<BulkItemResult>> updateUsersRoles(@Valid @RequestBody BulkRoleUpdateRequest bulkRoleUpdateRequest) {
+        return userService.updateUsersRoles(bulkRoleUpdateRequest.getUpdates());
+    }
+
+    @PatchMapping("/bulk/password")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<BulkItemResult>> changePasswords(@Valid @RequestBody BulkPasswordChangeRequest bulkPasswordChangeRequest) {
+        return userService.changePasswords(bulkPasswordChangeRequest.getChanges());
+    }
+
+    @PostMapping("/bulk/delete")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<BulkItemResult>> deleteUsers(@Valid @RequestBody BulkDeletionRequest bulkDeletionRequest) {
+        return userService.deleteUsers(bulkDeletionRequest.getIds());
+    }
+
+    /**
+     * Takes a text/csv or application/x-ndjson body, read as it is received.
+     */
+    @PostMapping("/import")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<?> importUsers(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType, InputStream body) throws IOException {
+        return userImportService.importUsers(body, contentType);
+    }
+
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> exportUsers(@Valid UserExportRequest userExportRequest) {
+        return userExportService.export(userExportRequest);
+    }
+
     @GetMapping("/fetch")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
     public ResponseEntity<List<User>> findUsers() {
         return userService.findAll();
     }
+
+    @GetMapping("/fetch/page")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<?> findUsersPage(@Valid UserListingRequest userListingRequest) {
+        return userListingService.findPage(userListingRequest);
+    }
+
+    @GetMapping("/fetch/stream")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<StreamingResponseBody> streamUsers(@Valid UserListingRequest userListingRequest) {
+        return userListingService.stream(userListingRequest);
+    }
 }
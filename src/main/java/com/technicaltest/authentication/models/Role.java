@@ -38,19 +38,23 @@ public class Role implements Serializable {
         this.name = name;
     }
 
+    /**
+     * Roles are identified by their name, the roles table holding one row per {@link ERole}: the identity does not
+     * depend on the id being assigned yet.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof Role role)) return false;
 
-        if (!id.equals(role.id)) return false;
-        return name == role.name;
+        return getName() != null && getName() == role.getName();
     }
 
+    /**
+     * The ordinal of the name, unlike the hash of an enum it is the same on every JVM.
+     */
     @Override
     public int hashCode() {
-        int result = id.hashCode();
-        result = 31 * result + name.hashCode();
-        return result;
+        return getName() == null ? 0 : getName().ordinal() + 1;
     }
-}
\ No newline at end of file
+}
@@ -11,12 +11,19 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
+@NamedEntityGraph(name = User.ROLES_GRAPH, attributeNodes = @NamedAttributeNode("roles"))
 @Table(name = "users",
         uniqueConstraints = {
-                @UniqueConstraint(columnNames = "username"),
-                @UniqueConstraint(columnNames = "email")
+                @UniqueConstraint(name = User.USERNAME_CONSTRAINT, columnNames = "username"),
+                @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email")
         })
 public class User {
+    // the names Hibernate generated for the existing databases, violations are mapped back to the column through them
+    public static final String USERNAME_CONSTRAINT = "ukr43af9ap4edm43mmtq01oddj6";
+    public static final String EMAIL_CONSTRAINT = "uk6dotkott2kjsp8vw4d0m25fb7";
+    // loads the roles with the user, for the paths reading them
+    public static final String ROLES_GRAPH = "User.roles";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -35,7 +42,7 @@ public class User {
     @JsonIgnore
     private String password;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
             inverseJoinColumns = @JoinColumn(name = "role_id"))
@@ -90,25 +97,25 @@ public class User {
         this.roles = roles;
     }
 
+    /**
+     * Users are identified by their username, unique and never changed, rather than by their id: the identity is the
+     * same before and after the persist, and a transient user can be put in a set. The accessors are used so that a
+     * proxy compares like the entity.
+     */
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (!(o instanceof User user)) return false;
 
-        if (!id.equals(user.id)) return false;
-        if (!username.equals(user.username)) return false;
-        if (!Objects.equals(email, user.email)) return false;
-        if (!Objects.equals(password, user.password)) return false;
-        return Objects.equals(roles, user.roles);
+        return getUsername() != null && getUsername().equals(user.getUsername());
     }
 
+    /**
+     * The hash of the username, cached by the string: nothing is allocated.
+     */
     @Override
     public int hashCode() {
-        int result = Integer.parseInt(id + "1");
-        result = 31 * result + username.hashCode();
-        result = 31 * result + (email != null ? email.hashCode() : 0);
-        result = 31 * result + (roles != null ? roles.hashCode() : 0);
-        return result;
+        return Objects.hashCode(getUsername());
     }
 
     @Override
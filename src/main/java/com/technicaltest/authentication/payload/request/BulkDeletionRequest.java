@@ -0,0 +1,29 @@
+package com.technicaltest.authentication.payload.request;
+
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.util.List;
+
+public class BulkDeletionRequest implements Serializable {
+
+    public BulkDeletionRequest() {
+    }
+
+    public BulkDeletionRequest(List<Long> ids) {
+        this.ids = ids;
+    }
+
+    @NotEmpty
+    @Size(max = 10000)
+    private List<@NotNull Long> ids;
+
+    public List<Long> getIds() {
+        return ids;
+    }
+
+    public void setIds(List<Long> ids) {
+        this.ids = ids;
+    }
+}
@@ -0,0 +1,29 @@
+package com.technicaltest.authentication.payload.request;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.util.List;
+
+public class BulkPasswordChangeRequest implements Serializable {
+
+    public BulkPasswordChangeRequest() {
+    }
+
+    public BulkPasswordChangeRequest(List<PasswordChangeRequest> changes) {
+        this.changes = changes;
+    }
+
+    @NotEmpty
+    @Size(max = 10000)
+    private List<@Valid PasswordChangeRequest> changes;
+
+    public List<PasswordChangeRequest> getChanges() {
+        return changes;
+    }
+
+    public void setChanges(List<PasswordChangeRequest> changes) {
+        this.changes = changes;
+    }
+}
@@ -0,0 +1,29 @@
+package com.technicaltest.authentication.payload.request;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.util.List;
+
+public class BulkRoleUpdateRequest implements Serializable {
+
+    public BulkRoleUpdateRequest() {
+    }
+
+    public BulkRoleUpdateRequest(List<UserRoleUpdateRequest> updates) {
+        this.updates = updates;
+    }
+
+    @NotEmpty
+    @Size(max = 10000)
+    private List<@Valid UserRoleUpdateRequest> updates;
+
+    public List<UserRoleUpdateRequest> getUpdates() {
+        return updates;
+    }
+
+    public void setUpdates(List<UserRoleUpdateRequest> updates) {
+        this.updates = updates;
+    }
+}
@@ -0,0 +1,25 @@
+package com.technicaltest.authentication.payload.request;
+
+import javax.validation.constraints.NotBlank;
+import java.io.Serializable;
+
+public class RefreshTokenRequest implements Serializable {
+
+    public RefreshTokenRequest() {
+    }
+
+    public RefreshTokenRequest(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    @NotBlank
+    private String refreshToken;
+
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+}
@@ -0,0 +1,53 @@
+package com.technicaltest.authentication.payload.request;
+
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.PositiveOrZero;
+import java.io.Serializable;
+
+/**
+ * Query parameters of the user export: the format, whether it is gzip compressed, and the id of the last user
+ * received by an interrupted export to resume it.
+ */
+public class UserExportRequest implements Serializable {
+
+    public UserExportRequest() {
+    }
+
+    public UserExportRequest(String format, boolean gzip, long afterId) {
+        this.format = format;
+        this.gzip = gzip;
+        this.afterId = afterId;
+    }
+
+    @Pattern(regexp = "csv|ndjson")
+    private String format = "csv";
+
+    private boolean gzip;
+
+    @PositiveOrZero
+    private long afterId;
+
+    public String getFormat() {
+        return format;
+    }
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    public void setGzip(boolean gzip) {
+        this.gzip = gzip;
+    }
+
+    public long getAfterId() {
+        return afterId;
+    }
+
+    public void setAfterId(long afterId) {
+        this.afterId = afterId;
+    }
+}
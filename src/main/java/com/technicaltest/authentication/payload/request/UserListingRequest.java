@@ -0,0 +1,93 @@
+package com.technicaltest.authentication.payload.request;
+
+import javax.validation.constraints.Pattern;
+import java.io.Serializable;
+
+/**
+ * Query parameters of the user listing: filters, sort and the keyset cursor of the next page.
+ */
+public class UserListingRequest implements Serializable {
+
+    public UserListingRequest() {
+    }
+
+    public UserListingRequest(String usernamePrefix, String emailPrefix, String role, String sort, String order) {
+        this.usernamePrefix = usernamePrefix;
+        this.emailPrefix = emailPrefix;
+        this.role = role;
+        this.sort = sort;
+        this.order = order;
+    }
+
+    private String usernamePrefix;
+
+    private String emailPrefix;
+
+    private String role;
+
+    @Pattern(regexp = "id|username|email")
+    private String sort = "id";
+
+    @Pattern(regexp = "asc|desc")
+    private String order = "asc";
+
+    private Integer limit;
+
+    private String cursor;
+
+    public String getUsernamePrefix() {
+        return usernamePrefix;
+    }
+
+    public void setUsernamePrefix(String usernamePrefix) {
+        this.usernamePrefix = usernamePrefix;
+    }
+
+    public String getEmailPrefix() {
+        return emailPrefix;
+    }
+
+    public void setEmailPrefix(String emailPrefix) {
+        this.emailPrefix = emailPrefix;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public void setRole(String role) {
+        this.role = role;
+    }
+
+    public String getSort() {
+        return sort;
+    }
+
+    public void setSort(String sort) {
+        this.sort = sort;
+    }
+
+    public String getOrder() {
+        return order;
+    }
+
+    public void setOrder(String order) {
+        this.order = order;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
@@ -0,0 +1,67 @@
+package com.technicaltest.authentication.payload.response;
+
+import java.io.Serializable;
+
+/**
+ * Outcome of one item of a bulk request: the status and message the single user endpoint would have answered.
+ */
+public class BulkItemResult implements Serializable {
+    private int index;
+    private Long id;
+    private String username;
+    private int status;
+    private String message;
+
+    public BulkItemResult() {
+    }
+
+    public BulkItemResult(Long id, String username, int status, String message) {
+        this.id = id;
+        this.username = username;
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * @return the position of the item in the request
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
@@ -0,0 +1,35 @@
+package com.technicaltest.authentication.payload.response;
+
+import java.io.Serializable;
+
+public class ImportRejection implements Serializable {
+    private long line;
+    private String reason;
+
+    public ImportRejection() {
+    }
+
+    public ImportRejection(long line, String reason) {
+        this.line = line;
+        this.reason = reason;
+    }
+
+    /**
+     * @return the line of the rejected row in the imported file, the header being line 1 of a CSV file
+     */
+    public long getLine() {
+        return line;
+    }
+
+    public void setLine(long line) {
+        this.line = line;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
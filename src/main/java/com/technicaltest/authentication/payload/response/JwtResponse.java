@@ -6,6 +6,7 @@ import java.util.List;
 public class JwtResponse implements Serializable {
     private String token;
     private String type = "Bearer";
+    private String refreshToken;
     private Long id;
     private String username;
     private String email;
@@ -22,6 +23,11 @@ public class JwtResponse implements Serializable {
         this.roles = roles;
     }
 
+    public JwtResponse(String accessToken, String refreshToken, Long id, String username, String email, List<String> roles) {
+        this(accessToken, id, username, email, roles);
+        this.refreshToken = refreshToken;
+    }
+
     public String getAccessToken() {
         return token;
     }
@@ -30,6 +36,14 @@ public class JwtResponse implements Serializable {
         this.token = accessToken;
     }
 
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
     public String getTokenType() {
         return type;
     }
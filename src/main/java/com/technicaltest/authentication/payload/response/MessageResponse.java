@@ -14,6 +14,15 @@ public class MessageResponse implements Serializable {
     public static final String CAN_NOT_REVOKE_OWN_AUTHORITY = "You can not revoke your own grants.";
     public static final String USER_DELETION_SUCCESS = "User deleted successfully.";
     public static final String PASSWORD_CHANGE_SUCCESS = "Password changed successfully.";
+    public static final String TOO_MANY_REQUESTS = "Error: Too many requests, please retry later.";
+    public static final String TOO_MANY_SIGN_IN_ATTEMPTS = "Error: Too many sign in attempts, please retry later.";
+    public static final String INVALID_REFRESH_TOKEN = "Error: The refresh token is not valid.";
+    public static final String SIGN_OUT_SUCCESS = "Signed out successfully.";
+    public static final String INVALID_CURSOR = "Error: The cursor does not match this listing.";
+    public static final String UNSUPPORTED_IMPORT_FORMAT = "Error: Users are imported from text/csv or application/x-ndjson.";
+    public static final String INVALID_CSV_HEADER = "Error: The CSV header must name the username, email and password columns.";
+    public static final String MALFORMED_ROW = "Error: The row can not be parsed.";
+    public static final String BULK_CHUNK_FAILED = "Error: The changes could not be saved, please retry this item.";
 
     private String message;
 
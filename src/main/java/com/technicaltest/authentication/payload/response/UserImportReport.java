@@ -0,0 +1,76 @@
+package com.technicaltest.authentication.payload.response;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class UserImportReport implements Serializable {
+    private long rows;
+    private long imported;
+    private long rejected;
+    private List<ImportRejection> rejections;
+    private long durationMs;
+    private long rowsPerSecond;
+
+    public UserImportReport() {
+    }
+
+    public UserImportReport(long rows, long imported, long rejected, List<ImportRejection> rejections, long durationMs) {
+        this.rows = rows;
+        this.imported = imported;
+        this.rejected = rejected;
+        this.rejections = rejections;
+        this.durationMs = durationMs;
+        this.rowsPerSecond = durationMs == 0 ? rows : rows * 1000 / durationMs;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public void setRows(long rows) {
+        this.rows = rows;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public void setRejected(long rejected) {
+        this.rejected = rejected;
+    }
+
+    /**
+     * @return the first rejections, at most authorization.app.import.maxReportedRejections of them
+     */
+    public List<ImportRejection> getRejections() {
+        return rejections;
+    }
+
+    public void setRejections(List<ImportRejection> rejections) {
+        this.rejections = rejections;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public long getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(long rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+}
@@ -0,0 +1,36 @@
+package com.technicaltest.authentication.payload.response;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class UserPage implements Serializable {
+    private List<UserSummary> users;
+    private String nextCursor;
+
+    public UserPage() {
+    }
+
+    public UserPage(List<UserSummary> users, String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<UserSummary> getUsers() {
+        return users;
+    }
+
+    public void setUsers(List<UserSummary> users) {
+        this.users = users;
+    }
+
+    /**
+     * @return the cursor of the next page, null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,56 @@
+package com.technicaltest.authentication.payload.response;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Listing projection of a user: read straight from the users table with its role names, no entity involved.
+ */
+public class UserSummary implements Serializable {
+    private Long id;
+    private String username;
+    private String email;
+    private List<String> roles;
+
+    public UserSummary() {
+    }
+
+    public UserSummary(Long id, String username, String email, List<String> roles) {
+        this.id = id;
+        this.username = username;
+        this.email = email;
+        this.roles = roles;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public void setEmail(String email) {
+        this.email = email;
+    }
+
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public void setRoles(List<String> roles) {
+        this.roles = roles;
+    }
+}
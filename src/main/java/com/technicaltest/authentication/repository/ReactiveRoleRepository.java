@@ -0,0 +1,33 @@
+package com.technicaltest.authentication.repository;
+
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * R2DBC counterpart of {@link RoleRepository} for the reactive profile.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveRoleRepository {
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveRoleRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<Role> findByName(ERole name) {
+        return databaseClient.sql("SELECT id, name FROM roles WHERE name = :name")
+                .bind("name", name.name())
+                .map(row -> {
+                    Role role = new Role(ERole.valueOf(row.get("name", String.class)));
+                    role.setId(row.get("id", Integer.class));
+                    return role;
+                })
+                .one();
+    }
+}
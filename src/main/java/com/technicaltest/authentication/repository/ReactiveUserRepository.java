@@ -0,0 +1,180 @@
+package com.technicaltest.authentication.repository;
+
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import com.technicaltest.authentication.models.User;
+import io.r2dbc.spi.Row;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * R2DBC counterpart of {@link UserRepository} for the reactive profile, on the same users and user_roles tables.
+ * The users are read with their roles in a single joined query.
+ */
+@Repository
+@Profile("reactive")
+public class ReactiveUserRepository {
+
+    private static final String SELECT_USERS_WITH_ROLES = "SELECT u.id, u.username, u.email, u.password, r.id AS role_id, r.name AS role_name "
+            + "FROM users u LEFT JOIN user_roles ur ON ur.user_id = u.id LEFT JOIN roles r ON r.id = ur.role_id ";
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveUserRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Mono<User> findByUsername(String username) {
+        return databaseClient.sql(SELECT_USERS_WITH_ROLES + "WHERE u.username = :username")
+                .bind("username", username)
+                .map(ReactiveUserRepository::toRow)
+                .all()
+                .collectList()
+                .flatMap(rows -> rows.isEmpty() ? Mono.empty() : Mono.just(toUser(rows)));
+    }
+
+    public Mono<User> findById(Long id) {
+        return databaseClient.sql(SELECT_USERS_WITH_ROLES + "WHERE u.id = :id")
+                .bind("id", id)
+                .map(ReactiveUserRepository::toRow)
+                .all()
+                .collectList()
+                .flatMap(rows -> rows.isEmpty() ? Mono.empty() : Mono.just(toUser(rows)));
+    }
+
+    public Flux<User> findAll() {
+        return databaseClient.sql(SELECT_USERS_WITH_ROLES + "ORDER BY u.id")
+                .map(ReactiveUserRepository::toRow)
+                .all()
+                .bufferUntilChanged(UserRow::id)
+                .map(ReactiveUserRepository::toUser);
+    }
+
+    public Mono<Boolean> existsByUsername(String username) {
+        return exists("SELECT EXISTS(SELECT 1 FROM users WHERE username = :value)", username);
+    }
+
+    public Mono<Boolean> existsByEmail(String email) {
+        return exists("SELECT EXISTS(SELECT 1 FROM users WHERE email = :value)", email);
+    }
+
+    public Mono<Boolean> existsAny() {
+        return databaseClient.sql("SELECT EXISTS(SELECT 1 FROM users)")
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    /**
+     * Same lock as {@link UserRepository#lockFirstUser()}, to be run in a transaction.
+     */
+    public Mono<Void> lockFirstUser() {
+        return databaseClient.sql("SELECT pg_advisory_xact_lock(" + UserRepository.FIRST_USER_LOCK_KEY + ")")
+                .then();
+    }
+
+    /**
+     * Inserts the user and its roles, to be run in a transaction.
+     *
+     * @return the user with its generated id
+     */
+    public Mono<User> insert(User user) {
+        return databaseClient.sql("INSERT INTO users(username, email, password) VALUES (:username, :email, :password)")
+                .bind("username", user.getUsername())
+                .bind("email", user.getEmail())
+                .bind("password", user.getPassword())
+                .filter(statement -> statement.returnGeneratedValues("id"))
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .flatMap(id -> {
+                    user.setId(id);
+                    return insertRoles(id, user.getRoles()).thenReturn(user);
+                });
+    }
+
+    /**
+     * Replaces the roles of the user, to be run in a transaction.
+     */
+    public Mono<Void> updateRoles(Long userId, Set<Role> roles) {
+        return databaseClient.sql("DELETE FROM user_roles WHERE user_id = :userId")
+                .bind("userId", userId)
+                .then()
+                .then(insertRoles(userId, roles));
+    }
+
+    public Mono<Void> updatePassword(Long userId, String password) {
+        return databaseClient.sql("UPDATE users SET password = :password WHERE id = :id")
+                .bind("password", password)
+                .bind("id", userId)
+                .then();
+    }
+
+    /**
+     * Revokes every refresh token of the user, issued by the servlet nodes on the same schema, to be run in the
+     * transaction of the password change.
+     */
+    public Mono<Void> revokeRefreshTokens(Long userId) {
+        return databaseClient.sql("DELETE FROM refresh_tokens WHERE user_id = :userId")
+                .bind("userId", userId)
+                .then();
+    }
+
+    /**
+     * Deletes the user and its roles, to be run in a transaction.
+     */
+    public Mono<Void> deleteById(Long userId) {
+        return databaseClient.sql("DELETE FROM user_roles WHERE user_id = :userId")
+                .bind("userId", userId)
+                .then()
+                .then(databaseClient.sql("DELETE FROM users WHERE id = :userId")
+                        .bind("userId", userId)
+                        .then());
+    }
+
+    private Mono<Void> insertRoles(Long userId, Set<Role> roles) {
+        return Flux.fromIterable(roles)
+                .concatMap(role -> databaseClient.sql("INSERT INTO user_roles(user_id, role_id) VALUES (:userId, :roleId)")
+                        .bind("userId", userId)
+                        .bind("roleId", role.getId())
+                        .then())
+                .then();
+    }
+
+    private Mono<Boolean> exists(String sql, String value) {
+        return databaseClient.sql(sql)
+                .bind("value", value)
+                .map(row -> row.get(0, Boolean.class))
+                .one();
+    }
+
+    private static UserRow toRow(Row row) {
+        return new UserRow(row.get("id", Long.class),
+                row.get("username", String.class),
+                row.get("email", String.class),
+                row.get("password", String.class),
+                row.get("role_id", Integer.class),
+                row.get("role_name", String.class));
+    }
+
+    private static User toUser(List<UserRow> rows) {
+        UserRow first = rows.get(0);
+        User user = new User(first.username(), first.email(), first.password());
+        user.setId(first.id());
+        rows.stream()
+                .filter(row -> row.roleId() != null)
+                .forEach(row -> {
+                    Role role = new Role(ERole.valueOf(row.roleName()));
+                    role.setId(row.roleId());
+                    user.getRoles().add(role);
+                });
+        return user;
+    }
+
+    private record UserRow(Long id, String username, String email, String password, Integer roleId, String roleName) {
+    }
+}
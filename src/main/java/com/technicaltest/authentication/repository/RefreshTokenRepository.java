@@ -0,0 +1,120 @@
+package com.technicaltest.authentication.repository;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Refresh tokens, of which only the SHA-256 digest is stored, as the primary key. The tokens issued from the same sign
+ * in form a family: a refresh marks the presented token used and inserts its successor in the same statement, which
+ * also returns the owner with its roles. Used tokens are kept until they expire, so that their reuse is detected, and
+ * purged by the next sign in of their user or the next refresh in their family, so that a user who only ever refreshes
+ * does not accumulate rows. The rows of a user are removed with it.
+ */
+@Repository
+@Profile("!reactive")
+public class RefreshTokenRepository {
+
+    // the expired tokens of the user are purged on each sign in
+    private static final String INSERT_FAMILY = "WITH purged AS ("
+            + "DELETE FROM refresh_tokens WHERE user_id = :userId AND expires_at <= :now) "
+            + "INSERT INTO refresh_tokens (token_hash, family_id, user_id, expires_at) "
+            + "VALUES (:tokenHash, nextval('refresh_token_families_seq'), :userId, :expiresAt)";
+
+    // a concurrent refresh with the same token waits for the row lock, then finds it used; the expired tokens of the
+    // family are purged on the way, never the consumed one which has not expired
+    private static final String ROTATE = "WITH consumed AS ("
+            + "UPDATE refresh_tokens SET used = true WHERE token_hash = :tokenHash AND NOT used AND expires_at > :now "
+            + "RETURNING family_id, user_id), "
+            + "issued AS (INSERT INTO refresh_tokens (token_hash, family_id, user_id, expires_at) "
+            + "SELECT :nextTokenHash, family_id, user_id, :expiresAt FROM consumed), "
+            + "purged AS (DELETE FROM refresh_tokens WHERE family_id = (SELECT family_id FROM consumed) AND expires_at <= :now) "
+            + "SELECT u.id, u.username, u.email, "
+            + "ARRAY(SELECT r.name FROM user_roles ur JOIN roles r ON r.id = ur.role_id WHERE ur.user_id = u.id ORDER BY r.id) AS roles "
+            + "FROM consumed JOIN users u ON u.id = consumed.user_id";
+
+    private static final String REVOKE_REUSED_FAMILY = "DELETE FROM refresh_tokens WHERE family_id = "
+            + "(SELECT family_id FROM refresh_tokens WHERE token_hash = :tokenHash AND used)";
+
+    private static final String REVOKE_FAMILY = "DELETE FROM refresh_tokens WHERE family_id = "
+            + "(SELECT family_id FROM refresh_tokens WHERE token_hash = :tokenHash)";
+
+    private static final String REVOKE_USERS = "DELETE FROM refresh_tokens "
+            + "WHERE user_id IN (SELECT id FROM users WHERE username = ANY (:usernames))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public RefreshTokenRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Starts a new family with its first token.
+     */
+    public void insertFamily(byte[] tokenHash, long userId, Instant now, Instant expiresAt) {
+        jdbcTemplate.update(INSERT_FAMILY, new MapSqlParameterSource()
+                .addValue("tokenHash", tokenHash)
+                .addValue("userId", userId)
+                .addValue("now", toTimestamp(now))
+                .addValue("expiresAt", toTimestamp(expiresAt)));
+    }
+
+    /**
+     * Replaces a token which is neither used nor expired by its successor, in the same family, and purges the expired
+     * tokens of the family.
+     *
+     * @return the owner of the token, empty when it was not replaced
+     */
+    public Optional<Owner> rotate(byte[] tokenHash, byte[] nextTokenHash, Instant now, Instant expiresAt) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("tokenHash", tokenHash)
+                .addValue("nextTokenHash", nextTokenHash)
+                .addValue("now", toTimestamp(now))
+                .addValue("expiresAt", toTimestamp(expiresAt));
+        List<Owner> owners = jdbcTemplate.query(ROTATE, parameters, (resultSet, rowNum) -> new Owner(
+                resultSet.getLong("id"),
+                resultSet.getString("username"),
+                resultSet.getString("email"),
+                Arrays.asList((String[]) resultSet.getArray("roles").getArray())));
+        return owners.stream().findFirst();
+    }
+
+    /**
+     * @return the number of tokens revoked, 0 unless the token was already used
+     */
+    public int revokeReusedFamily(byte[] tokenHash) {
+        return jdbcTemplate.update(REVOKE_REUSED_FAMILY, new MapSqlParameterSource("tokenHash", tokenHash));
+    }
+
+    public int revokeFamily(byte[] tokenHash) {
+        return jdbcTemplate.update(REVOKE_FAMILY, new MapSqlParameterSource("tokenHash", tokenHash));
+    }
+
+    /**
+     * Revokes every family of the users, in the current transaction if any.
+     */
+    public int revokeAll(Collection<String> usernames) {
+        return jdbcTemplate.update(REVOKE_USERS,
+                new MapSqlParameterSource("usernames", usernames.toArray(String[]::new)));
+    }
+
+    private static OffsetDateTime toTimestamp(Instant instant) {
+        return instant.atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * @param roles the role names
+     */
+    public record Owner(long id, String username, String email, List<String> roles) {
+    }
+}
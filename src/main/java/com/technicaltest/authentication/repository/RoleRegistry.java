@@ -0,0 +1,76 @@
+package com.technicaltest.authentication.repository;
+
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * The roles are a small fixed set seeded by initData.sql: they are read once at startup and handed out from memory.
+ * The handed out roles are detached entities carrying their id, enough to be attached to a user without a query.
+ * {@link #refresh()} reloads them after a change of the roles table, a missing role triggers a reload as well.
+ */
+@Component
+@Profile("!reactive")
+public class RoleRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoleRegistry.class);
+
+    private final RoleRepository roleRepository;
+
+    private volatile Map<ERole, Role> roles = Collections.emptyMap();
+
+    public RoleRegistry(RoleRepository roleRepository) {
+        this.roleRepository = roleRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            refresh();
+        } catch (DataAccessException dataAccessException) {
+            // loaded on first use instead, e.g. when the schema is created after the startup
+            logger.warn("Roles could not be loaded at startup: {}", dataAccessException.getMessage());
+        }
+    }
+
+    public synchronized void refresh() {
+        Map<ERole, Role> loadedRoles = new EnumMap<>(ERole.class);
+        for (Role role : roleRepository.findAll()) {
+            loadedRoles.put(role.getName(), role);
+        }
+        roles = Collections.unmodifiableMap(loadedRoles);
+        logger.debug("Roles loaded: {}", loadedRoles.keySet());
+    }
+
+    public Optional<Role> findByName(ERole name) {
+        Role role = roles.get(name);
+        if (role == null) {
+            refresh();
+            role = roles.get(name);
+        }
+        return Optional.ofNullable(role);
+    }
+
+    /**
+     * @return the role, or empty for a name that is not an {@link ERole}
+     */
+    public Optional<Role> findByName(String name) {
+        for (ERole role : ERole.values()) {
+            if (role.name().equals(name)) {
+                return findByName(role);
+            }
+        }
+        return Optional.empty();
+    }
+}
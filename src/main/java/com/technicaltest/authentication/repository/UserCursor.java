@@ -0,0 +1,31 @@
+package com.technicaltest.authentication.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Keyset position in the user listing: the sort key and id of the last user of a page. It is handed to the client as
+ * an opaque token and only valid for the sort it was issued with.
+ */
+public record UserCursor(String sort, String order, long id, String value) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String cursor = sort + SEPARATOR + order + SEPARATOR + id + SEPARATOR + value;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException when the token was not produced by {@link #encode()}
+     */
+    public static UserCursor decode(String token) {
+        String cursor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        // the value comes last, it may contain the separator
+        String[] parts = cursor.split("\\" + SEPARATOR, 4);
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        return new UserCursor(parts[0], parts[1], Long.parseLong(parts[2]), parts[3]);
+    }
+}
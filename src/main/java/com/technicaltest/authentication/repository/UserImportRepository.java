@@ -0,0 +1,191 @@
+package com.technicaltest.authentication.repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Write side of the user import. A batch of rows is copied into a temporary staging table with COPY, the rows whose
+ * username or email is already taken, by a user or by an earlier row, are removed from it, and the remaining ones are
+ * inserted into users and user_roles by a single statement.
+ */
+@Repository
+@Profile("!reactive")
+public class UserImportRepository {
+
+    public static final String DUPLICATE_USERNAME = "username";
+
+    public static final String DUPLICATE_EMAIL = "email";
+
+    private static final String CREATE_STAGING_TABLE = "CREATE TEMPORARY TABLE user_import "
+            + "(line bigint PRIMARY KEY, username varchar(20), email varchar(50), password varchar(120)) ON COMMIT DROP";
+
+    private static final String COPY_INTO_STAGING_TABLE = "COPY user_import (line, username, email, password) FROM STDIN (FORMAT csv)";
+
+    private static final String REJECT_DUPLICATE_USERNAMES = "DELETE FROM user_import s "
+            + "WHERE EXISTS (SELECT 1 FROM users u WHERE u.username = s.username) "
+            + "OR EXISTS (SELECT 1 FROM user_import p WHERE p.username = s.username AND p.line < s.line) "
+            + "RETURNING s.line";
+
+    private static final String REJECT_DUPLICATE_EMAILS = "DELETE FROM user_import s "
+            + "WHERE EXISTS (SELECT 1 FROM users u WHERE u.email = s.email) "
+            + "OR EXISTS (SELECT 1 FROM user_import p WHERE p.email = s.email AND p.line < s.line) "
+            + "RETURNING s.line";
+
+    // a concurrent signup can still take a staged username or email: the conflict skips the row, reported as a duplicate
+    // of the column that was taken
+    private static final String INSERT_USERS = "WITH inserted AS ("
+            + "INSERT INTO users (username, email, password) SELECT username, email, password FROM user_import ORDER BY line "
+            + "ON CONFLICT DO NOTHING RETURNING id, username), "
+            + "granted AS (INSERT INTO user_roles (user_id, role_id) SELECT id, ? FROM inserted) "
+            + "SELECT s.line, s.username, i.id IS NOT NULL AS imported FROM user_import s LEFT JOIN inserted i ON i.username = s.username";
+
+    // a statement of its own, so that it sees the signups committed while the insert waited for them
+    private static final String SELECT_SKIPPED = "SELECT s.line, EXISTS (SELECT 1 FROM users u WHERE u.username = s.username) "
+            + "AS username_taken FROM user_import s WHERE s.line = ANY (?)";
+
+    private static final String SELECT_TAKEN = "SELECT username, email FROM users "
+            + "WHERE username = ANY (:usernames) OR email = ANY (:emails)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public UserImportRepository(DataSource dataSource) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    /**
+     * Checked before the passwords of a batch are hashed, so that the rows of an import run again are not hashed
+     * for nothing.
+     *
+     * @return the usernames and emails already taken among the given ones
+     */
+    public Taken findTaken(Collection<String> usernames, Collection<String> emails) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("usernames", usernames.toArray(String[]::new))
+                .addValue("emails", emails.toArray(String[]::new));
+        Taken taken = new Taken(new HashSet<>(), new HashSet<>());
+        jdbcTemplate.query(SELECT_TAKEN, parameters, (RowCallbackHandler) resultSet -> {
+            taken.usernames().add(resultSet.getString("username"));
+            taken.emails().add(resultSet.getString("email"));
+        });
+        return taken;
+    }
+
+    /**
+     * @param rows   rows with their password already hashed
+     * @param roleId the role granted to the imported users
+     */
+    @Transactional
+    public Batch importBatch(List<Row> rows, int roleId) {
+        return jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Batch>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING_TABLE);
+            }
+            copy(connection.unwrap(PGConnection.class), rows);
+
+            Map<Long, String> rejected = new LinkedHashMap<>();
+            for (Long line : deletedLines(connection, REJECT_DUPLICATE_USERNAMES)) {
+                rejected.put(line, DUPLICATE_USERNAME);
+            }
+            for (Long line : deletedLines(connection, REJECT_DUPLICATE_EMAILS)) {
+                rejected.put(line, DUPLICATE_EMAIL);
+            }
+
+            List<String> imported = new ArrayList<>(rows.size());
+            List<Long> skipped = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_USERS)) {
+                statement.setInt(1, roleId);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        if (resultSet.getBoolean("imported")) {
+                            imported.add(resultSet.getString("username"));
+                        } else {
+                            skipped.add(resultSet.getLong("line"));
+                        }
+                    }
+                }
+            }
+            if (!skipped.isEmpty()) {
+                try (PreparedStatement statement = connection.prepareStatement(SELECT_SKIPPED)) {
+                    statement.setArray(1, connection.createArrayOf("bigint", skipped.toArray()));
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            rejected.put(resultSet.getLong("line"),
+                                    resultSet.getBoolean("username_taken") ? DUPLICATE_USERNAME : DUPLICATE_EMAIL);
+                        }
+                    }
+                }
+            }
+            return new Batch(imported, rejected);
+        });
+    }
+
+    private static void copy(PGConnection connection, List<Row> rows) throws SQLException {
+        CopyIn copyIn = connection.getCopyAPI().copyIn(COPY_INTO_STAGING_TABLE);
+        try {
+            for (Row row : rows) {
+                byte[] csvLine = (row.line() + "," + quote(row.username()) + "," + quote(row.email()) + ","
+                        + quote(row.password()) + "\n").getBytes(StandardCharsets.UTF_8);
+                copyIn.writeToCopy(csvLine, 0, csvLine.length);
+            }
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static List<Long> deletedLines(Connection connection, String sql) throws SQLException {
+        List<Long> lines = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(sql)) {
+            while (resultSet.next()) {
+                lines.add(resultSet.getLong(1));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * @param line     the line of the row in the imported file
+     * @param password the hashed password
+     */
+    public record Row(long line, String username, String email, String password) {
+    }
+
+    public record Taken(Set<String> usernames, Set<String> emails) {
+    }
+
+    /**
+     * @param imported the usernames of the imported users
+     * @param rejected the lines of the rows rejected as duplicates, with the column that was already taken
+     */
+    public record Batch(List<String> imported, Map<Long, String> rejected) {
+    }
+}
@@ -0,0 +1,175 @@
+package com.technicaltest.authentication.repository;
+
+import com.technicaltest.authentication.config.StreamingDataSource;
+import com.technicaltest.authentication.payload.response.UserSummary;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Array;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Read side of the user listing. Users are read as {@link UserSummary} projections with their role names aggregated
+ * in the same statement, and paged by keyset on (sort column, id) so a page costs the same at any depth. The streams
+ * and the CSV copy, which hold their connection as long as they are written, run on the {@link StreamingDataSource}.
+ */
+@Repository
+@Profile("!reactive")
+public class UserListingRepository {
+
+    private static final Map<String, String> SORT_COLUMNS = Map.of(
+            "id", "u.id",
+            "username", "u.username",
+            "email", "u.email");
+
+    private static final String SELECT_USER_SUMMARIES = "SELECT u.id, u.username, u.email, "
+            + "ARRAY(SELECT r.name FROM user_roles ur JOIN roles r ON r.id = ur.role_id WHERE ur.user_id = u.id ORDER BY r.name) AS roles "
+            + "FROM users u WHERE 1 = 1";
+
+    private static final RowMapper<UserSummary> USER_SUMMARY_MAPPER = (resultSet, rowNum) -> {
+        Array roles = resultSet.getArray("roles");
+        return new UserSummary(resultSet.getLong("id"), resultSet.getString("username"), resultSet.getString("email"),
+                List.of((String[]) roles.getArray()));
+    };
+
+    // COPY takes no parameter, the id is formatted in
+    private static final String COPY_USERS_AFTER_ID = "COPY (SELECT u.id, u.username, u.email, "
+            + "array_to_string(ARRAY(SELECT r.name FROM user_roles ur JOIN roles r ON r.id = ur.role_id WHERE ur.user_id = u.id ORDER BY r.name), ' ') AS roles "
+            + "FROM users u WHERE u.id > %d ORDER BY u.id) TO STDOUT (FORMAT csv, HEADER)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final NamedParameterJdbcTemplate streamingJdbcTemplate;
+
+    private final TransactionTemplate streamingTransactionTemplate;
+
+    public UserListingRepository(DataSource dataSource, StreamingDataSource streamingDataSource,
+                                 @Value("${authorization.app.userListing.fetchSize:500}") int fetchSize) {
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        this.streamingJdbcTemplate = new NamedParameterJdbcTemplate(streamingDataSource.get());
+        this.streamingJdbcTemplate.getJdbcTemplate().setFetchSize(fetchSize);
+        this.streamingTransactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(streamingDataSource.get()));
+        this.streamingTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * @param filter the filters and sort of the listing
+     * @param after  the last user of the previous page, null for the first page
+     * @param limit  the maximum number of users returned
+     */
+    public List<UserSummary> findPage(Filter filter, UserCursor after, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(SELECT_USER_SUMMARIES);
+        appendFilters(filter, sql, parameters);
+        appendAfter(filter, after, sql, parameters);
+        appendOrderBy(filter, sql);
+        sql.append(" LIMIT :limit");
+        parameters.addValue("limit", limit);
+
+        return jdbcTemplate.query(sql.toString(), parameters, USER_SUMMARY_MAPPER);
+    }
+
+    /**
+     * Hands every matching user after the given one, or every one when null, to the consumer while the rows come off a
+     * server side cursor, fetchSize rows at a time. The PostgreSQL driver only uses a cursor outside of auto-commit,
+     * hence the read only transaction.
+     */
+    public void stream(Filter filter, UserCursor after, Consumer<UserSummary> consumer) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        StringBuilder sql = new StringBuilder(SELECT_USER_SUMMARIES);
+        appendFilters(filter, sql, parameters);
+        appendAfter(filter, after, sql, parameters);
+        appendOrderBy(filter, sql);
+
+        RowCallbackHandler handler = resultSet -> consumer.accept(USER_SUMMARY_MAPPER.mapRow(resultSet, resultSet.getRow()));
+        streamingTransactionTemplate.executeWithoutResult(status -> streamingJdbcTemplate.query(sql.toString(), parameters, handler));
+    }
+
+    /**
+     * Writes the users of id greater than afterId as CSV, roles separated by spaces, straight from COPY TO STDOUT: no
+     * row is held by the driver nor mapped to an object.
+     *
+     * @return the number of users written
+     * @throws UncheckedIOException when the output stream fails
+     */
+    public long copyCsv(long afterId, OutputStream outputStream) {
+        return streamingJdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                        .copyOut(String.format(COPY_USERS_AFTER_ID, afterId), outputStream);
+            } catch (IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+        });
+    }
+
+    private static void appendFilters(Filter filter, StringBuilder sql, MapSqlParameterSource parameters) {
+        if (filter.usernamePrefix() != null) {
+            sql.append(" AND u.username LIKE :usernamePrefix");
+            parameters.addValue("usernamePrefix", likePrefix(filter.usernamePrefix()));
+        }
+        if (filter.emailPrefix() != null) {
+            sql.append(" AND u.email LIKE :emailPrefix");
+            parameters.addValue("emailPrefix", likePrefix(filter.emailPrefix()));
+        }
+        if (filter.role() != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM user_roles ur JOIN roles r ON r.id = ur.role_id WHERE ur.user_id = u.id AND r.name = :role)");
+            parameters.addValue("role", filter.role());
+        }
+    }
+
+    private static void appendAfter(Filter filter, UserCursor after, StringBuilder sql, MapSqlParameterSource parameters) {
+        if (after == null) {
+            return;
+        }
+        String column = SORT_COLUMNS.get(filter.sort());
+        String comparison = filter.descending() ? "<" : ">";
+        if (column.equals("u.id")) {
+            sql.append(" AND u.id ").append(comparison).append(" :afterId");
+        } else {
+            sql.append(" AND (").append(column).append(", u.id) ").append(comparison).append(" (:afterValue, :afterId)");
+            parameters.addValue("afterValue", after.value());
+        }
+        parameters.addValue("afterId", after.id());
+    }
+
+    private static void appendOrderBy(Filter filter, StringBuilder sql) {
+        String direction = filter.descending() ? " DESC" : " ASC";
+        String column = SORT_COLUMNS.get(filter.sort());
+        sql.append(" ORDER BY ").append(column).append(direction);
+        if (!column.equals("u.id")) {
+            sql.append(", u.id").append(direction);
+        }
+    }
+
+    private static String likePrefix(String prefix) {
+        return prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    /**
+     * @param sort one of id, username or email
+     */
+    public record Filter(String usernamePrefix, String emailPrefix, String role, String sort, boolean descending) {
+
+        public Filter {
+            if (!SORT_COLUMNS.containsKey(sort)) {
+                throw new IllegalArgumentException("Unknown sort " + sort);
+            }
+        }
+    }
+}
@@ -1,16 +1,72 @@
 package com.technicaltest.authentication.repository;
 
 import com.technicaltest.authentication.models.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+
+    /**
+     * Key of the advisory lock serializing the signups made while there is no user yet.
+     */
+    long FIRST_USER_LOCK_KEY = 4_174_532_851L;
+
     Optional<User> findByUsername(String username);
 
+    /**
+     * The user with its roles in a single query, the roles being lazily loaded otherwise.
+     */
+    @EntityGraph(User.ROLES_GRAPH)
+    Optional<User> findWithRolesByUsername(String username);
+
+    /**
+     * All the users with their roles in a single query, instead of one roles query per user.
+     */
+    @Query("select distinct u from User u left join fetch u.roles order by u.id")
+    List<User> findAllWithRoles();
+
+    List<User> findAllByUsernameIn(Collection<String> usernames);
+
+    /**
+     * The users with their roles in a single query, instead of one roles query per user.
+     */
+    @Query("select distinct u from User u left join fetch u.roles where u.username in :usernames")
+    List<User> findAllWithRolesByUsernameIn(@Param("usernames") Collection<String> usernames);
+
     Boolean existsByUsername(String username);
 
     Boolean existsByEmail(String email);
+
+    /**
+     * Stops at the first row, unlike counting or loading the users.
+     */
+    @Query(value = "SELECT EXISTS(SELECT 1 FROM users)", nativeQuery = true)
+    boolean existsAny();
+
+    /**
+     * Waits for the first user lock, held until the end of the current transaction.
+     */
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(" + FIRST_USER_LOCK_KEY + ")) AS first_user_lock", nativeQuery = true)
+    int lockFirstUser();
+
+    /**
+     * Replaces the password hash only if it is still the expected one, so a concurrent password change wins.
+     *
+     * @return the number of updated rows
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update User u set u.password = :newPassword where u.username = :username and u.password = :oldPassword")
+    int updatePassword(@Param("username") String username, @Param("oldPassword") String oldPassword,
+                       @Param("newPassword") String newPassword);
 }
@@ -0,0 +1,59 @@
+package com.technicaltest.authentication.security;
+
+import com.technicaltest.authentication.security.jwt.JwtUtils;
+import com.technicaltest.authentication.security.jwt.ReactiveAuthEntryPointJwt;
+import com.technicaltest.authentication.security.jwt.ReactiveAuthTokenFilter;
+import com.technicaltest.authentication.security.services.ReactiveUserDetailsServiceImpl;
+import com.technicaltest.authentication.security.services.UserRevocationRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+
+/**
+ * Reactive counterpart of {@link WebSecurityConfig}, with the same rules.
+ */
+@Configuration
+@Profile("reactive")
+@EnableWebFluxSecurity
+@EnableReactiveMethodSecurity
+public class ReactiveWebSecurityConfig {
+
+    private final ReactiveAuthEntryPointJwt unauthorizedHandler;
+
+    public ReactiveWebSecurityConfig(ReactiveAuthEntryPointJwt unauthorizedHandler) {
+        this.unauthorizedHandler = unauthorizedHandler;
+    }
+
+    /**
+     * The token filter is not a bean on purpose: WebFlux would also register it in front of the security chain.
+     */
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, JwtUtils jwtUtils,
+                                                         ReactiveUserDetailsServiceImpl userDetailsService,
+                                                         UserRevocationRegistry revocationRegistry,
+                                                         @Value("${authorization.app.statelessPrincipal:false}") boolean statelessPrincipal) {
+        http.cors().and().csrf().disable()
+                .httpBasic().disable()
+                .formLogin().disable()
+                .exceptionHandling().authenticationEntryPoint(unauthorizedHandler).and()
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .authorizeExchange().pathMatchers("/api/auth/**").permitAll()
+                .pathMatchers("/api/test/**").permitAll()
+                .pathMatchers("/actuator/health").permitAll()
+                .pathMatchers("/.well-known/**").permitAll()
+                .pathMatchers("/actuator/**").hasAuthority("ROLE_ADMIN")
+                .anyExchange().authenticated();
+
+        http.addFilterAt(new ReactiveAuthTokenFilter(jwtUtils, userDetailsService, revocationRegistry, statelessPrincipal),
+                SecurityWebFiltersOrder.AUTHENTICATION);
+
+        return http.build();
+    }
+}
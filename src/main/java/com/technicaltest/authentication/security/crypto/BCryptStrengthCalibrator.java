@@ -0,0 +1,56 @@
+package com.technicaltest.authentication.security.crypto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * Picks the BCrypt strength whose hashing time fits a latency budget on the current hardware. Each strength doubles
+ * the work, so a single measurement at {@link #MIN_STRENGTH} is enough to extrapolate the others.
+ */
+public final class BCryptStrengthCalibrator {
+
+    private static final Logger logger = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+    /**
+     * The default strength of {@link BCryptPasswordEncoder}, the calibration never goes below it.
+     */
+    public static final int MIN_STRENGTH = 10;
+
+    public static final int MAX_STRENGTH = 16;
+
+    private static final int SAMPLES = 3;
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    public static int calibrate(Duration budget) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+        // warm up the JIT before measuring
+        encoder.encode("calibration");
+
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLES; i++) {
+            long startedAt = System.nanoTime();
+            encoder.encode("calibration");
+            fastest = Math.min(fastest, System.nanoTime() - startedAt);
+        }
+
+        int strength = strengthFor(budget, Duration.ofNanos(fastest));
+        logger.info("BCrypt strength {} selected for a budget of {} ms ({} ms at strength {})",
+                strength, budget.toMillis(), Duration.ofNanos(fastest).toMillis(), MIN_STRENGTH);
+        return strength;
+    }
+
+    static int strengthFor(Duration budget, Duration elapsedAtMinStrength) {
+        long elapsed = Math.max(1, elapsedAtMinStrength.toNanos());
+        int strength = MIN_STRENGTH;
+        while (strength < MAX_STRENGTH && elapsed * 2 <= budget.toNanos()) {
+            elapsed *= 2;
+            strength++;
+        }
+        return strength;
+    }
+}
@@ -0,0 +1,47 @@
+package com.technicaltest.authentication.security.crypto;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of initialised JCA instances, such as a {@code Mac}, a {@code Signature} or a {@code MessageDigest},
+ * which are not thread safe and cost a provider lookup and a key setup to create. Unlike a thread local, the instances
+ * are shared by every thread, so that they are still reused when each request runs on a new virtual thread. An instance
+ * is taken for a single operation and given back once that operation has reset it; one that failed is not given back.
+ * A new instance is created when none is idle, and the ones given back beyond the capacity are dropped.
+ */
+public final class JcaPool<T> {
+
+    // the operations are CPU bound: more instances than this are rarely in use at once
+    private static final int DEFAULT_CAPACITY = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+    private final Supplier<T> factory;
+
+    private final ArrayBlockingQueue<T> idle;
+
+    public JcaPool(Supplier<T> factory) {
+        this(factory, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a first instance at once, so that a missing algorithm or an invalid key fails here rather than on the
+     * first request.
+     */
+    JcaPool(Supplier<T> factory, int capacity) {
+        this.factory = factory;
+        this.idle = new ArrayBlockingQueue<>(capacity);
+        idle.offer(factory.get());
+    }
+
+    public T acquire() {
+        T instance = idle.poll();
+        return instance != null ? instance : factory.get();
+    }
+
+    /**
+     * @param instance an instance of this pool, in the state it was acquired in
+     */
+    public void release(T instance) {
+        idle.offer(instance);
+    }
+}
@@ -0,0 +1,248 @@
+package com.technicaltest.authentication.security.crypto;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Dedicated pool running the CPU bound password hashing, so that a sign in burst can not take every request thread
+ * and starve the cheap endpoints. The pool is sized on the cores and admits at most {@code queueCapacity} waiting
+ * hashes on top of the running ones: beyond that callers wait up to {@code queueTimeoutMs} for a slot (0 fails fast)
+ * and are then rejected with a {@link PasswordHashingRejectedException}.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingExecutor.class);
+
+    static final String HASHING_TIMER = "password.hashing";
+    static final String WAIT_TIMER = "password.hashing.wait";
+    static final String QUEUE_GAUGE = "password.hashing.queue.depth";
+    static final String REJECTED_COUNTER = "password.hashing.rejected";
+    static final String SKIPPED_COUNTER = "password.hashing.background.skipped";
+
+    private final ThreadPoolExecutor executor;
+
+    private final Semaphore slots;
+
+    private final Semaphore batchSlots;
+
+    private final long queueTimeoutMs;
+
+    private final long retryAfterSeconds;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Timer waitTimer;
+
+    private final Counter rejectedCounter;
+
+    private final Counter skippedCounter;
+
+    public PasswordHashingExecutor(@Value("${authorization.app.passwordHashing.threads:0}") int threads,
+                                   @Value("${authorization.app.passwordHashing.queueCapacity:64}") int queueCapacity,
+                                   @Value("${authorization.app.passwordHashing.queueTimeoutMs:0}") long queueTimeoutMs,
+                                   @Value("${authorization.app.passwordHashing.retryAfterSeconds:1}") long retryAfterSeconds,
+                                   MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private int count;
+
+            @Override
+            public synchronized Thread newThread(Runnable runnable) {
+                Thread thread = new HashingThread(PasswordHashingExecutor.this, runnable, "password-hashing-" + ++count);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+        // the semaphore bounds the work admitted, the queue itself never rejects
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        this.slots = new Semaphore(poolSize + queueCapacity);
+        this.batchSlots = new Semaphore(poolSize);
+        this.queueTimeoutMs = queueTimeoutMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.meterRegistry = meterRegistry;
+        this.waitTimer = Timer.builder(WAIT_TIMER)
+                .description("Time spent waiting for a password hashing thread")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder(REJECTED_COUNTER)
+                .description("Password hashes rejected because the pool was saturated")
+                .register(meterRegistry);
+        this.skippedCounter = Counter.builder(SKIPPED_COUNTER)
+                .description("Background hashes dropped because the pool was busy")
+                .register(meterRegistry);
+        Gauge.builder(QUEUE_GAUGE, executor, pool -> pool.getQueue().size())
+                .description("Password hashes waiting for a thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the hash on the pool and waits for its result.
+     *
+     * @param operation tag of the latency timer, e.g. encode or matches
+     */
+    public <T> T execute(String operation, Supplier<T> hash) {
+        if (Thread.currentThread() instanceof HashingThread thread && thread.owner == this) {
+            // already on the pool, e.g. a background task: waiting on a second slot could deadlock
+            return hashingTimer(operation).record(hash);
+        }
+
+        acquireSlot(queueTimeoutMs);
+        return await(submitAdmitted(operation, hash));
+    }
+
+    /**
+     * Runs the hash on the pool without blocking the caller, for the event loop threads of the reactive stack. The
+     * admission never waits for a slot, whatever {@code queueTimeoutMs}.
+     */
+    public <T> CompletableFuture<T> submit(String operation, Supplier<T> hash) {
+        acquireSlot(0);
+        return submitAdmitted(operation, hash);
+    }
+
+    /**
+     * Runs a batch of hashes, e.g. for a bulk password reset, and waits for all of them. The batch never holds more
+     * slots than the pool has threads, so that the queue stays available to the sign ins while it runs.
+     */
+    public <T> List<T> executeAll(String operation, List<? extends Supplier<T>> hashes) {
+        if (Thread.currentThread() instanceof HashingThread thread && thread.owner == this) {
+            return hashes.stream().map(hash -> hashingTimer(operation).record(hash)).toList();
+        }
+
+        List<CompletableFuture<T>> futures = new ArrayList<>(hashes.size());
+        for (Supplier<T> hash : hashes) {
+            try {
+                batchSlots.acquire();
+            } catch (InterruptedException e) {
+                throw interrupted(e);
+            }
+            // the batch slot is given back by the hash once submitted, by the caller until then
+            try {
+                slots.acquire();
+                futures.add(submitAdmitted(operation, hash).whenComplete((result, failure) -> batchSlots.release()));
+            } catch (InterruptedException e) {
+                batchSlots.release();
+                throw interrupted(e);
+            } catch (RuntimeException e) {
+                batchSlots.release();
+                throw e;
+            }
+        }
+        return futures.stream().map(PasswordHashingExecutor::await).toList();
+    }
+
+    private <T> CompletableFuture<T> submitAdmitted(String operation, Supplier<T> hash) {
+        Timer hashingTimer = hashingTimer(operation);
+        long submittedAt = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    long startedAt = System.nanoTime();
+                    waitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                    T result = hash.get();
+                    hashingTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    return result;
+                } finally {
+                    slots.release();
+                }
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Runs non urgent work, such as a rehash, on the pool without waiting for it. The work is dropped rather than
+     * queued when no slot is free right away, so it never delays a sign in.
+     *
+     * @return whether the task was accepted
+     */
+    public boolean tryExecuteAsync(String operation, Runnable task) {
+        if (!slots.tryAcquire()) {
+            skippedCounter.increment();
+            return false;
+        }
+        Timer hashingTimer = hashingTimer(operation);
+        try {
+            executor.execute(() -> {
+                try {
+                    hashingTimer.record(task);
+                } catch (RuntimeException e) {
+                    logger.warn("Background password hashing task {} failed: {}", operation, e.getMessage());
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            skippedCounter.increment();
+            return false;
+        }
+        return true;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private Timer hashingTimer(String operation) {
+        return Timer.builder(HASHING_TIMER).tag("operation", operation).register(meterRegistry);
+    }
+
+    private void acquireSlot(long timeoutMs) {
+        boolean acquired;
+        try {
+            acquired = timeoutMs > 0 ? slots.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS) : slots.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejectedCounter.increment();
+            throw new PasswordHashingRejectedException(retryAfterSeconds);
+        }
+    }
+
+    private static IllegalStateException interrupted(InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return new IllegalStateException("Interrupted while waiting for a password hashing thread", e);
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hash", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static final class HashingThread extends Thread {
+
+        private final PasswordHashingExecutor owner;
+
+        private HashingThread(PasswordHashingExecutor owner, Runnable runnable, String name) {
+            super(runnable, name);
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.technicaltest.authentication.security.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries user change events between the nodes that cache principals.
+ * Implementations deliver every published event to the subscribers of every node, the publishing one included:
+ * subscribers filter their own events out through {@link UserChangeEvent#getOrigin()}.
+ */
+public interface InvalidationChannel {
+
+    void publish(UserChangeEvent event);
+
+    void subscribe(Consumer<UserChangeEvent> subscriber);
+}
@@ -0,0 +1,17 @@
+package com.technicaltest.authentication.security.invalidation;
+
+import java.util.function.Consumer;
+
+/**
+ * Single node deployments: there is no peer to notify.
+ */
+public class LocalInvalidationChannel implements InvalidationChannel {
+
+    @Override
+    public void publish(UserChangeEvent event) {
+    }
+
+    @Override
+    public void subscribe(Consumer<UserChangeEvent> subscriber) {
+    }
+}
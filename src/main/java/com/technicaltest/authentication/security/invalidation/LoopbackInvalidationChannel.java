@@ -0,0 +1,24 @@
+package com.technicaltest.authentication.security.invalidation;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In memory channel delivering events synchronously to every subscriber of the JVM.
+ * Meant for tests, where several notifiers sharing one instance play the part of several nodes.
+ */
+public class LoopbackInvalidationChannel implements InvalidationChannel {
+
+    private final List<Consumer<UserChangeEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(UserChangeEvent event) {
+        subscribers.forEach(subscriber -> subscriber.accept(event));
+    }
+
+    @Override
+    public void subscribe(Consumer<UserChangeEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+}
@@ -0,0 +1,130 @@
+package com.technicaltest.authentication.security.invalidation;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Channel built on PostgreSQL LISTEN/NOTIFY, so it needs no infrastructure besides the application database.
+ * Events are published through the pooled {@link JdbcTemplate}: when published inside a transaction they are only
+ * delivered once it commits. Listening holds one dedicated, non pooled connection polled by a daemon thread.
+ * Whenever that connection is (re)established an {@link UserChangeEvent.Type#ALL} event is delivered to the local
+ * subscribers since notifications sent meanwhile are lost.
+ */
+public class PostgresInvalidationChannel implements InvalidationChannel {
+    private static final Logger logger = LoggerFactory.getLogger(PostgresInvalidationChannel.class);
+
+    static final String CHANNEL = "user_changes";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DataSource listenerDataSource;
+
+    private final int pollTimeoutMs;
+
+    private final long reconnectDelayMs;
+
+    private final List<Consumer<UserChangeEvent>> subscribers = new CopyOnWriteArrayList<>();
+
+    private volatile boolean running;
+
+    private Thread listener;
+
+    public PostgresInvalidationChannel(JdbcTemplate jdbcTemplate, DataSource listenerDataSource, int pollTimeoutMs, long reconnectDelayMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.listenerDataSource = listenerDataSource;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    @Override
+    public void publish(UserChangeEvent event) {
+        try {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", resultSet -> null, CHANNEL, event.encode());
+        } catch (DataAccessException e) {
+            // the change itself is already saved, peers will catch up when their cache entries expire
+            logger.error("Could not publish user change {}: {}", event, e.getMessage());
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<UserChangeEvent> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "user-changes-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        running = false;
+        if (listener != null) {
+            listener.join(pollTimeoutMs + reconnectDelayMs);
+            listener = null;
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection connection = listenerDataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                deliver(UserChangeEvent.all(CHANNEL));
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(pollTimeoutMs);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            if (CHANNEL.equals(notification.getName())) {
+                                deliver(UserChangeEvent.decode(notification.getParameter()));
+                            }
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (running) {
+                    logger.error("User change listener failed, reconnecting in {} ms: {}", reconnectDelayMs, e.getMessage());
+                    sleepBeforeReconnect();
+                }
+            }
+        }
+    }
+
+    private void deliver(UserChangeEvent event) {
+        for (Consumer<UserChangeEvent> subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                logger.error("User change subscriber failed on {}: {}", event, e.getMessage());
+            }
+        }
+    }
+
+    private void sleepBeforeReconnect() {
+        try {
+            Thread.sleep(reconnectDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
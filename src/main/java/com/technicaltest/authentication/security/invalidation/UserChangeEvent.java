@@ -0,0 +1,93 @@
+package com.technicaltest.authentication.security.invalidation;
+
+import java.util.Objects;
+
+/**
+ * A change to a user that peer nodes must apply to their caches.
+ * The wire format is {@code origin;TYPE;username}, the username goes last since it is the only free text.
+ */
+public class UserChangeEvent {
+
+    public enum Type {
+        CREATED,
+        /**
+         * Several users were created at once, e.g. by an import batch: the unknown usernames are all dropped rather
+         * than sent one by one.
+         */
+        USERS_CREATED,
+        ROLES_CHANGED,
+        PASSWORD_CHANGED,
+        DELETED,
+        /**
+         * Events may have been lost (e.g. the channel reconnected), every cached user must be dropped.
+         */
+        ALL
+    }
+
+    private static final char SEPARATOR = ';';
+
+    private final String origin;
+
+    private final Type type;
+
+    private final String username;
+
+    public UserChangeEvent(String origin, Type type, String username) {
+        this.origin = origin;
+        this.type = type;
+        this.username = username;
+    }
+
+    public static UserChangeEvent all(String origin) {
+        return new UserChangeEvent(origin, Type.ALL, null);
+    }
+
+    public String getOrigin() {
+        return origin;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String encode() {
+        return origin + SEPARATOR + type.name() + SEPARATOR + (username != null ? username : "");
+    }
+
+    public static UserChangeEvent decode(String payload) {
+        int typeStart = payload.indexOf(SEPARATOR);
+        int usernameStart = payload.indexOf(SEPARATOR, typeStart + 1);
+        if (typeStart < 0 || usernameStart < 0) {
+            throw new IllegalArgumentException("Malformed user change event: " + payload);
+        }
+
+        Type type = Type.valueOf(payload.substring(typeStart + 1, usernameStart));
+        String username = payload.substring(usernameStart + 1);
+        return new UserChangeEvent(payload.substring(0, typeStart), type, username.isEmpty() ? null : username);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof UserChangeEvent that)) return false;
+
+        return origin.equals(that.origin) && type == that.type && Objects.equals(username, that.username);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = origin.hashCode();
+        result = 31 * result + type.hashCode();
+        result = 31 * result + (username != null ? username.hashCode() : 0);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
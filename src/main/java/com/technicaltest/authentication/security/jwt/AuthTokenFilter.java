@@ -1,9 +1,12 @@
 package com.technicaltest.authentication.security.jwt;
 
+import com.technicaltest.authentication.security.services.UserDetailsImpl;
 import com.technicaltest.authentication.security.services.UserDetailsServiceImpl;
+import com.technicaltest.authentication.security.services.UserRevocationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -24,6 +27,12 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
+    @Autowired
+    private UserRevocationRegistry revocationRegistry;
+
+    @Value("${authorization.app.statelessPrincipal:false}")
+    private boolean statelessPrincipal;
+
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
@@ -31,10 +40,9 @@ public class AuthTokenFilter extends OncePerRequestFilter {
             throws ServletException, IOException {
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            VerifiedJwt verifiedJwt = jwt != null ? jwtUtils.verifyJwtToken(jwt) : null;
+            if (verifiedJwt != null) {
+                UserDetails userDetails = loadUserDetails(verifiedJwt);
                 UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(userDetails, null,
                         userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -48,7 +56,25 @@ public class AuthTokenFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
-    private String parseJwt(HttpServletRequest request) {
+    /**
+     * In stateless mode the principal is rebuilt from the verified claims, unless the token is older than
+     * the configured max age or the user grants changed since it was issued: then the database is the source of truth.
+     */
+    private UserDetails loadUserDetails(VerifiedJwt verifiedJwt) {
+        String username = verifiedJwt.getSubject();
+        if (statelessPrincipal
+                && revocationRegistry.isWithinMaxAge(verifiedJwt.getIssuedAt())
+                && !revocationRegistry.isRevoked(username, verifiedJwt.getIssuedAt())) {
+            UserDetailsImpl userDetails = jwtUtils.getUserDetailsFromClaims(verifiedJwt);
+            if (userDetails != null) {
+                return userDetails;
+            }
+        }
+
+        return userDetailsService.loadUserByUsername(username);
+    }
+
+    static String parseJwt(HttpServletRequest request) {
         String headerAuth = request.getHeader("Authorization");
 
         if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
@@ -0,0 +1,58 @@
+package com.technicaltest.authentication.security.jwt;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+
+/**
+ * Token signature algorithms, named as in the JWS alg header.
+ */
+public enum JwsAlgorithm {
+    HS512("HmacSHA512", "HmacSHA512"),
+    RS256("SHA256withRSA", "RSA"),
+    // JOSE encodes the ECDSA signature as r and s concatenated, not in DER
+    ES256("SHA256withECDSAinP1363Format", "EC"),
+    EdDSA("Ed25519", "Ed25519");
+
+    private final String jcaName;
+
+    private final String keyAlgorithm;
+
+    JwsAlgorithm(String jcaName, String keyAlgorithm) {
+        this.jcaName = jcaName;
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    String getJcaName() {
+        return jcaName;
+    }
+
+    String getKeyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    boolean isAsymmetric() {
+        return this != HS512;
+    }
+
+    /**
+     * A new key pair: RSA 2048, P-256 or Ed25519.
+     */
+    KeyPair generateKeyPair() {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm);
+            switch (this) {
+                case RS256 -> generator.initialize(2048);
+                case ES256 -> generator.initialize(new ECGenParameterSpec("secp256r1"));
+                case EdDSA -> {
+                    // a single curve
+                }
+                default -> throw new IllegalStateException(this + " has no key pair");
+            }
+            return generator.generateKeyPair();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(this + " keys can not be generated", e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.technicaltest.authentication.security.jwt;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.MalformedJwtException;
+import io.jsonwebtoken.PrematureJwtException;
+import io.jsonwebtoken.SignatureException;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Verifies the compact tokens issued by {@link JwtUtils} without going through the generic jjwt parser:
+ * one split, one signature check and a streaming read of the claims the application uses.
+ * The key is found by the caller from the encoded header, which must be exactly the one written with that key, so the
+ * header is never decoded and its algorithm never trusted. Failures are reported with the jjwt exceptions so both paths
+ * are handled alike.
+ */
+final class JwsTokenVerifier {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Base64.Decoder BASE64_URL = Base64.getUrlDecoder();
+
+    private JwsTokenVerifier() {
+    }
+
+    /**
+     * @return the encoded header of the token, null when it has none
+     */
+    static String encodedHeader(String token) {
+        int headerEnd = token.indexOf('.');
+        return headerEnd > 0 ? token.substring(0, headerEnd) : null;
+    }
+
+    /**
+     * @param key the key whose encoded header starts the token
+     */
+    static VerifiedJwt verify(String token, JwtKey key, Instant now) {
+        int payloadStart = key.getEncodedHeader().length() + 1;
+        int signatureStart = token.lastIndexOf('.');
+        if (signatureStart <= payloadStart || token.indexOf('.', payloadStart) != signatureStart) {
+            throw new MalformedJwtException("JWT strings must contain exactly 2 period characters");
+        }
+
+        byte[] signature;
+        try {
+            signature = BASE64_URL.decode(token.substring(signatureStart + 1));
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Invalid JWT signature encoding", e);
+        }
+
+        byte[] signed = token.getBytes(StandardCharsets.US_ASCII);
+        if (!key.verify(signed, 0, signatureStart, signature)) {
+            throw new SignatureException("JWT signature does not match locally computed signature");
+        }
+
+        byte[] payload;
+        try {
+            payload = BASE64_URL.decode(token.substring(payloadStart, signatureStart));
+        } catch (IllegalArgumentException e) {
+            throw new MalformedJwtException("Invalid JWT payload encoding", e);
+        }
+
+        VerifiedJwt verifiedJwt = readClaims(payload, now);
+        if (verifiedJwt.getExpiration() != null && !now.isBefore(verifiedJwt.getExpiration())) {
+            throw new ExpiredJwtException(null, null, "JWT expired at " + verifiedJwt.getExpiration());
+        }
+        return verifiedJwt;
+    }
+
+    private static VerifiedJwt readClaims(byte[] payload, Instant now) {
+        String subject = null;
+        Long id = null;
+        String email = null;
+        List<String> roles = null;
+        Instant issuedAt = null;
+        Instant expiration = null;
+        Instant notBefore = null;
+
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new MalformedJwtException("JWT payload is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NULL) {
+                    continue;
+                }
+                switch (field) {
+                    case "sub" -> subject = parser.getText();
+                    case "iat" -> issuedAt = Instant.ofEpochSecond(parser.getLongValue());
+                    case "exp" -> expiration = Instant.ofEpochSecond(parser.getLongValue());
+                    case "nbf" -> notBefore = Instant.ofEpochSecond(parser.getLongValue());
+                    case JwtUtils.ID_CLAIM -> id = parser.getLongValue();
+                    case JwtUtils.EMAIL_CLAIM -> email = parser.getText();
+                    case JwtUtils.ROLES_CLAIM -> roles = readStrings(parser);
+                    default -> parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            throw new MalformedJwtException("Unable to read JWT payload", e);
+        }
+
+        if (notBefore != null && now.isBefore(notBefore)) {
+            throw new PrematureJwtException(null, null, "JWT must not be accepted before " + notBefore);
+        }
+        return new VerifiedJwt(subject, id, email, roles, issuedAt, expiration);
+    }
+
+    private static List<String> readStrings(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            throw new MalformedJwtException("JWT roles claim is not an array");
+        }
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.getText());
+        }
+        return values;
+    }
+}
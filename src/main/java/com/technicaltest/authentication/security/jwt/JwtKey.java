@@ -0,0 +1,345 @@
+package com.technicaltest.authentication.security.jwt;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.authentication.security.crypto.JcaPool;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.SignatureException;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A key signing or verifying the tokens with a single algorithm. The header of its tokens is fixed, {"alg":"..."}
+ * followed by its key id when it has one, so that the key of a token is found from the encoded header alone.
+ * The initialised JCA instances are pooled, shared by all threads. The public part of the asymmetric keys is published as a JWK. Every key is
+ * identified by the RFC 7638 thumbprint of its JWK, its default key id.
+ */
+public abstract class JwtKey {
+
+    static final ObjectMapper JSON = new ObjectMapper();
+
+    static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    // X.509 SubjectPublicKeyInfo prefix of an Ed25519 key, followed by the 32 bytes of the key
+    private static final int ED25519_SPKI_PREFIX = 12;
+
+    private final JwsAlgorithm algorithm;
+
+    private final String keyId;
+
+    private final String encodedHeader;
+
+    private final String thumbprint;
+
+    JwtKey(JwsAlgorithm algorithm, String keyId, String thumbprint) {
+        this.algorithm = algorithm;
+        this.keyId = keyId;
+        this.thumbprint = thumbprint;
+        Map<String, String> header = new LinkedHashMap<>();
+        header.put("alg", algorithm.name());
+        if (keyId != null) {
+            header.put("kid", keyId);
+        }
+        this.encodedHeader = BASE64_URL.encodeToString(toJson(header).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param keyId null for the tokens issued before the key ids, whose header only names the algorithm, the thumbprint
+     *              of the secret when blank
+     */
+    public static JwtKey hmac(SecretKey secretKey, String keyId) {
+        Map<String, Object> members = new TreeMap<>();
+        members.put("kty", "oct");
+        members.put("k", BASE64_URL.encodeToString(secretKey.getEncoded()));
+        String thumbprint = thumbprint(members);
+        return new HmacKey(secretKey, keyId != null && keyId.isBlank() ? thumbprint : keyId, thumbprint);
+    }
+
+    /**
+     * @param privateKey null for a key which only verifies
+     * @param keyId      the thumbprint of the public key when blank
+     */
+    public static JwtKey of(JwsAlgorithm algorithm, PrivateKey privateKey, PublicKey publicKey, String keyId) {
+        if (!algorithm.isAsymmetric()) {
+            throw new IllegalArgumentException(algorithm + " is not an asymmetric algorithm");
+        }
+        Map<String, Object> members = requiredMembers(algorithm, publicKey);
+        String thumbprint = thumbprint(members);
+        return new SignatureKey(algorithm, privateKey, publicKey, members,
+                keyId == null || keyId.isBlank() ? thumbprint : keyId, thumbprint);
+    }
+
+    /**
+     * A new key pair, not persisted anywhere.
+     */
+    public static JwtKey generate(JwsAlgorithm algorithm) {
+        KeyPair keyPair = algorithm.generateKeyPair();
+        return of(algorithm, keyPair.getPrivate(), keyPair.getPublic(), null);
+    }
+
+    /**
+     * @param privateKeyPem PKCS#8 PEM, null for a key which only verifies
+     * @param publicKeyPem  X.509 PEM
+     */
+    public static JwtKey fromPem(JwsAlgorithm algorithm, String privateKeyPem, String publicKeyPem, String keyId) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(algorithm.getKeyAlgorithm());
+            PrivateKey privateKey = privateKeyPem != null
+                    ? keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decodePem(privateKeyPem)))
+                    : null;
+            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(decodePem(publicKeyPem)));
+            return of(algorithm, privateKey, publicKey, keyId);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid " + algorithm + " PEM key", e);
+        }
+    }
+
+    private static byte[] decodePem(String pem) {
+        StringBuilder base64 = new StringBuilder();
+        for (String line : pem.split("\\R")) {
+            if (!line.startsWith("-----")) {
+                base64.append(line.strip());
+            }
+        }
+        return Base64.getDecoder().decode(base64.toString());
+    }
+
+    public JwsAlgorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    public String getKeyId() {
+        return keyId;
+    }
+
+    /**
+     * Same key material, whatever the key id.
+     */
+    String getThumbprint() {
+        return thumbprint;
+    }
+
+    /**
+     * Base64url encoded header of the tokens signed by this key.
+     */
+    public String getEncodedHeader() {
+        return encodedHeader;
+    }
+
+    abstract boolean canSign();
+
+    abstract byte[] sign(byte[] data, int offset, int length);
+
+    abstract boolean verify(byte[] data, int offset, int length, byte[] signature);
+
+    /**
+     * @return the public JWK, null for the secret keys which are never published
+     */
+    public abstract Map<String, Object> toPublicJwk();
+
+    /**
+     * The members of the JWK identifying the key, sorted as RFC 7638 hashes them.
+     */
+    private static Map<String, Object> requiredMembers(JwsAlgorithm algorithm, PublicKey publicKey) {
+        Map<String, Object> members = new TreeMap<>();
+        switch (algorithm) {
+            case RS256 -> {
+                RSAPublicKey rsaPublicKey = (RSAPublicKey) publicKey;
+                members.put("kty", "RSA");
+                members.put("n", BASE64_URL.encodeToString(unsigned(rsaPublicKey.getModulus(), 0)));
+                members.put("e", BASE64_URL.encodeToString(unsigned(rsaPublicKey.getPublicExponent(), 0)));
+            }
+            case ES256 -> {
+                ECPublicKey ecPublicKey = (ECPublicKey) publicKey;
+                members.put("kty", "EC");
+                members.put("crv", "P-256");
+                members.put("x", BASE64_URL.encodeToString(unsigned(ecPublicKey.getW().getAffineX(), 32)));
+                members.put("y", BASE64_URL.encodeToString(unsigned(ecPublicKey.getW().getAffineY(), 32)));
+            }
+            case EdDSA -> {
+                byte[] encoded = publicKey.getEncoded();
+                members.put("kty", "OKP");
+                members.put("crv", "Ed25519");
+                members.put("x", BASE64_URL.encodeToString(Arrays.copyOfRange(encoded, ED25519_SPKI_PREFIX, encoded.length)));
+            }
+            default -> throw new IllegalArgumentException(algorithm + " keys are not published");
+        }
+        return members;
+    }
+
+    /**
+     * Big endian bytes without the sign byte, left padded to length.
+     */
+    private static byte[] unsigned(BigInteger value, int length) {
+        byte[] bytes = value.toByteArray();
+        int start = bytes.length > 1 && bytes[0] == 0 ? 1 : 0;
+        int size = Math.max(bytes.length - start, length);
+        byte[] result = new byte[size];
+        System.arraycopy(bytes, start, result, size - (bytes.length - start), bytes.length - start);
+        return result;
+    }
+
+    static String thumbprint(Map<String, Object> requiredMembers) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(toJson(requiredMembers).getBytes(StandardCharsets.UTF_8));
+            return BASE64_URL.encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String toJson(Object value) {
+        try {
+            return JSON.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class HmacKey extends JwtKey {
+
+        private final JcaPool<Mac> macs;
+
+        HmacKey(SecretKey secretKey, String keyId, String thumbprint) {
+            super(JwsAlgorithm.HS512, keyId, thumbprint);
+            this.macs = new JcaPool<>(() -> {
+                try {
+                    Mac instance = Mac.getInstance(JwsAlgorithm.HS512.getJcaName());
+                    instance.init(secretKey);
+                    return instance;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException("HS512 is not available", e);
+                }
+            });
+        }
+
+        @Override
+        boolean canSign() {
+            return true;
+        }
+
+        @Override
+        byte[] sign(byte[] data, int offset, int length) {
+            Mac hmac = macs.acquire();
+            hmac.update(data, offset, length);
+            byte[] signature = hmac.doFinal();
+            macs.release(hmac);
+            return signature;
+        }
+
+        @Override
+        boolean verify(byte[] data, int offset, int length, byte[] signature) {
+            return MessageDigest.isEqual(sign(data, offset, length), signature);
+        }
+
+        @Override
+        public Map<String, Object> toPublicJwk() {
+            return null;
+        }
+    }
+
+    private static final class SignatureKey extends JwtKey {
+
+        private final Map<String, Object> publicJwk;
+
+        private final JcaPool<Signature> signers;
+
+        private final JcaPool<Signature> verifiers;
+
+        SignatureKey(JwsAlgorithm algorithm, PrivateKey privateKey, PublicKey publicKey, Map<String, Object> members,
+                     String keyId, String thumbprint) {
+            super(algorithm, keyId, thumbprint);
+            Map<String, Object> jwk = new LinkedHashMap<>();
+            jwk.put("kty", members.get("kty"));
+            jwk.put("use", "sig");
+            jwk.put("alg", algorithm.name());
+            jwk.put("kid", keyId);
+            members.forEach(jwk::putIfAbsent);
+            this.publicJwk = Map.copyOf(jwk);
+            this.signers = privateKey != null ? new JcaPool<>(() -> {
+                try {
+                    Signature signature = Signature.getInstance(algorithm.getJcaName());
+                    signature.initSign(privateKey);
+                    return signature;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(algorithm + " signing is not available", e);
+                }
+            }) : null;
+            this.verifiers = new JcaPool<>(() -> {
+                try {
+                    Signature signature = Signature.getInstance(algorithm.getJcaName());
+                    signature.initVerify(publicKey);
+                    return signature;
+                } catch (GeneralSecurityException e) {
+                    throw new IllegalStateException(algorithm + " verification is not available", e);
+                }
+            });
+            // fail at startup rather than on the first request when the two files of a pair do not match
+            if (signers != null) {
+                byte[] probe = keyId.getBytes(StandardCharsets.UTF_8);
+                if (!verify(probe, 0, probe.length, sign(probe, 0, probe.length))) {
+                    throw new IllegalArgumentException("The " + algorithm + " private and public keys do not match");
+                }
+            }
+        }
+
+        @Override
+        boolean canSign() {
+            return signers != null;
+        }
+
+        @Override
+        byte[] sign(byte[] data, int offset, int length) {
+            if (signers == null) {
+                throw new IllegalStateException("The key " + getKeyId() + " only verifies");
+            }
+            try {
+                Signature signer = signers.acquire();
+                signer.update(data, offset, length);
+                byte[] signature = signer.sign();
+                signers.release(signer);
+                return signature;
+            } catch (SignatureException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        boolean verify(byte[] data, int offset, int length, byte[] signature) {
+            Signature verifier = verifiers.acquire();
+            try {
+                verifier.update(data, offset, length);
+                boolean verified = verifier.verify(signature);
+                verifiers.release(verifier);
+                return verified;
+            } catch (SignatureException e) {
+                // malformed signature, the instance is dropped rather than reset
+                return false;
+            }
+        }
+
+        @Override
+        public Map<String, Object> toPublicJwk() {
+            return publicJwk;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.technicaltest.authentication.security.jwt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+
+/**
+ * Publishes the key of the key files when they change, unless {@code authorization.app.jwt.watchKeyFiles} is disabled.
+ * The directories of the files are watched, so that replacing a file or a mounted secret is noticed too. The files are
+ * read once no change happened for {@code watchQuietMs}: a pair written in two steps is not read half updated, and a
+ * pair that does not match leaves the keys unchanged until the next change. Between two changes the thread promotes the
+ * incoming key when its time has come and drops the retired keys.
+ */
+@Component
+public class JwtKeyFileWatcher {
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyFileWatcher.class);
+
+    private static final long RETIREMENT_CHECK_MS = 1000;
+
+    final JwtKeys jwtKeys;
+
+    private final boolean enabled;
+
+    private final long quietMs;
+
+    private volatile boolean running;
+
+    private WatchService watchService;
+
+    private Thread watcher;
+
+    public JwtKeyFileWatcher(JwtKeys jwtKeys,
+                             @Value("${authorization.app.jwt.watchKeyFiles:true}") boolean enabled,
+                             @Value("${authorization.app.jwt.watchQuietMs:500}") long quietMs) {
+        this.jwtKeys = jwtKeys;
+        this.enabled = enabled;
+        this.quietMs = quietMs;
+    }
+
+    @PostConstruct
+    public synchronized void start() throws IOException {
+        if (!enabled || running || jwtKeys.getKeyFiles().isEmpty()) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        for (Path directory : jwtKeys.getKeyFiles().stream().map(file -> file.toAbsolutePath().getParent()).distinct().toList()) {
+            directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        }
+        running = true;
+        watcher = new Thread(this::watch, "jwt-key-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws IOException, InterruptedException {
+        running = false;
+        if (watcher != null) {
+            watchService.close();
+            watcher.join(RETIREMENT_CHECK_MS);
+            watcher = null;
+        }
+    }
+
+    private void watch() {
+        try {
+            while (running) {
+                if (!drain(watchService.poll(RETIREMENT_CHECK_MS, TimeUnit.MILLISECONDS))) {
+                    jwtKeys.advance();
+                    continue;
+                }
+                while (drain(watchService.poll(quietMs, TimeUnit.MILLISECONDS))) {
+                    // wait for the writes to settle
+                }
+                reload();
+            }
+        } catch (ClosedWatchServiceException e) {
+            // stopped
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static boolean drain(WatchKey watchKey) {
+        if (watchKey == null) {
+            return false;
+        }
+        watchKey.pollEvents();
+        watchKey.reset();
+        return true;
+    }
+
+    private void reload() {
+        try {
+            if (jwtKeys.reload()) {
+                logger.info("Key files changed, their key is published");
+            }
+        } catch (RuntimeException e) {
+            logger.error("Key files changed but could not be loaded, the keys are unchanged: {}", e.getMessage());
+        }
+    }
+}
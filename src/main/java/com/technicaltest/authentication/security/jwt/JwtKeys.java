@@ -0,0 +1,411 @@
+package com.technicaltest.authentication.security.jwt;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.impl.TextCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * Key ring of the tokens: the active key signs, the retiring keys still verify the tokens they signed until these
+ * expire. A rotation takes two steps: the incoming key is first published, it only verifies, and starts signing
+ * {@code authorization.app.jwt.jwksMaxAgeSeconds} later, once the services caching the JWKS and the other instances
+ * watching the key files know it, or at once when {@link #promote()} is called. The active key uses {@code authorization.app.jwt.algorithm}: HS512 with {@code authorization.app.jwtSecret}
+ * or the Base64 secret of {@code secretFile}, or RS256, ES256 and EdDSA with the PEM key pair read from
+ * {@code authorization.app.jwt.privateKeyFile} and {@code publicKeyFile}. Without these files an ephemeral key is
+ * generated, its tokens are not accepted by another instance nor after a restart, and the keys can not be rotated.
+ * The HS512 key without key id derived from {@code jwtSecret} signs when no other key is configured. Otherwise it only
+ * verifies the tokens issued before, for {@code authorization.app.jwtExpirationMs} after startup: past this migration
+ * window a token signed with that secret is rejected, whatever its header.
+ * <p>
+ * The ring is immutable and replaced as a whole on every change, so the verification path reads it without any lock;
+ * only the changes are serialized. The JWKS of the public keys is written once per ring.
+ */
+@Component
+public class JwtKeys {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeys.class);
+
+    private final JwsAlgorithm algorithm;
+
+    private final Path privateKeyFile;
+
+    private final Path publicKeyFile;
+
+    private final Path secretFile;
+
+    private final Duration retirementDelay;
+
+    private final Duration promotionDelay;
+
+    private final SecretKey hmacSecret;
+
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    private volatile KeyRing keyRing;
+
+    public JwtKeys(@Value("${authorization.app.jwtSecret}") String jwtSecret,
+                   @Value("${authorization.app.jwt.algorithm:HS512}") JwsAlgorithm algorithm,
+                   @Value("${authorization.app.jwt.privateKeyFile:}") String privateKeyFile,
+                   @Value("${authorization.app.jwt.publicKeyFile:}") String publicKeyFile,
+                   @Value("${authorization.app.jwt.secretFile:}") String secretFile,
+                   @Value("${authorization.app.jwt.keyId:}") String keyId,
+                   @Value("${authorization.app.jwtExpirationMs}") long jwtExpirationMs,
+                   @Value("${authorization.app.jwt.jwksMaxAgeSeconds:3600}") long jwksMaxAgeSeconds) {
+        this.algorithm = algorithm;
+        this.privateKeyFile = privateKeyFile.isBlank() ? null : Path.of(privateKeyFile);
+        this.publicKeyFile = publicKeyFile.isBlank() ? null : Path.of(publicKeyFile);
+        this.secretFile = secretFile.isBlank() ? null : Path.of(secretFile);
+        // the last token signed by a key expires at most this long after the key stopped signing
+        this.retirementDelay = Duration.ofMillis(Math.max(jwtExpirationMs, 0));
+        // a verifier may use the JWKS it fetched before the publication of a key this long
+        this.promotionDelay = Duration.ofSeconds(Math.max(jwksMaxAgeSeconds, 0));
+
+        // same derivation as signWith(HS512, String): the secret is Base64 decoded
+        this.hmacSecret = hmacSecret(jwtSecret);
+        JwtKey legacyKey = JwtKey.hmac(hmacSecret, null);
+
+        JwtKey signingKey;
+        if (!algorithm.isAsymmetric() && this.secretFile == null) {
+            signingKey = keyId.isBlank() ? legacyKey : JwtKey.hmac(hmacSecret, keyId);
+        } else if (!getKeyFiles().isEmpty()) {
+            signingKey = readKey(keyId);
+        } else {
+            logger.warn("No {} key pair configured, an ephemeral one is generated", algorithm);
+            signingKey = JwtKey.generate(algorithm);
+        }
+
+        Map<String, RetiringKey> retiring = new LinkedHashMap<>();
+        if (!legacyKey.getEncodedHeader().equals(signingKey.getEncodedHeader())) {
+            // the tokens it signed before the startup have expired after this delay
+            retiring.put(legacyKey.getEncodedHeader(), new RetiringKey(legacyKey, Instant.now().plus(retirementDelay)));
+        }
+        this.keyRing = new KeyRing(signingKey, null, null, retiring);
+    }
+
+    private static SecretKey hmacSecret(String base64Secret) {
+        return new SecretKeySpec(TextCodec.BASE64.decode(base64Secret.strip()), SignatureAlgorithm.HS512.getJcaName());
+    }
+
+    /**
+     * @param keyId the thumbprint of the key when blank
+     */
+    private JwtKey readKey(String keyId) {
+        if (!algorithm.isAsymmetric()) {
+            return JwtKey.hmac(hmacSecret(read(secretFile)), keyId);
+        }
+        return JwtKey.fromPem(algorithm,
+                privateKeyFile != null ? read(privateKeyFile) : null,
+                read(publicKeyFile),
+                keyId);
+    }
+
+    private static String read(Path file) {
+        try {
+            return Files.readString(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read the key file " + file, e);
+        }
+    }
+
+    /**
+     * Files the keys are read from, none when they are generated.
+     */
+    public List<Path> getKeyFiles() {
+        Stream<Path> files = algorithm.isAsymmetric() && publicKeyFile != null
+                ? Stream.of(privateKeyFile, publicKeyFile)
+                : Stream.of(algorithm.isAsymmetric() ? null : secretFile);
+        return files.filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * Reads the key files again and publishes their key unless it is already in the ring. Without key files there is
+     * nothing to publish: a key generated here would only be known by this instance, its tokens rejected by the other
+     * ones and lost on restart.
+     *
+     * @return whether the ring changed
+     * @throws RuntimeException when there are no key files, or they can not be read or do not hold a valid key, the
+     *                          ring is then unchanged
+     */
+    public boolean reload() {
+        advance();
+        if (getKeyFiles().isEmpty()) {
+            throw new IllegalStateException("No " + algorithm + " key files configured, the keys can only be rotated through them");
+        }
+        // named by their thumbprint: the configured key id belongs to the key read at startup
+        return rotate(readKey(""));
+    }
+
+    /**
+     * Publishes this key as the incoming one, which verifies at once and signs after the promotion delay. It replaces
+     * the former incoming key, which never signed. A retiring key with the same material comes back under its own key
+     * id. The active key cancels the incoming one.
+     *
+     * @return whether the ring changed
+     */
+    public synchronized boolean rotate(JwtKey next) {
+        if (!next.canSign()) {
+            throw new IllegalArgumentException("The key " + next.getKeyId() + " can not sign");
+        }
+        KeyRing current = keyRing;
+        if (current.signingKey.getThumbprint().equals(next.getThumbprint())) {
+            if (current.incoming == null) {
+                return false;
+            }
+            replace(new KeyRing(current.signingKey, null, null, current.retiring));
+            logger.info("Incoming key {} cancelled, {} keeps signing", current.incoming.getKeyId(), current.signingKey.getKeyId());
+            return true;
+        }
+        if (current.incoming != null && current.incoming.getThumbprint().equals(next.getThumbprint())) {
+            return false;
+        }
+
+        Instant activation = Instant.now().plus(promotionDelay);
+        Map<String, RetiringKey> retiring = new LinkedHashMap<>(current.retiring);
+        for (RetiringKey retiringKey : current.retiring.values()) {
+            if (retiringKey.key.getThumbprint().equals(next.getThumbprint())) {
+                next = retiringKey.key;
+                retiring.remove(retiringKey.key.getEncodedHeader());
+            }
+        }
+        replace(new KeyRing(current.signingKey, next, activation, retiring));
+        logger.info("Key {} published, it signs from {}", next.getKeyId(), activation);
+        return true;
+    }
+
+    /**
+     * Makes the incoming key the active one without waiting for the promotion delay, e.g. once every verifier is known
+     * to have it. The former active key retires once the tokens it signed have expired.
+     *
+     * @return false when no key is incoming
+     */
+    public synchronized boolean promote() {
+        KeyRing current = keyRing;
+        if (current.incoming == null) {
+            return false;
+        }
+        replace(promoted(current, Instant.now()));
+        return true;
+    }
+
+    private KeyRing promoted(KeyRing current, Instant now) {
+        Instant retirement = now.plus(retirementDelay);
+        Map<String, RetiringKey> retiring = new LinkedHashMap<>(current.retiring);
+        retiring.put(current.signingKey.getEncodedHeader(), new RetiringKey(current.signingKey, retirement));
+        logger.info("Signing key rotated from {} to {}, the former one retires at {}",
+                current.signingKey.getKeyId(), current.incoming.getKeyId(), retirement);
+        return new KeyRing(current.incoming, null, null, retiring);
+    }
+
+    /**
+     * Drops at once a retiring key, e.g. a compromised one, the tokens it signed being rejected from now on, or the
+     * incoming key.
+     *
+     * @return false when no retiring or incoming key has this key id
+     * @throws IllegalArgumentException for the active key, which must be rotated first
+     */
+    public synchronized boolean revoke(String keyId) {
+        KeyRing current = keyRing;
+        if (Objects.equals(current.signingKey.getKeyId(), keyId)) {
+            throw new IllegalArgumentException("The active key " + keyId + " must be rotated before being revoked");
+        }
+        if (current.incoming != null && Objects.equals(current.incoming.getKeyId(), keyId)) {
+            replace(new KeyRing(current.signingKey, null, null, current.retiring));
+        } else {
+            Map<String, RetiringKey> retiring = new LinkedHashMap<>(current.retiring);
+            if (!retiring.values().removeIf(retiringKey -> Objects.equals(retiringKey.key.getKeyId(), keyId))) {
+                return false;
+            }
+            replace(new KeyRing(current.signingKey, current.incoming, current.activatesAt, retiring));
+        }
+        logger.warn("Key {} revoked", keyId);
+        return true;
+    }
+
+    /**
+     * Promotes the incoming key once its delay has elapsed and drops the retiring keys whose tokens have all expired.
+     * The verification path already ignores the latter, this only removes them from the ring and the JWKS.
+     */
+    public void advance() {
+        if (System.currentTimeMillis() < keyRing.nextChangeMillis) {
+            return;
+        }
+        synchronized (this) {
+            KeyRing current = keyRing;
+            Instant now = Instant.now();
+            KeyRing next = current.incoming != null && !current.activatesAt.isAfter(now) ? promoted(current, now) : current;
+            Map<String, RetiringKey> retiring = new LinkedHashMap<>(next.retiring);
+            if (retiring.values().removeIf(retiringKey -> !retiringKey.retiresAt.isAfter(now))) {
+                next = new KeyRing(next.signingKey, next.incoming, next.activatesAt, retiring);
+            }
+            if (next != current) {
+                replace(next);
+            }
+        }
+    }
+
+    /**
+     * Runs this listener after every change of the ring, e.g. to drop the verdicts cached under the former one.
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    private void replace(KeyRing next) {
+        keyRing = next;
+        changeListeners.forEach(Runnable::run);
+    }
+
+    public JwtKey getSigningKey() {
+        advance();
+        return keyRing.signingKey;
+    }
+
+    /**
+     * Secret of the jjwt parser, which only verifies the HS512 tokens without key id.
+     */
+    SecretKey getHmacSecret() {
+        return hmacSecret;
+    }
+
+    /**
+     * @return the key whose tokens start with this encoded header, null for an unknown header or a retired key
+     */
+    JwtKey findByHeader(String encodedHeader) {
+        RingEntry entry = encodedHeader != null ? keyRing.keysByHeader.get(encodedHeader) : null;
+        return entry != null && System.currentTimeMillis() < entry.retiresAtMillis ? entry.key : null;
+    }
+
+    /**
+     * Whether the HS512 tokens without key id are still accepted.
+     */
+    boolean acceptsLegacyTokens() {
+        return System.currentTimeMillis() < keyRing.legacyRetiresAtMillis;
+    }
+
+    /**
+     * JSON Web Key Set of the public keys, active, incoming and retiring, without the HMAC secrets.
+     */
+    public String getJwks() {
+        advance();
+        return keyRing.jwks;
+    }
+
+    public String getJwksETag() {
+        advance();
+        return keyRing.jwksETag;
+    }
+
+    /**
+     * The active key first, then the incoming one and the retiring ones.
+     */
+    public List<KeyStatus> getKeyStatuses() {
+        advance();
+        KeyRing current = keyRing;
+        List<KeyStatus> statuses = new ArrayList<>();
+        statuses.add(new KeyStatus(current.signingKey.getKeyId(), current.signingKey.getAlgorithm(), true, null, null));
+        if (current.incoming != null) {
+            statuses.add(new KeyStatus(current.incoming.getKeyId(), current.incoming.getAlgorithm(), false, current.activatesAt, null));
+        }
+        for (RetiringKey retiringKey : current.retiring.values()) {
+            statuses.add(new KeyStatus(retiringKey.key.getKeyId(), retiringKey.key.getAlgorithm(), false, null, retiringKey.retiresAt));
+        }
+        return statuses;
+    }
+
+    /**
+     * @param activatesAt null but for the incoming key
+     * @param retiresAt   null but for the retiring keys
+     */
+    public record KeyStatus(String keyId, JwsAlgorithm algorithm, boolean active, Instant activatesAt, Instant retiresAt) {
+    }
+
+    private record RetiringKey(JwtKey key, Instant retiresAt) {
+    }
+
+    /**
+     * @param retiresAtMillis {@link Long#MAX_VALUE} for the active and incoming keys
+     */
+    private record RingEntry(JwtKey key, long retiresAtMillis) {
+    }
+
+    private static final class KeyRing {
+
+        private final JwtKey signingKey;
+
+        private final JwtKey incoming;
+
+        private final Instant activatesAt;
+
+        private final Map<String, RetiringKey> retiring;
+
+        private final Map<String, RingEntry> keysByHeader;
+
+        private final long legacyRetiresAtMillis;
+
+        private final long nextChangeMillis;
+
+        private final String jwks;
+
+        private final String jwksETag;
+
+        /**
+         * @param incoming    null when no key is incoming
+         * @param activatesAt when the incoming key signs, null without one
+         */
+        KeyRing(JwtKey signingKey, JwtKey incoming, Instant activatesAt, Map<String, RetiringKey> retiring) {
+            this.signingKey = signingKey;
+            this.incoming = incoming;
+            this.activatesAt = activatesAt;
+            this.retiring = Collections.unmodifiableMap(new LinkedHashMap<>(retiring));
+
+            Map<String, RingEntry> keys = new LinkedHashMap<>();
+            keys.put(signingKey.getEncodedHeader(), new RingEntry(signingKey, Long.MAX_VALUE));
+            if (incoming != null) {
+                keys.put(incoming.getEncodedHeader(), new RingEntry(incoming, Long.MAX_VALUE));
+            }
+            retiring.values().forEach(retiringKey -> keys.put(retiringKey.key.getEncodedHeader(),
+                    new RingEntry(retiringKey.key, retiringKey.retiresAt.toEpochMilli())));
+            this.keysByHeader = Map.copyOf(keys);
+            this.legacyRetiresAtMillis = keys.values().stream()
+                    .filter(entry -> entry.key.getKeyId() == null)
+                    .mapToLong(RingEntry::retiresAtMillis)
+                    .findFirst()
+                    .orElse(Long.MIN_VALUE);
+            this.nextChangeMillis = Stream.concat(
+                            retiring.values().stream().map(RetiringKey::retiresAt),
+                            Stream.ofNullable(activatesAt))
+                    .mapToLong(Instant::toEpochMilli)
+                    .min()
+                    .orElse(Long.MAX_VALUE);
+
+            List<Map<String, Object>> publicJwks = keys.values().stream()
+                    .map(RingEntry::key)
+                    .map(JwtKey::toPublicJwk)
+                    .filter(Objects::nonNull)
+                    .toList();
+            this.jwks = JwtKey.toJson(Map.of("keys", publicJwks));
+            this.jwksETag = "\"" + DigestUtils.md5DigestAsHex(jwks.getBytes(StandardCharsets.UTF_8)) + "\"";
+        }
+    }
+}
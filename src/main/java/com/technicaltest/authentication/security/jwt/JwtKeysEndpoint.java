@@ -0,0 +1,63 @@
+package com.technicaltest.authentication.security.jwt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Administration of the key ring of this instance at /actuator/jwtkeys, restricted to the admins like any actuator
+ * endpoint: GET lists the keys, POST publishes the key of the key files, and fails without key files, and a second
+ * POST promotes it to signing without waiting, DELETE /actuator/jwtkeys/{keyId} revokes a retiring or incoming key at
+ * once.
+ */
+@Component
+@Endpoint(id = "jwtkeys")
+public class JwtKeysEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeysEndpoint.class);
+
+    final JwtKeys jwtKeys;
+
+    public JwtKeysEndpoint(JwtKeys jwtKeys) {
+        this.jwtKeys = jwtKeys;
+    }
+
+    @ReadOperation
+    public List<JwtKeys.KeyStatus> keys() {
+        return jwtKeys.getKeyStatuses();
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<List<JwtKeys.KeyStatus>> rotate() {
+        try {
+            // nothing new to publish: the key published before is the one to sign with
+            if (!jwtKeys.reload()) {
+                jwtKeys.promote();
+            }
+        } catch (RuntimeException e) {
+            logger.error("Key rotation failed, the keys are unchanged: {}", e.getMessage());
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        return new WebEndpointResponse<>(jwtKeys.getKeyStatuses());
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<List<JwtKeys.KeyStatus>> revoke(@Selector String keyId) {
+        try {
+            if (!jwtKeys.revoke(keyId)) {
+                return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+            }
+        } catch (IllegalArgumentException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        return new WebEndpointResponse<>(jwtKeys.getKeyStatuses());
+    }
+}
@@ -1,42 +1,130 @@
 package com.technicaltest.authentication.security.jwt;
 
 import com.technicaltest.authentication.security.services.UserDetailsImpl;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import io.jsonwebtoken.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
-import java.util.Date;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.List;
+import java.util.stream.Collectors;
 
+/**
+ * Issues and verifies the access tokens, signed by the active key of {@link JwtKeys}: HS512, RS256, ES256 or EdDSA.
+ * Tokens are written here, with a fixed header per key. Tokens whose header is the one of a key of the ring are verified
+ * by {@link JwsTokenVerifier}, except HS512 tokens without key id when {@code authorization.app.jwtFastPath} is
+ * disabled: these and any other token go through the shared jjwt parser, which keeps no state between two parses and
+ * only knows the HMAC secret, until that key retires.
+ */
 @Component
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
-    @Value("${authorization.app.jwtSecret}")
-    private String jwtSecret;
+    static final String ID_CLAIM = "id";
+    static final String EMAIL_CLAIM = "email";
+    static final String ROLES_CLAIM = "roles";
 
-    @Value("${authorization.app.jwtExpirationMs}")
-    private int jwtExpirationMs;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Base64.Encoder BASE64_URL = Base64.getUrlEncoder().withoutPadding();
+
+    private final JwtKeys jwtKeys;
+
+    private final int jwtExpirationMs;
+
+    private final JwtParser jwtParser;
+
+    private final boolean jwtFastPath;
+
+    private final VerifiedTokenCache verifiedTokenCache;
+
+    public JwtUtils(JwtKeys jwtKeys,
+                    @Value("${authorization.app.jwtExpirationMs}") int jwtExpirationMs,
+                    @Value("${authorization.app.jwtFastPath:true}") boolean jwtFastPath,
+                    VerifiedTokenCache verifiedTokenCache) {
+        this.jwtKeys = jwtKeys;
+        this.jwtExpirationMs = jwtExpirationMs;
+        this.jwtParser = Jwts.parser().setSigningKey(jwtKeys.getHmacSecret());
+        this.jwtFastPath = jwtFastPath;
+        this.verifiedTokenCache = verifiedTokenCache;
+        // a token rejected for an unknown key may verify once that key is published, and the reverse once it is revoked
+        jwtKeys.addChangeListener(verifiedTokenCache::invalidateAll);
+    }
 
     public String generateJwtToken(Authentication authentication) {
+        return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
+    }
 
-        UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
+    public String generateJwtToken(UserDetailsImpl userPrincipal) {
+        long now = System.currentTimeMillis();
+        ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(payload)) {
+            generator.writeStartObject();
+            generator.writeStringField("sub", userPrincipal.getUsername());
+            generator.writeNumberField("iat", now / 1000);
+            if (userPrincipal.getId() != null) {
+                generator.writeNumberField(ID_CLAIM, userPrincipal.getId());
+            }
+            generator.writeStringField(EMAIL_CLAIM, userPrincipal.getEmail());
+            generator.writeArrayFieldStart(ROLES_CLAIM);
+            for (GrantedAuthority authority : userPrincipal.getAuthorities()) {
+                generator.writeString(authority.getAuthority());
+            }
+            generator.writeEndArray();
+            generator.writeNumberField("exp", (now + jwtExpirationMs) / 1000);
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
-        return Jwts.builder().setSubject((userPrincipal.getUsername())).setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs)).signWith(SignatureAlgorithm.HS512, jwtSecret)
-                .compact();
+        JwtKey signingKey = jwtKeys.getSigningKey();
+        String signingInput = signingKey.getEncodedHeader() + "." + BASE64_URL.encodeToString(payload.toByteArray());
+        byte[] signed = signingInput.getBytes(StandardCharsets.US_ASCII);
+        return signingInput + "." + BASE64_URL.encodeToString(signingKey.sign(signed, 0, signed.length));
     }
 
     public String getUserNameFromJwtToken(String token) {
-        return Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(token).getBody().getSubject();
+        VerifiedJwt verifiedJwt = verifyJwtToken(token);
+        if (verifiedJwt == null) {
+            throw new MalformedJwtException("Invalid JWT token");
+        }
+        return verifiedJwt.getSubject();
     }
 
     public boolean validateJwtToken(String authToken) {
+        return verifyJwtToken(authToken) != null;
+    }
+
+    /**
+     * Verifies the token once and returns its claims, or null when it is not valid.
+     * Tokens already verified are served from the {@link VerifiedTokenCache} until they expire.
+     */
+    public VerifiedJwt verifyJwtToken(String authToken) {
+        return verifiedTokenCache.get(authToken, this::parseJwtToken);
+    }
+
+    private VerifiedJwt parseJwtToken(String authToken) {
         try {
-            Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-            return true;
+            JwtKey key = jwtKeys.findByHeader(JwsTokenVerifier.encodedHeader(authToken));
+            if (key != null && (jwtFastPath || key.getKeyId() != null)) {
+                return JwsTokenVerifier.verify(authToken, key, Instant.now());
+            }
+            if (!jwtKeys.acceptsLegacyTokens()) {
+                throw new UnsupportedJwtException("JWT key is unknown or retired");
+            }
+            return VerifiedJwt.fromClaims(jwtParser.parseClaimsJws(authToken).getBody());
         } catch (SignatureException e) {
             logger.error("Invalid JWT signature: {}", e.getMessage());
         } catch (MalformedJwtException e) {
@@ -47,8 +135,30 @@ public class JwtUtils {
             logger.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            logger.error("JWT token is not valid: {}", e.getMessage());
         }
 
-        return false;
+        return null;
+    }
+
+    /**
+     * Rebuilds the principal from verified claims, without the password.
+     * Returns null for tokens that were issued without the principal claims.
+     */
+    public UserDetailsImpl getUserDetailsFromClaims(VerifiedJwt verifiedJwt) {
+        if (verifiedJwt.getId() == null || verifiedJwt.getRoles() == null) {
+            return null;
+        }
+
+        List<GrantedAuthority> authorities = verifiedJwt.getRoles().stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+
+        return new UserDetailsImpl(verifiedJwt.getId(),
+                verifiedJwt.getSubject(),
+                verifiedJwt.getEmail(),
+                null,
+                authorities);
     }
 }
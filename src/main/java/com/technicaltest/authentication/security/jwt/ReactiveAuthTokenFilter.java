@@ -0,0 +1,89 @@
+package com.technicaltest.authentication.security.jwt;
+
+import com.technicaltest.authentication.security.services.ReactiveUserDetailsServiceImpl;
+import com.technicaltest.authentication.security.services.UserDetailsImpl;
+import com.technicaltest.authentication.security.services.UserRevocationRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * Reactive counterpart of {@link AuthTokenFilter}: same token parsing, verification and stateless principal rules,
+ * the database lookup goes through R2DBC.
+ */
+public class ReactiveAuthTokenFilter implements WebFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReactiveAuthTokenFilter.class);
+
+    private final JwtUtils jwtUtils;
+
+    private final ReactiveUserDetailsServiceImpl userDetailsService;
+
+    private final UserRevocationRegistry revocationRegistry;
+
+    private final boolean statelessPrincipal;
+
+    public ReactiveAuthTokenFilter(JwtUtils jwtUtils, ReactiveUserDetailsServiceImpl userDetailsService,
+                                   UserRevocationRegistry revocationRegistry, boolean statelessPrincipal) {
+        this.jwtUtils = jwtUtils;
+        this.userDetailsService = userDetailsService;
+        this.revocationRegistry = revocationRegistry;
+        this.statelessPrincipal = statelessPrincipal;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String jwt = parseJwt(exchange.getRequest());
+        VerifiedJwt verifiedJwt = jwt != null ? jwtUtils.verifyJwtToken(jwt) : null;
+        if (verifiedJwt == null) {
+            return chain.filter(exchange);
+        }
+
+        return loadUserDetails(verifiedJwt)
+                .map(Optional::of)
+                .onErrorResume(e -> {
+                    logger.error("Cannot set user authentication: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(userDetails -> userDetails
+                        .map(details -> chain.filter(exchange).contextWrite(ReactiveSecurityContextHolder.withAuthentication(
+                                new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities()))))
+                        .orElseGet(() -> chain.filter(exchange)));
+    }
+
+    private Mono<UserDetails> loadUserDetails(VerifiedJwt verifiedJwt) {
+        String username = verifiedJwt.getSubject();
+        if (statelessPrincipal
+                && revocationRegistry.isWithinMaxAge(verifiedJwt.getIssuedAt())
+                && !revocationRegistry.isRevoked(username, verifiedJwt.getIssuedAt())) {
+            UserDetailsImpl userDetails = jwtUtils.getUserDetailsFromClaims(verifiedJwt);
+            if (userDetails != null) {
+                return Mono.just(userDetails);
+            }
+        }
+
+        return userDetailsService.findByUsername(username);
+    }
+
+    static String parseJwt(ServerHttpRequest request) {
+        String headerAuth = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+
+        if (StringUtils.hasText(headerAuth) && headerAuth.startsWith("Bearer ")) {
+            return headerAuth.substring(7);
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,80 @@
+package com.technicaltest.authentication.security.jwt;
+
+import io.jsonwebtoken.Claims;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Claims of a token whose signature and expiration have been checked.
+ * Immutable, so a single instance can be shared by every request presenting the same token.
+ */
+public class VerifiedJwt {
+
+    private final String subject;
+
+    private final Long id;
+
+    private final String email;
+
+    private final List<String> roles;
+
+    private final Instant issuedAt;
+
+    private final Instant expiration;
+
+    public VerifiedJwt(String subject, Long id, String email, List<String> roles, Instant issuedAt, Instant expiration) {
+        this.subject = subject;
+        this.id = id;
+        this.email = email;
+        this.roles = roles != null ? List.copyOf(roles) : null;
+        this.issuedAt = issuedAt;
+        this.expiration = expiration;
+    }
+
+    static VerifiedJwt fromClaims(Claims claims) {
+        Number id = claims.get(JwtUtils.ID_CLAIM, Number.class);
+        Collection<?> roles = claims.get(JwtUtils.ROLES_CLAIM, Collection.class);
+
+        return new VerifiedJwt(claims.getSubject(),
+                id != null ? id.longValue() : null,
+                claims.get(JwtUtils.EMAIL_CLAIM, String.class),
+                roles != null ? roles.stream().map(Object::toString).collect(Collectors.toList()) : null,
+                toInstant(claims.getIssuedAt()),
+                toInstant(claims.getExpiration()));
+    }
+
+    private static Instant toInstant(Date date) {
+        return date != null ? date.toInstant() : null;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    /**
+     * Null for tokens issued without the principal claims.
+     */
+    public List<String> getRoles() {
+        return roles;
+    }
+
+    public Instant getIssuedAt() {
+        return issuedAt;
+    }
+
+    public Instant getExpiration() {
+        return expiration;
+    }
+}
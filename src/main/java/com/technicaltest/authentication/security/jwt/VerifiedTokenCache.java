@@ -0,0 +1,147 @@
+package com.technicaltest.authentication.security.jwt;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.technicaltest.authentication.security.crypto.JcaPool;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Verified tokens keyed by their SHA-256 digest, so that a token presented again skips decoding, parsing and
+ * signature verification. The raw token is never kept. Entries expire with the token itself.
+ * The digests of the rejected tokens are kept for a short while too, unless {@code authorization.app.negativeCache} is
+ * disabled, so that garbage or expired tokens replayed in a loop are not parsed again: no token becomes valid later.
+ * Hit rates are published under the cache names {@value #CACHE_NAME} and {@value #REJECTED_CACHE_NAME}, the cost of a
+ * full verification under the {@value #VERIFICATION_TIMER} timer.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    static final String CACHE_NAME = "verifiedTokens";
+
+    static final String REJECTED_CACHE_NAME = "rejectedTokens";
+
+    static final String VERIFICATION_TIMER = "jwt.verification";
+
+    private static final JcaPool<MessageDigest> SHA_256 = new JcaPool<>(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final boolean enabled;
+
+    private final Cache<TokenDigest, VerifiedJwt> cache;
+
+    private final boolean rejectedEnabled;
+
+    private final Cache<TokenDigest, Boolean> rejected;
+
+    private final Timer verificationTimer;
+
+    public VerifiedTokenCache(@Value("${authorization.app.verifiedTokenCache.enabled:true}") boolean enabled,
+                              @Value("${authorization.app.verifiedTokenCache.maxSize:100000}") long maxSize,
+                              @Value("${authorization.app.negativeCache.enabled:true}") boolean rejectedEnabled,
+                              @Value("${authorization.app.negativeCache.maxSize:100000}") long rejectedMaxSize,
+                              @Value("${authorization.app.negativeCache.ttlMs:30000}") long rejectedTtlMs,
+                              MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiration())
+                .recordStats()
+                .build();
+        this.rejectedEnabled = rejectedEnabled;
+        this.rejected = Caffeine.newBuilder()
+                .maximumSize(rejectedMaxSize)
+                .expireAfterWrite(Duration.ofMillis(rejectedTtlMs))
+                .recordStats()
+                .build();
+        this.verificationTimer = Timer.builder(VERIFICATION_TIMER)
+                .description("Full verification of a token missing from the cache")
+                .register(meterRegistry);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        CaffeineCacheMetrics.monitor(meterRegistry, rejected, REJECTED_CACHE_NAME);
+    }
+
+    /**
+     * @param verifier full verification, returns null for invalid tokens which are only remembered as rejected
+     */
+    public VerifiedJwt get(String token, Function<String, VerifiedJwt> verifier) {
+        if (!enabled && !rejectedEnabled) {
+            return verifier.apply(token);
+        }
+
+        TokenDigest digest = TokenDigest.of(token);
+        if (enabled) {
+            VerifiedJwt verified = cache.getIfPresent(digest);
+            if (verified != null) {
+                return verified;
+            }
+        }
+        if (rejectedEnabled && rejected.getIfPresent(digest) != null) {
+            return null;
+        }
+
+        long start = System.nanoTime();
+        VerifiedJwt verified = verifier.apply(token);
+        verificationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (verified == null) {
+            if (rejectedEnabled) {
+                rejected.put(digest, Boolean.TRUE);
+            }
+        } else if (enabled && verified.getExpiration() != null) {
+            cache.put(digest, verified);
+        }
+        return verified;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        rejected.invalidateAll();
+    }
+
+    record TokenDigest(long first, long second, long third, long fourth) {
+
+        static TokenDigest of(String token) {
+            MessageDigest messageDigest = SHA_256.acquire();
+            ByteBuffer digest = ByteBuffer.wrap(messageDigest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+            SHA_256.release(messageDigest);
+            return new TokenDigest(digest.getLong(), digest.getLong(), digest.getLong(), digest.getLong());
+        }
+    }
+
+    private static class UntilTokenExpiration implements Expiry<TokenDigest, VerifiedJwt> {
+
+        @Override
+        public long expireAfterCreate(TokenDigest key, VerifiedJwt value, long currentTime) {
+            long remainingMs = value.getExpiration().toEpochMilli() - Instant.now().toEpochMilli();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remainingMs, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(TokenDigest key, VerifiedJwt value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(TokenDigest key, VerifiedJwt value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -6,10 +6,13 @@ import com.technicaltest.authentication.payload.response.MessageResponse;
 import com.technicaltest.authentication.repository.RoleRepository;
 import com.technicaltest.authentication.repository.UserRepository;
 import com.technicaltest.authentication.security.jwt.JwtUtils;
+import com.technicaltest.authentication.security.throttle.LoginThrottle;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -22,6 +25,7 @@ import static com.technicaltest.authentication.models.ERole.ROLE_USER;
 import static com.technicaltest.authentication.payload.response.MessageResponse.ACCOUNT_SUSPENDED;
 
 @Service
+@Profile("!reactive")
 public class AuthenticationService {
 
     final AuthenticationManager authenticationManager;
@@ -34,19 +38,40 @@ public class AuthenticationService {
 
     final JwtUtils jwtUtils;
 
-    public AuthenticationService(AuthenticationManager authenticationManager, UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder encoder, JwtUtils jwtUtils) {
+    final PasswordRehashService passwordRehashService;
+
+    final LoginThrottle loginThrottle;
+
+    final RefreshTokenService refreshTokenService;
+
+    public AuthenticationService(AuthenticationManager authenticationManager, UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder encoder, JwtUtils jwtUtils, PasswordRehashService passwordRehashService, LoginThrottle loginThrottle, RefreshTokenService refreshTokenService) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.encoder = encoder;
         this.jwtUtils = jwtUtils;
+        this.passwordRehashService = passwordRehashService;
+        this.loginThrottle = loginThrottle;
+        this.refreshTokenService = refreshTokenService;
     }
 
-    public ResponseEntity<?> doAuthenticate(LoginRequest loginRequest) {
-
-        Authentication authentication = getAuthentication(loginRequest);
+    /**
+     * @param clientAddress address of the client, the attempts are throttled per address and the failed ones per
+     *                      username from that address
+     */
+    public ResponseEntity<?> doAuthenticate(LoginRequest loginRequest, String clientAddress) {
+        loginThrottle.acquire(loginRequest.getUsername(), clientAddress);
+
+        Authentication authentication;
+        try {
+            authentication = getAuthentication(loginRequest);
+        } catch (AuthenticationException authenticationException) {
+            loginThrottle.failed(loginRequest.getUsername(), clientAddress);
+            throw authenticationException;
+        }
 
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
+        passwordRehashService.rehashIfNeeded(userDetails, loginRequest.getPassword());
         List<String> roles = initRoles(userDetails);
 
         if (isSuspendedUser(userDetails)) {
@@ -56,6 +81,7 @@ public class AuthenticationService {
         }
 
         return ResponseEntity.ok(new JwtResponse(jwtUtils.generateJwtToken(authentication),
+                refreshTokenService.issue(userDetails.getId()),
                 userDetails.getId(),
                 userDetails.getUsername(),
                 userDetails.getEmail(),
@@ -70,13 +96,13 @@ public class AuthenticationService {
         return authentication;
     }
 
-    private static List<String> initRoles(UserDetailsImpl userDetails) {
+    static List<String> initRoles(UserDetailsImpl userDetails) {
         return userDetails.getAuthorities().stream()
                 .map(item -> item.getAuthority())
                 .collect(Collectors.toList());
     }
 
-    private static boolean isSuspendedUser(UserDetailsImpl userDetails) {
+    static boolean isSuspendedUser(UserDetailsImpl userDetails) {
         return !userDetails.getAuthorities().contains(new SimpleGrantedAuthority(ROLE_USER.getRoleId()));
     }
 }
@@ -0,0 +1,61 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.repository.UserRepository;
+import com.technicaltest.authentication.security.crypto.PasswordHashingExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+/**
+ * Upgrades the stored hash of a user who just signed in when it was produced by an older algorithm or a lower cost
+ * than the current encoder. The rehash runs in the background and is simply retried on a later sign in when the
+ * hashing pool is busy.
+ */
+@Service
+@Profile("!reactive")
+public class PasswordRehashService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordRehashService.class);
+
+    final UserRepository userRepository;
+
+    final PasswordEncoder encoder;
+
+    final PasswordHashingExecutor passwordHashingExecutor;
+
+    final UserChangeNotifier userChangeNotifier;
+
+    public PasswordRehashService(UserRepository userRepository, PasswordEncoder encoder,
+                                 PasswordHashingExecutor passwordHashingExecutor, UserChangeNotifier userChangeNotifier) {
+        this.userRepository = userRepository;
+        this.encoder = encoder;
+        this.passwordHashingExecutor = passwordHashingExecutor;
+        this.userChangeNotifier = userChangeNotifier;
+    }
+
+    /**
+     * @param userDetails the principal that was just authenticated, holding the stored hash
+     * @param rawPassword the password it was authenticated with
+     * @return whether a rehash was scheduled
+     */
+    public boolean rehashIfNeeded(UserDetailsImpl userDetails, String rawPassword) {
+        String storedPassword = userDetails.getPassword();
+        if (storedPassword == null || rawPassword == null || !encoder.upgradeEncoding(storedPassword)) {
+            return false;
+        }
+
+        String username = userDetails.getUsername();
+        return passwordHashingExecutor.tryExecuteAsync("rehash", () -> rehash(username, rawPassword, storedPassword));
+    }
+
+    void rehash(String username, String rawPassword, String storedPassword) {
+        // runs on the hashing pool, the encoder hashes inline
+        String upgradedPassword = encoder.encode(rawPassword);
+        if (userRepository.updatePassword(username, storedPassword, upgradedPassword) == 1) {
+            logger.debug("Password hash of {} upgraded", username);
+            userChangeNotifier.passwordChanged(username);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.payload.request.LoginRequest;
+import com.technicaltest.authentication.payload.response.JwtResponse;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.repository.ReactiveUserRepository;
+import com.technicaltest.authentication.security.crypto.PooledPasswordEncoder;
+import com.technicaltest.authentication.security.jwt.JwtUtils;
+import com.technicaltest.authentication.security.throttle.LoginThrottle;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.ACCOUNT_SUSPENDED;
+import static com.technicaltest.authentication.security.services.AuthenticationService.initRoles;
+import static com.technicaltest.authentication.security.services.AuthenticationService.isSuspendedUser;
+
+/**
+ * Reactive counterpart of {@link AuthenticationService}. The password check runs on the hashing pool without
+ * blocking the event loop.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAuthenticationService {
+
+    private static final String BAD_CREDENTIALS = "Bad credentials";
+
+    final ReactiveUserRepository userRepository;
+
+    final PooledPasswordEncoder encoder;
+
+    final JwtUtils jwtUtils;
+
+    final LoginThrottle loginThrottle;
+
+    /**
+     * Checked when the user does not exist, so that an unknown username takes as long as a wrong password.
+     */
+    private final String userNotFoundPassword;
+
+    public ReactiveAuthenticationService(ReactiveUserRepository userRepository, PooledPasswordEncoder encoder, JwtUtils jwtUtils,
+                                         LoginThrottle loginThrottle) {
+        this.userRepository = userRepository;
+        this.encoder = encoder;
+        this.jwtUtils = jwtUtils;
+        this.loginThrottle = loginThrottle;
+        this.userNotFoundPassword = encoder.encode("userNotFoundPassword");
+    }
+
+    /**
+     * The throttle never blocks, it is checked on the event loop.
+     */
+    public Mono<ResponseEntity<?>> doAuthenticate(LoginRequest loginRequest, String clientAddress) {
+        loginThrottle.acquire(loginRequest.getUsername(), clientAddress);
+        return userRepository.findByUsername(loginRequest.getUsername())
+                .map(UserDetailsImpl::build)
+                .filterWhen(userDetails -> matches(loginRequest.getPassword(), userDetails.getPassword()))
+                .switchIfEmpty(Mono.defer(() -> matches(loginRequest.getPassword(), userNotFoundPassword)
+                        .then(Mono.error(new BadCredentialsException(BAD_CREDENTIALS)))))
+                .doOnError(BadCredentialsException.class, ignored -> loginThrottle.failed(loginRequest.getUsername(), clientAddress))
+                .map(this::toResponse);
+    }
+
+    private Mono<Boolean> matches(String rawPassword, String encodedPassword) {
+        return Mono.defer(() -> Mono.fromFuture(encoder.matchesAsync(rawPassword, encodedPassword)));
+    }
+
+    private ResponseEntity<?> toResponse(UserDetailsImpl userDetails) {
+        List<String> roles = initRoles(userDetails);
+
+        if (isSuspendedUser(userDetails)) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(new MessageResponse(ACCOUNT_SUSPENDED));
+        }
+
+        Authentication authentication = new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+        return ResponseEntity.ok(new JwtResponse(jwtUtils.generateJwtToken(authentication),
+                userDetails.getId(),
+                userDetails.getUsername(),
+                userDetails.getEmail(),
+                roles));
+    }
+}
@@ -0,0 +1,112 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import com.technicaltest.authentication.models.User;
+import com.technicaltest.authentication.payload.request.SignupRequest;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.repository.ReactiveRoleRepository;
+import com.technicaltest.authentication.repository.ReactiveUserRepository;
+import com.technicaltest.authentication.security.crypto.PooledPasswordEncoder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.*;
+
+/**
+ * Reactive counterpart of {@link SignupService}.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveSignupService {
+
+    final ReactiveUserRepository userRepository;
+
+    final ReactiveRoleRepository roleRepository;
+
+    final PooledPasswordEncoder encoder;
+
+    final TransactionalOperator transactionalOperator;
+
+    final UserChangeNotifier userChangeNotifier;
+
+    public ReactiveSignupService(ReactiveUserRepository userRepository, ReactiveRoleRepository roleRepository,
+                                 PooledPasswordEncoder encoder, TransactionalOperator transactionalOperator,
+                                 UserChangeNotifier userChangeNotifier) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.encoder = encoder;
+        this.transactionalOperator = transactionalOperator;
+        this.userChangeNotifier = userChangeNotifier;
+    }
+
+    public Mono<ResponseEntity<MessageResponse>> doSignup(SignupRequest signUpRequest) {
+        return userRepository.existsByUsername(signUpRequest.getUsername()).flatMap(usernameExists -> {
+            if (usernameExists) {
+                return Mono.just(badRequest(USERNAME_EXISTS));
+            }
+            return userRepository.existsByEmail(signUpRequest.getEmail()).flatMap(emailExists -> {
+                if (emailExists) {
+                    return Mono.just(badRequest(MAIL_EXISTS));
+                }
+                return createNewUser(signUpRequest)
+                        // the notifier may publish over JDBC
+                        .then(Mono.fromRunnable(() -> userChangeNotifier.userCreated(signUpRequest.getUsername()))
+                                .subscribeOn(Schedulers.boundedElastic()))
+                        .thenReturn(ResponseEntity.ok(new MessageResponse(USER_CREATION_SUCCESS)));
+            });
+        });
+    }
+
+    private static ResponseEntity<MessageResponse> badRequest(String message) {
+        return ResponseEntity
+                .badRequest()
+                .body(new MessageResponse(message));
+    }
+
+    /**
+     * The password is hashed before the transaction starts, so that no connection is held during the hashing.
+     */
+    private Mono<User> createNewUser(SignupRequest signUpRequest) {
+        return Mono.defer(() -> Mono.fromFuture(encoder.encodeAsync(signUpRequest.getPassword())))
+                .flatMap(password -> {
+                    User user = new User(signUpRequest.getUsername(), signUpRequest.getEmail(), password);
+
+                    // while there is no user yet the first signups are serialized, only the first one is admin
+                    Mono<Boolean> existsAny = userRepository.existsAny()
+                            .flatMap(exists -> exists ? Mono.just(true)
+                                    : userRepository.lockFirstUser().then(userRepository.existsAny()));
+
+                    return findRole(ERole.ROLE_USER)
+                            .zipWith(existsAny)
+                            .flatMap(userRoleAndExistsAny -> {
+                                Set<Role> roles = new HashSet<>();
+                                roles.add(userRoleAndExistsAny.getT1());
+                                if (userRoleAndExistsAny.getT2()) {
+                                    return Mono.just(roles);
+                                }
+                                return findRole(ERole.ROLE_ADMIN).map(adminRole -> {
+                                    roles.add(adminRole);
+                                    return roles;
+                                });
+                            })
+                            .flatMap(roles -> {
+                                user.setRoles(roles);
+                                return userRepository.insert(user);
+                            })
+                            .as(transactionalOperator::transactional);
+                });
+    }
+
+    private Mono<Role> findRole(ERole name) {
+        return roleRepository.findByName(name)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException(ROLE_NOT_FOUND)));
+    }
+}
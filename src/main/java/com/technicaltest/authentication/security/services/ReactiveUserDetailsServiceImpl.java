@@ -0,0 +1,41 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.repository.ReactiveUserRepository;
+import org.springframework.context.annotation.Profile;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive counterpart of {@link UserDetailsServiceImpl}. It does not go through the {@link UserDetailsCache}, whose
+ * loads are blocking: the reactive edge tier is meant to run with the stateless principal. It shares the
+ * {@link UnknownUsernameCache}, which never blocks.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserDetailsServiceImpl implements ReactiveUserDetailsService {
+
+    final ReactiveUserRepository userRepository;
+
+    final UnknownUsernameCache unknownUsernameCache;
+
+    public ReactiveUserDetailsServiceImpl(ReactiveUserRepository userRepository,
+                                          UnknownUsernameCache unknownUsernameCache) {
+        this.userRepository = userRepository;
+        this.unknownUsernameCache = unknownUsernameCache;
+    }
+
+    @Override
+    public Mono<UserDetails> findByUsername(String username) {
+        return Mono.defer(() -> {
+            if (unknownUsernameCache.isUnknown(username)) {
+                return Mono.empty();
+            }
+            long version = unknownUsernameCache.version();
+            return userRepository.findByUsername(username)
+                    .<UserDetails>map(UserDetailsImpl::build)
+                    .switchIfEmpty(Mono.fromRunnable(() -> unknownUsernameCache.recordMiss(username, version)));
+        });
+    }
+}
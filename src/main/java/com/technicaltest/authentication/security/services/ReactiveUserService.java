@@ -0,0 +1,154 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import com.technicaltest.authentication.models.User;
+import com.technicaltest.authentication.payload.request.PasswordChangeRequest;
+import com.technicaltest.authentication.payload.request.UserRoleUpdateRequest;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.repository.ReactiveRoleRepository;
+import com.technicaltest.authentication.repository.ReactiveUserRepository;
+import com.technicaltest.authentication.security.crypto.PooledPasswordEncoder;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.technicaltest.authentication.models.ERole.ROLE_ADMIN;
+import static com.technicaltest.authentication.payload.response.MessageResponse.*;
+import static org.springframework.http.HttpStatus.FORBIDDEN;
+
+/**
+ * Reactive counterpart of {@link UserService}, with the same responses.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+
+    final ReactiveUserRepository userRepository;
+
+    final ReactiveRoleRepository roleRepository;
+
+    final PooledPasswordEncoder encoder;
+
+    final TransactionalOperator transactionalOperator;
+
+    final UserChangeNotifier userChangeNotifier;
+
+    public ReactiveUserService(ReactiveUserRepository userRepository, ReactiveRoleRepository roleRepository,
+                               PooledPasswordEncoder encoder, TransactionalOperator transactionalOperator,
+                               UserChangeNotifier userChangeNotifier) {
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.encoder = encoder;
+        this.transactionalOperator = transactionalOperator;
+        this.userChangeNotifier = userChangeNotifier;
+    }
+
+    public Mono<ResponseEntity<MessageResponse>> updateUserRoles(UserRoleUpdateRequest userRoleUpdateRequest) {
+        return userRepository.findByUsername(userRoleUpdateRequest.getUsername())
+                .filter(user -> user.getId().equals(userRoleUpdateRequest.getId()))
+                .zipWith(getConnectedUser())
+                .flatMap(userAndConnectedUser -> {
+                    User user = userAndConnectedUser.getT1();
+                    if (userAndConnectedUser.getT2().getUsername().equals(user.getUsername())) {
+                        return Mono.just(badRequest(CAN_NOT_REVOKE_OWN_AUTHORITY));
+                    }
+                    if (userRoleUpdateRequest.getRoles() == null) {
+                        return Mono.just(badRequest(ROLE_NOT_FOUND));
+                    }
+
+                    return findRoles(userRoleUpdateRequest)
+                            .flatMap(roles -> userRepository.updateRoles(user.getId(), roles)
+                                    .as(transactionalOperator::transactional)
+                                    .then(notifyChange(() -> userChangeNotifier.rolesChanged(user.getUsername())))
+                                    .thenReturn(ResponseEntity.ok(new MessageResponse(USER_ROLE_UPDATE_SUCCESS))))
+                            .switchIfEmpty(Mono.fromSupplier(() -> badRequest(ROLE_NOT_FOUND)));
+                })
+                .defaultIfEmpty(badRequest(USER_NOT_FOUND));
+    }
+
+    public Mono<ResponseEntity<MessageResponse>> changePassword(PasswordChangeRequest passwordChangeRequest) {
+        ResponseEntity<MessageResponse> forbidden = new ResponseEntity<>(new MessageResponse(USER_NOT_FOUND), FORBIDDEN);
+
+        return userRepository.findByUsername(passwordChangeRequest.getUsername())
+                .filter(user -> user.getId().equals(passwordChangeRequest.getId()))
+                .zipWith(getConnectedUser())
+                .filter(userAndConnectedUser -> isCurrentUser(userAndConnectedUser.getT2(), passwordChangeRequest.getUsername())
+                        || isAdmin(userAndConnectedUser.getT2()))
+                .map(userAndConnectedUser -> userAndConnectedUser.getT1())
+                .flatMap(user -> Mono.defer(() -> Mono.fromFuture(encoder.encodeAsync(passwordChangeRequest.getPassword())))
+                        // the sessions opened with the former password can not be renewed anymore, on any node
+                        .flatMap(password -> userRepository.updatePassword(user.getId(), password)
+                                .then(userRepository.revokeRefreshTokens(user.getId()))
+                                .as(transactionalOperator::transactional))
+                        .then(notifyChange(() -> userChangeNotifier.passwordChanged(user.getUsername())))
+                        .thenReturn(ResponseEntity.ok(new MessageResponse(PASSWORD_CHANGE_SUCCESS))))
+                .defaultIfEmpty(forbidden);
+    }
+
+    public Mono<ResponseEntity<MessageResponse>> deleteUser(Long id) {
+        return userRepository.findById(id)
+                .zipWith(getConnectedUser())
+                .flatMap(userAndConnectedUser -> {
+                    User user = userAndConnectedUser.getT1();
+                    if (userAndConnectedUser.getT2().getUsername().equals(user.getUsername())) {
+                        return Mono.just(badRequest(CAN_NOT_DELETE_OWN_ACCOUNT));
+                    }
+                    return userRepository.deleteById(user.getId())
+                            .as(transactionalOperator::transactional)
+                            .then(notifyChange(() -> userChangeNotifier.userDeleted(user.getUsername())))
+                            .thenReturn(ResponseEntity.ok(new MessageResponse(USER_DELETION_SUCCESS)));
+                })
+                .defaultIfEmpty(badRequest(USER_NOT_FOUND));
+    }
+
+    public Mono<ResponseEntity<Flux<User>>> findAll() {
+        return Mono.just(ResponseEntity.ok(userRepository.findAll()));
+    }
+
+    /**
+     * Empty when one of the roles does not exist.
+     */
+    private Mono<Set<Role>> findRoles(UserRoleUpdateRequest userRoleUpdateRequest) {
+        return Flux.fromIterable(userRoleUpdateRequest.getRoles())
+                .concatMap(role -> roleRepository.findByName(ERole.valueOf(role))
+                        .switchIfEmpty(Mono.error(() -> new RuntimeException(ROLE_NOT_FOUND))))
+                .collect(Collectors.toSet())
+                .onErrorResume(RuntimeException.class, runtimeException -> Mono.empty());
+    }
+
+    private static Mono<UserDetailsImpl> getConnectedUser() {
+        return ReactiveSecurityContextHolder.getContext()
+                .map(securityContext -> (UserDetailsImpl) securityContext.getAuthentication().getPrincipal());
+    }
+
+    /**
+     * The notifier may publish over JDBC, it is kept off the event loop.
+     */
+    private static Mono<Void> notifyChange(Runnable notification) {
+        return Mono.fromRunnable(notification).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private static boolean isCurrentUser(UserDetailsImpl userDetails, String username) {
+        return userDetails.getUsername().equalsIgnoreCase(username);
+    }
+
+    private static boolean isAdmin(UserDetailsImpl userDetails) {
+        return userDetails.getAuthorities().stream()
+                .anyMatch(role -> role.getAuthority().equalsIgnoreCase(ROLE_ADMIN.getRoleId()));
+    }
+
+    private static ResponseEntity<MessageResponse> badRequest(String message) {
+        return ResponseEntity
+                .badRequest()
+                .body(new MessageResponse(message));
+    }
+}
@@ -0,0 +1,145 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.payload.request.RefreshTokenRequest;
+import com.technicaltest.authentication.payload.response.JwtResponse;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.repository.RefreshTokenRepository;
+import com.technicaltest.authentication.security.crypto.JcaPool;
+import com.technicaltest.authentication.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.*;
+import static org.springframework.http.HttpStatus.UNAUTHORIZED;
+
+/**
+ * Issues and rotates the refresh tokens, 32 random bytes of which only the SHA-256 digest is stored. Renewing an
+ * access token costs one statement on the primary key and the signature of the new token, no password hashing.
+ * A token is used once: presenting a rotated token again means that it leaked, the whole family issued from its sign
+ * in is revoked and counted by {@value #REUSE_COUNTER}.
+ */
+@Service
+@Profile("!reactive")
+public class RefreshTokenService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
+    static final String REUSE_COUNTER = "refresh.token.reuse";
+
+    private static final int TOKEN_BYTES = 32;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final JcaPool<MessageDigest> SHA_256 = new JcaPool<>(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    final RefreshTokenRepository refreshTokenRepository;
+
+    final JwtUtils jwtUtils;
+
+    private final Duration expiration;
+
+    private final Counter reuseCounter;
+
+    public RefreshTokenService(RefreshTokenRepository refreshTokenRepository, JwtUtils jwtUtils,
+                               @Value("${authorization.app.refreshToken.expirationMs:2592000000}") long expirationMs,
+                               MeterRegistry meterRegistry) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.jwtUtils = jwtUtils;
+        this.expiration = Duration.ofMillis(expirationMs);
+        this.reuseCounter = Counter.builder(REUSE_COUNTER)
+                .description("Rotated refresh tokens presented again, their family being revoked")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a new family for a user who just signed in.
+     */
+    public String issue(Long userId) {
+        String token = newToken();
+        Instant now = Instant.now();
+        refreshTokenRepository.insertFamily(digest(token), userId, now, now.plus(expiration));
+        return token;
+    }
+
+    public ResponseEntity<?> doRefresh(RefreshTokenRequest refreshTokenRequest) {
+        byte[] presented = digest(refreshTokenRequest.getRefreshToken());
+        String next = newToken();
+        byte[] nextDigest = digest(next);
+        Instant now = Instant.now();
+
+        Optional<RefreshTokenRepository.Owner> owner = refreshTokenRepository.rotate(presented, nextDigest, now, now.plus(expiration));
+        if (owner.isEmpty()) {
+            if (refreshTokenRepository.revokeReusedFamily(presented) > 0) {
+                reuseCounter.increment();
+                logger.warn("A rotated refresh token was presented again, its family is revoked");
+            }
+            return ResponseEntity
+                    .status(UNAUTHORIZED)
+                    .body(new MessageResponse(INVALID_REFRESH_TOKEN));
+        }
+
+        UserDetailsImpl userDetails = new UserDetailsImpl(owner.get().id(),
+                owner.get().username(),
+                owner.get().email(),
+                null,
+                owner.get().roles().stream().map(SimpleGrantedAuthority::new).toList());
+        if (AuthenticationService.isSuspendedUser(userDetails)) {
+            refreshTokenRepository.revokeFamily(nextDigest);
+            return ResponseEntity
+                    .badRequest()
+                    .body(new MessageResponse(ACCOUNT_SUSPENDED));
+        }
+
+        return ResponseEntity.ok(new JwtResponse(jwtUtils.generateJwtToken(userDetails),
+                next,
+                userDetails.getId(),
+                userDetails.getUsername(),
+                userDetails.getEmail(),
+                owner.get().roles()));
+    }
+
+    /**
+     * Revokes the family of the token, whether it is still valid or not.
+     */
+    public ResponseEntity<MessageResponse> doSignout(RefreshTokenRequest refreshTokenRequest) {
+        refreshTokenRepository.revokeFamily(digest(refreshTokenRequest.getRefreshToken()));
+        return ResponseEntity.ok(new MessageResponse(SIGN_OUT_SUCCESS));
+    }
+
+    private static String newToken() {
+        byte[] token = new byte[TOKEN_BYTES];
+        RANDOM.nextBytes(token);
+        return ENCODER.encodeToString(token);
+    }
+
+    static byte[] digest(String token) {
+        MessageDigest messageDigest = SHA_256.acquire();
+        byte[] digest = messageDigest.digest(token.getBytes(StandardCharsets.UTF_8));
+        SHA_256.release(messageDigest);
+        return digest;
+    }
+}
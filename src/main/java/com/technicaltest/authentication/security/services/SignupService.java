@@ -5,42 +5,65 @@ import com.technicaltest.authentication.models.Role;
 import com.technicaltest.authentication.models.User;
 import com.technicaltest.authentication.payload.request.SignupRequest;
 import com.technicaltest.authentication.payload.response.MessageResponse;
-import com.technicaltest.authentication.repository.RoleRepository;
+import com.technicaltest.authentication.repository.RoleRegistry;
 import com.technicaltest.authentication.repository.UserRepository;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.HashSet;
 import java.util.Set;
 
 import static com.technicaltest.authentication.payload.response.MessageResponse.*;
 
+/**
+ * Signups are inserted optimistically: the unique constraints on the username and the email reject the duplicates,
+ * and their violations are mapped back to the error messages, so a signup is a single transaction.
+ */
 @Service
+@Profile("!reactive")
 public class SignupService {
 
     final UserRepository userRepository;
 
-    final RoleRepository roleRepository;
+    final RoleRegistry roleRegistry;
 
     final PasswordEncoder encoder;
 
-    public SignupService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder encoder) {
+    final UserChangeNotifier userChangeNotifier;
+
+    final TransactionTemplate transactionTemplate;
+
+    public SignupService(UserRepository userRepository, RoleRegistry roleRegistry, PasswordEncoder encoder,
+                         UserChangeNotifier userChangeNotifier, PlatformTransactionManager transactionManager) {
         this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
+        this.roleRegistry = roleRegistry;
         this.encoder = encoder;
+        this.userChangeNotifier = userChangeNotifier;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     public ResponseEntity<?> doSignup(SignupRequest signUpRequest) {
-        if (userRepository.existsByUsername(signUpRequest.getUsername())) {
-            return badRequest(USERNAME_EXISTS);
-        }
+        // hashed before the transaction starts, so that no connection is held during the hashing
+        User user = new User(signUpRequest.getUsername(),
+                signUpRequest.getEmail(),
+                encoder.encode(signUpRequest.getPassword()));
 
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
-            return badRequest(MAIL_EXISTS);
+        try {
+            transactionTemplate.executeWithoutResult(status -> createNewUser(user));
+        } catch (DataIntegrityViolationException dataIntegrityViolationException) {
+            String message = duplicateMessage(dataIntegrityViolationException);
+            if (message == null) {
+                throw dataIntegrityViolationException;
+            }
+            return badRequest(message);
         }
-
-        createNewUser(signUpRequest);
+        userChangeNotifier.userCreated(signUpRequest.getUsername());
 
         return ResponseEntity.ok(new MessageResponse(USER_CREATION_SUCCESS));
     }
@@ -51,25 +74,40 @@ public class SignupService {
                 .body(new MessageResponse(message));
     }
 
-    private void createNewUser(SignupRequest signUpRequest) {
-        User user = new User(signUpRequest.getUsername(),
-                signUpRequest.getEmail(),
-                encoder.encode(signUpRequest.getPassword()));
-
-        Set<Role> roles = new HashSet<>();
+    private void createNewUser(User user) {
+        Set<Role> userRoles = new HashSet<>();
+        userRoles.add(role(ERole.ROLE_USER));
 
-        Role userRole = roleRepository.findByName(ERole.ROLE_USER)
-                .orElseThrow(() -> new RuntimeException(ROLE_NOT_FOUND));
-        roles.add(userRole);
+        if (!userRepository.existsAny()) {
+            // no user yet: the concurrent first signups are serialized on an advisory lock, only the first one is admin
+            userRepository.lockFirstUser();
+            if (!userRepository.existsAny()) {
+                userRoles.add(role(ERole.ROLE_ADMIN));
+            }
+        }
 
+        user.setRoles(userRoles);
+        userRepository.save(user);
+    }
 
-        if (userRepository.findAll().isEmpty()) {
-            Role adminRole = roleRepository.findByName(ERole.ROLE_ADMIN)
-                    .orElseThrow(() -> new RuntimeException(ROLE_NOT_FOUND));
-            roles.add(adminRole);
+    /**
+     * @return the message of the unique constraint that rejected the signup, null for any other violation
+     */
+    static String duplicateMessage(DataIntegrityViolationException dataIntegrityViolationException) {
+        for (Throwable cause = dataIntegrityViolationException; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException constraintViolation && constraintViolation.getConstraintName() != null) {
+                return switch (constraintViolation.getConstraintName()) {
+                    case User.USERNAME_CONSTRAINT -> USERNAME_EXISTS;
+                    case User.EMAIL_CONSTRAINT -> MAIL_EXISTS;
+                    default -> null;
+                };
+            }
         }
+        return null;
+    }
 
-        user.setRoles(roles);
-        userRepository.save(user);
+    private Role role(ERole name) {
+        return roleRegistry.findByName(name)
+                .orElseThrow(() -> new RuntimeException(ROLE_NOT_FOUND));
     }
 }
@@ -0,0 +1,79 @@
+package com.technicaltest.authentication.security.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short lived, size bounded set of the usernames a lookup did not find, so that requests naming users that do not
+ * exist do not all reach the database. The creation of a username removes it, see {@link UserChangeNotifier}.
+ * A miss is only recorded if no username was created since its lookup started: the lookup may have missed it.
+ * Hit and miss counts are published under the cache name {@value #CACHE_NAME}.
+ */
+@Component
+public class UnknownUsernameCache {
+
+    static final String CACHE_NAME = "unknownUsernames";
+
+    private final boolean enabled;
+
+    private final Cache<String, Boolean> cache;
+
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public UnknownUsernameCache(@Value("${authorization.app.negativeCache.enabled:true}") boolean enabled,
+                                @Value("${authorization.app.negativeCache.maxSize:100000}") long maxSize,
+                                @Value("${authorization.app.negativeCache.ttlMs:30000}") long ttlMs,
+                                MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public boolean isUnknown(String username) {
+        return enabled && cache.getIfPresent(username) != null;
+    }
+
+    /**
+     * To be read before the lookup, then passed to {@link #recordMiss} if it finds nothing.
+     */
+    public long version() {
+        return invalidations.get();
+    }
+
+    public void recordMiss(String username, long version) {
+        if (!enabled) {
+            return;
+        }
+        cache.put(username, Boolean.TRUE);
+        // an invalidation counted before this check removed nothing yet, one counted after it runs after the put
+        if (invalidations.get() != version) {
+            cache.invalidate(username);
+        }
+    }
+
+    public void invalidate(String username) {
+        invalidations.incrementAndGet();
+        cache.invalidate(username);
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -0,0 +1,100 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.security.invalidation.InvalidationChannel;
+import com.technicaltest.authentication.security.invalidation.UserChangeEvent;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.UUID;
+
+import static com.technicaltest.authentication.security.invalidation.UserChangeEvent.Type.*;
+
+/**
+ * Single entry point for user changes: applies them to the caches of this node and publishes them to the peers,
+ * whose own notifier applies them on reception.
+ */
+@Service
+public class UserChangeNotifier {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    final InvalidationChannel invalidationChannel;
+
+    final UserRevocationRegistry revocationRegistry;
+
+    final UserDetailsCache userDetailsCache;
+
+    final UnknownUsernameCache unknownUsernameCache;
+
+    public UserChangeNotifier(InvalidationChannel invalidationChannel, UserRevocationRegistry revocationRegistry,
+                              UserDetailsCache userDetailsCache, UnknownUsernameCache unknownUsernameCache) {
+        this.invalidationChannel = invalidationChannel;
+        this.revocationRegistry = revocationRegistry;
+        this.userDetailsCache = userDetailsCache;
+        this.unknownUsernameCache = unknownUsernameCache;
+        invalidationChannel.subscribe(this::onEvent);
+    }
+
+    public void userCreated(String username) {
+        notifyChange(CREATED, username);
+    }
+
+    /**
+     * A single event for all these users, whatever their number: this node forgets each of them as unknown, the peers
+     * drop all their unknown usernames.
+     */
+    public void usersCreated(Collection<String> usernames) {
+        if (usernames.isEmpty()) {
+            return;
+        }
+        usernames.forEach(username -> {
+            unknownUsernameCache.invalidate(username);
+            userDetailsCache.evict(username);
+        });
+        invalidationChannel.publish(new UserChangeEvent(nodeId, USERS_CREATED, null));
+    }
+
+    public void rolesChanged(String username) {
+        notifyChange(ROLES_CHANGED, username);
+    }
+
+    public void passwordChanged(String username) {
+        notifyChange(PASSWORD_CHANGED, username);
+    }
+
+    public void userDeleted(String username) {
+        notifyChange(DELETED, username);
+    }
+
+    private void notifyChange(UserChangeEvent.Type type, String username) {
+        UserChangeEvent event = new UserChangeEvent(nodeId, type, username);
+        apply(event);
+        invalidationChannel.publish(event);
+    }
+
+    private void onEvent(UserChangeEvent event) {
+        if (event.getType() == ALL || !nodeId.equals(event.getOrigin())) {
+            apply(event);
+        }
+    }
+
+    private void apply(UserChangeEvent event) {
+        switch (event.getType()) {
+            case ROLES_CHANGED, DELETED -> {
+                revocationRegistry.revoke(event.getUsername());
+                userDetailsCache.evict(event.getUsername());
+            }
+            case CREATED -> {
+                unknownUsernameCache.invalidate(event.getUsername());
+                userDetailsCache.evict(event.getUsername());
+            }
+            case PASSWORD_CHANGED -> userDetailsCache.evict(event.getUsername());
+            case USERS_CREATED -> unknownUsernameCache.invalidateAll();
+            case ALL -> {
+                revocationRegistry.revokeAll();
+                userDetailsCache.evictAll();
+                unknownUsernameCache.invalidateAll();
+            }
+        }
+    }
+}
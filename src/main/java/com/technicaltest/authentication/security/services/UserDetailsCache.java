@@ -0,0 +1,59 @@
+package com.technicaltest.authentication.security.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * Size bounded, expiring cache of the principals loaded by {@link UserDetailsServiceImpl}.
+ * Every change to a user (grants, password, deletion, creation) must evict its username.
+ * Hit, miss and eviction counts are published under the cache name {@value #CACHE_NAME}.
+ */
+@Component
+public class UserDetailsCache {
+
+    static final String CACHE_NAME = "userDetails";
+
+    private final boolean enabled;
+
+    private final Cache<String, UserDetailsImpl> cache;
+
+    public UserDetailsCache(@Value("${authorization.app.principalCache.enabled:false}") boolean enabled,
+                            @Value("${authorization.app.principalCache.maxSize:10000}") long maxSize,
+                            @Value("${authorization.app.principalCache.ttlMs:300000}") long ttlMs,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public UserDetailsImpl get(String username, Function<String, UserDetailsImpl> loader) {
+        if (!enabled) {
+            return loader.apply(username);
+        }
+        return cache.get(username, loader);
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+}
@@ -103,4 +103,9 @@ public class UserDetailsImpl implements UserDetails, Serializable {
         UserDetailsImpl user = (UserDetailsImpl) o;
         return Objects.equals(id, user.id);
     }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
 }
@@ -2,27 +2,56 @@ package com.technicaltest.authentication.security.services;
 
 import com.technicaltest.authentication.models.User;
 import com.technicaltest.authentication.repository.UserRepository;
+import org.springframework.context.annotation.Profile;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 @Service
+@Profile("!reactive")
 public class UserDetailsServiceImpl implements UserDetailsService {
     final UserRepository userRepository;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
+    final UserDetailsCache userDetailsCache;
+
+    final UnknownUsernameCache unknownUsernameCache;
+
+    public UserDetailsServiceImpl(UserRepository userRepository, UserDetailsCache userDetailsCache,
+                                  UnknownUsernameCache unknownUsernameCache) {
         this.userRepository = userRepository;
+        this.userDetailsCache = userDetailsCache;
+        this.unknownUsernameCache = unknownUsernameCache;
     }
 
+    /**
+     * Not transactional on purpose: a cache hit must not check out a connection,
+     * the repository query runs in its own read only transaction.
+     * Usernames recently found unknown are not looked up again.
+     */
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User Not Found with username: " + username));
+        if (unknownUsernameCache.isUnknown(username)) {
+            throw userNotFound(username);
+        }
+        return userDetailsCache.get(username, this::loadFromRepository);
+    }
+
+    private UserDetailsImpl loadFromRepository(String username) {
+        long version = unknownUsernameCache.version();
+        Optional<User> user = userRepository.findWithRolesByUsername(username);
+        if (user.isEmpty()) {
+            unknownUsernameCache.recordMiss(username, version);
+            throw userNotFound(username);
+        }
+
+        return UserDetailsImpl.build(user.get());
+    }
 
-        return UserDetailsImpl.build(user);
+    private static UsernameNotFoundException userNotFound(String username) {
+        return new UsernameNotFoundException("User Not Found with username: " + username);
     }
 
 }
@@ -0,0 +1,94 @@
+package com.technicaltest.authentication.security.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.authentication.payload.request.UserExportRequest;
+import com.technicaltest.authentication.payload.response.UserSummary;
+import com.technicaltest.authentication.repository.UserCursor;
+import com.technicaltest.authentication.repository.UserListingRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports every user with its roles, ordered by id, without loading any entity: CSV is written by COPY TO STDOUT,
+ * NDJSON from a server side cursor. The memory use does not depend on the number of users. An interrupted export is
+ * resumed from the id of the last user received.
+ */
+@Service
+@Profile("!reactive")
+public class UserExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserExportService.class);
+
+    public static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+
+    final UserListingRepository userListingRepository;
+
+    final ObjectMapper objectMapper;
+
+    public UserExportService(UserListingRepository userListingRepository, ObjectMapper objectMapper) {
+        this.userListingRepository = userListingRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    public ResponseEntity<StreamingResponseBody> export(UserExportRequest request) {
+        UserFileFormat format = UserFileFormat.valueOf(request.getFormat().toUpperCase());
+        String fileName = "users" + format.getExtension() + (request.isGzip() ? ".gz" : "");
+        StreamingResponseBody body = outputStream -> export(format, request.isGzip(), request.getAfterId(), outputStream);
+        return ResponseEntity.ok()
+                .contentType(request.isGzip() ? APPLICATION_GZIP : format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(fileName).build().toString())
+                .body(body);
+    }
+
+    /**
+     * @return the number of users written
+     */
+    public long export(UserFileFormat format, boolean gzip, long afterId, OutputStream outputStream) throws IOException {
+        long start = System.nanoTime();
+        OutputStream output = gzip ? new GZIPOutputStream(outputStream, 64 * 1024) : outputStream;
+        long users;
+        try {
+            users = format == UserFileFormat.CSV ? userListingRepository.copyCsv(afterId, output) : writeNdjson(afterId, output);
+        } catch (UncheckedIOException uncheckedIOException) {
+            throw uncheckedIOException.getCause();
+        }
+        if (gzip) {
+            ((GZIPOutputStream) output).finish();
+        }
+        output.flush();
+        logger.info("Exported {} users after id {} as {} in {} ms", users, afterId, format, (System.nanoTime() - start) / 1_000_000);
+        return users;
+    }
+
+    private long writeNdjson(long afterId, OutputStream outputStream) {
+        long[] users = {0};
+        UserListingRepository.Filter byId = new UserListingRepository.Filter(null, null, null, "id", false);
+        userListingRepository.stream(byId, new UserCursor("id", "asc", afterId, null), user -> {
+            writeLine(outputStream, user);
+            users[0]++;
+        });
+        return users[0];
+    }
+
+    private void writeLine(OutputStream outputStream, UserSummary user) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(user));
+            outputStream.write('\n');
+        } catch (IOException ioException) {
+            // the client went away, stop reading rows
+            throw new UncheckedIOException(ioException);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.technicaltest.authentication.security.services;
+
+import org.springframework.http.MediaType;
+
+/**
+ * Formats of the user imports and exports.
+ */
+public enum UserFileFormat {
+    CSV(MediaType.parseMediaType("text/csv"), ".csv"),
+    NDJSON(UserListingService.APPLICATION_NDJSON, ".ndjson");
+
+    private static final String GZIP_EXTENSION = ".gz";
+
+    private final MediaType mediaType;
+
+    private final String extension;
+
+    UserFileFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return the format of a content type or a file name, compressed or not, null when it is neither CSV nor NDJSON
+     */
+    public static UserFileFormat of(String contentTypeOrFileName) {
+        String value = contentTypeOrFileName == null ? "" : contentTypeOrFileName.toLowerCase();
+        if (isGzip(value)) {
+            value = value.substring(0, value.length() - GZIP_EXTENSION.length());
+        }
+        if (value.startsWith("text/csv") || value.endsWith(".csv")) {
+            return CSV;
+        }
+        if (value.startsWith("application/x-ndjson") || value.endsWith(".ndjson") || value.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        return null;
+    }
+
+    public static boolean isGzip(String fileName) {
+        return fileName.toLowerCase().endsWith(GZIP_EXTENSION);
+    }
+}
@@ -0,0 +1,295 @@
+package com.technicaltest.authentication.security.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import com.technicaltest.authentication.payload.request.SignupRequest;
+import com.technicaltest.authentication.payload.response.ImportRejection;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.payload.response.UserImportReport;
+import com.technicaltest.authentication.repository.RoleRegistry;
+import com.technicaltest.authentication.repository.UserImportRepository;
+import com.technicaltest.authentication.security.crypto.PooledPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.*;
+
+/**
+ * Imports users from a CSV (username, email and password columns, in the order of the header) or newline delimited
+ * JSON stream. The rows are validated like a {@link SignupRequest}, then handled by batches: their passwords are hashed
+ * in parallel on the hashing pool and the batch is loaded by {@link UserImportRepository}. Only a batch and the first
+ * rejections are held in memory, whatever the size of the stream. The imported users get the user role.
+ */
+@Service
+@Profile("!reactive")
+public class UserImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+
+    final UserImportRepository userImportRepository;
+
+    final RoleRegistry roleRegistry;
+
+    final PooledPasswordEncoder encoder;
+
+    final Validator validator;
+
+    final ObjectMapper objectMapper;
+
+    final UserChangeNotifier userChangeNotifier;
+
+    final int batchSize;
+
+    final int maxReportedRejections;
+
+    public UserImportService(UserImportRepository userImportRepository, RoleRegistry roleRegistry,
+                             PooledPasswordEncoder encoder, Validator validator, ObjectMapper objectMapper,
+                             UserChangeNotifier userChangeNotifier,
+                             @Value("${authorization.app.import.batchSize:1000}") int batchSize,
+                             @Value("${authorization.app.import.maxReportedRejections:1000}") int maxReportedRejections) {
+        this.userImportRepository = userImportRepository;
+        this.roleRegistry = roleRegistry;
+        this.encoder = encoder;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.userChangeNotifier = userChangeNotifier;
+        this.batchSize = batchSize;
+        this.maxReportedRejections = maxReportedRejections;
+    }
+
+    public ResponseEntity<?> importUsers(InputStream input, String contentType) throws IOException {
+        UserFileFormat format = UserFileFormat.of(contentType);
+        if (format == null) {
+            return ResponseEntity
+                    .status(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                    .body(new MessageResponse(UNSUPPORTED_IMPORT_FORMAT));
+        }
+        try {
+            return ResponseEntity.ok(importUsers(input, format));
+        } catch (IllegalArgumentException illegalArgumentException) {
+            return ResponseEntity
+                    .badRequest()
+                    .body(new MessageResponse(illegalArgumentException.getMessage()));
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException when the CSV header does not name the expected columns
+     */
+    public UserImportReport importUsers(InputStream input, UserFileFormat format) throws IOException {
+        Role userRole = roleRegistry.findByName(ERole.ROLE_USER)
+                .orElseThrow(() -> new RuntimeException(ROLE_NOT_FOUND));
+        Import currentImport = new Import(userRole.getId());
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        Map<String, Integer> columns = null;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == UserFileFormat.CSV && columns == null) {
+                columns = csvColumns(line);
+                continue;
+            }
+
+            currentImport.rows++;
+            SignupRequest row = format == UserFileFormat.CSV ? parseCsv(line, columns) : parseJson(line);
+            if (row == null) {
+                currentImport.reject(lineNumber, MALFORMED_ROW);
+                continue;
+            }
+            Set<ConstraintViolation<SignupRequest>> violations = validator.validate(row);
+            if (!violations.isEmpty()) {
+                currentImport.reject(lineNumber, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+                continue;
+            }
+            currentImport.add(lineNumber, row);
+        }
+        currentImport.flush();
+
+        UserImportReport report = currentImport.report();
+        logger.info("Imported {} of {} users in {} ms ({} rows/s), {} rejected", report.getImported(), report.getRows(),
+                report.getDurationMs(), report.getRowsPerSecond(), report.getRejected());
+        return report;
+    }
+
+    private static Map<String, Integer> csvColumns(String header) {
+        List<String> names = parseCsvLine(header);
+        if (names == null || !names.containsAll(List.of("username", "email", "password"))) {
+            throw new IllegalArgumentException(INVALID_CSV_HEADER);
+        }
+        return Map.of("username", names.indexOf("username"),
+                "email", names.indexOf("email"),
+                "password", names.indexOf("password"));
+    }
+
+    private static SignupRequest parseCsv(String line, Map<String, Integer> columns) {
+        List<String> values = parseCsvLine(line);
+        if (values == null || values.size() <= columns.values().stream().mapToInt(Integer::intValue).max().orElse(0)) {
+            return null;
+        }
+        return new SignupRequest(values.get(columns.get("username")), values.get(columns.get("email")),
+                values.get(columns.get("password")));
+    }
+
+    /**
+     * @return the fields of a CSV line, quoted with double quotes when needed, null when a quote is left open
+     */
+    static List<String> parseCsvLine(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder value = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    value.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    value.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(value.toString());
+                value.setLength(0);
+            } else {
+                value.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        values.add(value.toString());
+        return values;
+    }
+
+    private SignupRequest parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, SignupRequest.class);
+        } catch (JsonProcessingException jsonProcessingException) {
+            return null;
+        }
+    }
+
+    /**
+     * State of one import: the pending batch and the counters of the report.
+     */
+    private class Import {
+
+        private final int roleId;
+
+        private final long start = System.nanoTime();
+
+        private final List<Long> lines = new ArrayList<>(batchSize);
+
+        private final List<SignupRequest> pending = new ArrayList<>(batchSize);
+
+        private final List<ImportRejection> rejections = new ArrayList<>();
+
+        private long rows;
+
+        private long imported;
+
+        private long rejected;
+
+        private Import(int roleId) {
+            this.roleId = roleId;
+        }
+
+        private void add(long line, SignupRequest row) {
+            lines.add(line);
+            pending.add(row);
+            if (pending.size() == batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            // the duplicates known before the hashing are rejected without being hashed
+            UserImportRepository.Taken taken = userImportRepository.findTaken(
+                    pending.stream().map(SignupRequest::getUsername).toList(),
+                    pending.stream().map(SignupRequest::getEmail).toList());
+            List<Long> batchLines = new ArrayList<>(pending.size());
+            List<SignupRequest> batchRows = new ArrayList<>(pending.size());
+            for (int i = 0; i < pending.size(); i++) {
+                SignupRequest row = pending.get(i);
+                if (!taken.usernames().add(row.getUsername())) {
+                    reject(lines.get(i), USERNAME_EXISTS);
+                } else if (!taken.emails().add(row.getEmail())) {
+                    reject(lines.get(i), MAIL_EXISTS);
+                } else {
+                    batchLines.add(lines.get(i));
+                    batchRows.add(row);
+                }
+            }
+            lines.clear();
+            pending.clear();
+            if (batchRows.isEmpty()) {
+                return;
+            }
+
+            List<String> hashes = encoder.encodeAll(batchRows.stream().map(SignupRequest::getPassword).toList());
+            List<UserImportRepository.Row> batch = new ArrayList<>(batchRows.size());
+            for (int i = 0; i < batchRows.size(); i++) {
+                SignupRequest row = batchRows.get(i);
+                batch.add(new UserImportRepository.Row(batchLines.get(i), row.getUsername(), row.getEmail(), hashes.get(i)));
+            }
+
+            UserImportRepository.Batch result = userImportRepository.importBatch(batch, roleId);
+            imported += result.imported().size();
+            if (!result.imported().isEmpty()) {
+                // one event per committed batch, not per user
+                userChangeNotifier.usersCreated(result.imported());
+            }
+            result.rejected().entrySet().stream()
+                    .sorted(Map.Entry.comparingByKey())
+                    .forEach(rejection -> reject(rejection.getKey(),
+                            UserImportRepository.DUPLICATE_EMAIL.equals(rejection.getValue()) ? MAIL_EXISTS : USERNAME_EXISTS));
+            logger.debug("Imported {} users, {} rejected so far", imported, rejected);
+        }
+
+        private void reject(long line, String reason) {
+            rejected++;
+            if (rejections.size() < maxReportedRejections) {
+                rejections.add(new ImportRejection(line, reason));
+            }
+        }
+
+        private UserImportReport report() {
+            rejections.sort((first, second) -> Long.compare(first.getLine(), second.getLine()));
+            long durationMs = (System.nanoTime() - start) / 1_000_000;
+            return new UserImportReport(rows, imported, rejected, rejections, durationMs);
+        }
+    }
+}
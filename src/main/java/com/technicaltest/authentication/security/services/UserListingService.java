@@ -0,0 +1,153 @@
+package com.technicaltest.authentication.security.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.payload.request.UserListingRequest;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.payload.response.UserPage;
+import com.technicaltest.authentication.payload.response.UserSummary;
+import com.technicaltest.authentication.repository.UserCursor;
+import com.technicaltest.authentication.repository.UserListingRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.INVALID_CURSOR;
+import static com.technicaltest.authentication.payload.response.MessageResponse.ROLE_NOT_FOUND;
+
+/**
+ * Paged and streamed listings of the users, as {@link UserSummary} projections.
+ */
+@Service
+@Profile("!reactive")
+public class UserListingService {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    final UserListingRepository userListingRepository;
+
+    final ObjectMapper objectMapper;
+
+    final int defaultPageSize;
+
+    final int maxPageSize;
+
+    public UserListingService(UserListingRepository userListingRepository, ObjectMapper objectMapper,
+                              @Value("${authorization.app.userListing.defaultPageSize:50}") int defaultPageSize,
+                              @Value("${authorization.app.userListing.maxPageSize:500}") int maxPageSize) {
+        this.userListingRepository = userListingRepository;
+        this.objectMapper = objectMapper;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    public ResponseEntity<?> findPage(UserListingRequest request) {
+        if (!isKnownRole(request.getRole())) {
+            return badRequest(ROLE_NOT_FOUND);
+        }
+
+        UserCursor after = null;
+        if (request.getCursor() != null) {
+            try {
+                after = UserCursor.decode(request.getCursor());
+            } catch (IllegalArgumentException illegalArgumentException) {
+                return badRequest(INVALID_CURSOR);
+            }
+            if (!after.sort().equals(request.getSort()) || !after.order().equals(request.getOrder())) {
+                return badRequest(INVALID_CURSOR);
+            }
+        }
+
+        int limit = pageSize(request.getLimit());
+        // one extra row tells whether there is a next page
+        List<UserSummary> users = userListingRepository.findPage(toFilter(request), after, limit + 1);
+        if (users.size() <= limit) {
+            return ResponseEntity.ok(new UserPage(users, null));
+        }
+
+        users = users.subList(0, limit);
+        UserSummary last = users.get(limit - 1);
+        UserCursor next = new UserCursor(request.getSort(), request.getOrder(), last.getId(), sortValue(request.getSort(), last));
+        return ResponseEntity.ok(new UserPage(users, next.encode()));
+    }
+
+    /**
+     * One JSON document per line, written while the rows are read, so the memory use does not depend on the number
+     * of users.
+     */
+    public ResponseEntity<StreamingResponseBody> stream(UserListingRequest request) {
+        if (!isKnownRole(request.getRole())) {
+            // the streaming return value handler only takes a streaming body, including for errors
+            byte[] message = writeValueAsBytes(new MessageResponse(ROLE_NOT_FOUND));
+            return ResponseEntity.badRequest().contentType(MediaType.APPLICATION_JSON)
+                    .body(outputStream -> outputStream.write(message));
+        }
+
+        UserListingRepository.Filter filter = toFilter(request);
+        StreamingResponseBody body = outputStream -> {
+            try {
+                userListingRepository.stream(filter, null, user -> writeLine(outputStream, user));
+            } catch (UncheckedIOException uncheckedIOException) {
+                throw uncheckedIOException.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(body);
+    }
+
+    int pageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    private byte[] writeValueAsBytes(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+    private void writeLine(OutputStream outputStream, UserSummary user) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(user));
+            outputStream.write('\n');
+        } catch (IOException ioException) {
+            // the client went away, stop reading rows
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+    private static UserListingRepository.Filter toFilter(UserListingRequest request) {
+        return new UserListingRepository.Filter(request.getUsernamePrefix(), request.getEmailPrefix(), request.getRole(),
+                request.getSort(), "desc".equals(request.getOrder()));
+    }
+
+    private static String sortValue(String sort, UserSummary user) {
+        return switch (sort) {
+            case "username" -> user.getUsername();
+            case "email" -> user.getEmail();
+            default -> String.valueOf(user.getId());
+        };
+    }
+
+    private static boolean isKnownRole(String role) {
+        return role == null || Arrays.stream(ERole.values()).anyMatch(eRole -> eRole.name().equals(role));
+    }
+
+    private static ResponseEntity<MessageResponse> badRequest(String message) {
+        return ResponseEntity
+                .badRequest()
+                .body(new MessageResponse(message));
+    }
+}
@@ -0,0 +1,59 @@
+package com.technicaltest.authentication.security.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers when the grants of a user last changed so that principals rebuilt from token claims
+ * are not trusted once they are older than that change.
+ * Entries are only kept for the stateless principal max age: tokens older than that bound are
+ * always resolved against the database anyway.
+ */
+@Component
+public class UserRevocationRegistry {
+
+    private static final int PRUNE_THRESHOLD = 1024;
+
+    private final Map<String, Long> revocations = new ConcurrentHashMap<>();
+
+    private final long maxAgeMs;
+
+    private volatile long allRevokedAt;
+
+    public UserRevocationRegistry(@Value("${authorization.app.statelessPrincipalMaxAgeMs:300000}") long maxAgeMs) {
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    public void revoke(String username) {
+        long now = System.currentTimeMillis();
+        revocations.put(username, now);
+        if (revocations.size() > PRUNE_THRESHOLD) {
+            revocations.values().removeIf(revokedAt -> now - revokedAt > maxAgeMs);
+        }
+    }
+
+    /**
+     * Used when changes may have been missed: every token issued until now is resolved against the database.
+     */
+    public void revokeAll() {
+        allRevokedAt = System.currentTimeMillis();
+        revocations.clear();
+    }
+
+    public boolean isRevoked(String username, Instant issuedAt) {
+        if (issuedAt == null || issuedAt.toEpochMilli() <= allRevokedAt) {
+            return true;
+        }
+        Long revokedAt = revocations.get(username);
+        // issuedAt has a one second resolution, a token issued during the same second is treated as stale
+        return revokedAt != null && issuedAt.toEpochMilli() <= revokedAt;
+    }
+
+    public boolean isWithinMaxAge(Instant issuedAt) {
+        return issuedAt != null && System.currentTimeMillis() - issuedAt.toEpochMilli() <= maxAgeMs;
+    }
+}
@@ -4,41 +4,94 @@ import com.technicaltest.authentication.models.Role;
 import com.technicaltest.authentication.models.User;
 import com.technicaltest.authentication.payload.request.PasswordChangeRequest;
 import com.technicaltest.authentication.payload.request.UserRoleUpdateRequest;
+import com.technicaltest.authentication.payload.response.BulkItemResult;
 import com.technicaltest.authentication.payload.response.MessageResponse;
-import com.technicaltest.authentication.repository.RoleRepository;
+import com.technicaltest.authentication.repository.RefreshTokenRepository;
+import com.technicaltest.authentication.repository.RoleRegistry;
 import com.technicaltest.authentication.repository.UserRepository;
+import com.technicaltest.authentication.security.crypto.PooledPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.HashSet;
-import java.util.List;
-import java.util.Optional;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.technicaltest.authentication.models.ERole.*;
 import static com.technicaltest.authentication.payload.response.MessageResponse.*;
 import static org.springframework.http.HttpStatus.FORBIDDEN;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 
 @Service
+@Profile("!reactive")
 public class UserService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
     final UserRepository userRepository;
 
-    final RoleRepository roleRepository;
+    final RoleRegistry roleRegistry;
+
+    final PooledPasswordEncoder encoder;
+
+    final UserChangeNotifier userChangeNotifier;
 
-    final PasswordEncoder encoder;
+    final RefreshTokenRepository refreshTokenRepository;
 
-    public UserService(UserRepository userRepository, RoleRepository roleRepository, PasswordEncoder encoder) {
+    final TransactionTemplate transactionTemplate;
+
+    final int bulkChunkSize;
+
+    public UserService(UserRepository userRepository, RoleRegistry roleRegistry, PooledPasswordEncoder encoder,
+                       UserChangeNotifier userChangeNotifier, RefreshTokenRepository refreshTokenRepository,
+                       PlatformTransactionManager transactionManager,
+                       @Value("${authorization.app.bulk.chunkSize:500}") int bulkChunkSize) {
         this.userRepository = userRepository;
-        this.roleRepository = roleRepository;
+        this.roleRegistry = roleRegistry;
         this.encoder = encoder;
+        this.userChangeNotifier = userChangeNotifier;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.bulkChunkSize = bulkChunkSize;
     }
 
     public ResponseEntity<MessageResponse> updateUserRoles(UserRoleUpdateRequest userRoleUpdateRequest) {
-        Optional<User> optionalUser = userRepository.findByUsername(userRoleUpdateRequest.getUsername());
+        ResponseEntity<MessageResponse> response = transactionTemplate.execute(status ->
+                updateRoles(userRoleUpdateRequest, userRepository.findWithRolesByUsername(userRoleUpdateRequest.getUsername())));
+        if (response.getStatusCode().is2xxSuccessful()) {
+            // once committed, so that no node reloads the former roles
+            userChangeNotifier.rolesChanged(userRoleUpdateRequest.getUsername());
+        }
+        return response;
+    }
+
+    public ResponseEntity<List<BulkItemResult>> updateUsersRoles(List<UserRoleUpdateRequest> userRoleUpdateRequests) {
+        return ResponseEntity.ok(applyInChunks(userRoleUpdateRequests, chunk -> transactionTemplate.execute(status -> {
+            Map<String, User> users = userRepository.findAllWithRolesByUsernameIn(usernames(chunk, UserRoleUpdateRequest::getUsername))
+                    .stream().collect(Collectors.toMap(User::getUsername, Function.identity()));
+            return chunk.stream()
+                    .map(update -> result(update.getId(), update.getUsername(),
+                            updateRoles(update, Optional.ofNullable(users.get(update.getUsername())))))
+                    .toList();
+        }), userChangeNotifier::rolesChanged));
+    }
+
+    /**
+     * Runs in a transaction: the roles of the managed user are replaced in place and written by the flush. A merge
+     * would load every newly granted role again.
+     */
+    private ResponseEntity<MessageResponse> updateRoles(UserRoleUpdateRequest userRoleUpdateRequest, Optional<User> optionalUser) {
         if (hasValidCredentials(optionalUser, userRoleUpdateRequest.getId())) {
             return badRequest(USER_NOT_FOUND);
         }
@@ -51,17 +104,18 @@ public class UserService {
         User user = optionalUser.get();
         Set<Role> roles = new HashSet<>();
 
-        try {
-            userRoleUpdateRequest.getRoles().stream().forEach(role -> {
-                roles.add(roleRepository.findByName(valueOf(role))
-                        .orElseThrow(() -> new RuntimeException(ROLE_NOT_FOUND)));
-            });
-            user.setRoles(roles);
-        } catch (RuntimeException runtimeException) {
+        if (userRoleUpdateRequest.getRoles() == null) {
             return badRequest(ROLE_NOT_FOUND);
         }
-
-        userRepository.save(user);
+        for (String roleName : userRoleUpdateRequest.getRoles()) {
+            Optional<Role> role = roleRegistry.findByName(roleName);
+            if (role.isEmpty()) {
+                return badRequest(ROLE_NOT_FOUND);
+            }
+            roles.add(role.get());
+        }
+        user.getRoles().retainAll(roles);
+        user.getRoles().addAll(roles);
 
         return ResponseEntity.ok(new MessageResponse(USER_ROLE_UPDATE_SUCCESS));
     }
@@ -72,16 +126,90 @@ public class UserService {
 
     public ResponseEntity<MessageResponse> changePassword(PasswordChangeRequest passwordChangeRequest) {
         Optional<User> optionalUser = userRepository.findByUsername(passwordChangeRequest.getUsername());
+        ResponseEntity<MessageResponse> response = checkPasswordChange(passwordChangeRequest, optionalUser);
+        if (response.getStatusCode().is2xxSuccessful()) {
+            optionalUser.get().setPassword(encoder.encode(passwordChangeRequest.getPassword()));
+            // the sessions opened with the former password can not be renewed anymore: both or neither are committed
+            transactionTemplate.executeWithoutResult(status -> {
+                userRepository.save(optionalUser.get());
+                refreshTokenRepository.revokeAll(List.of(passwordChangeRequest.getUsername()));
+            });
+            userChangeNotifier.passwordChanged(passwordChangeRequest.getUsername());
+        }
+        return response;
+    }
+
+    /**
+     * The users of a chunk are checked first, then only the passwords of the accepted items are hashed, in parallel on
+     * the hashing pool and before the transaction of the chunk starts, so that no connection is held during the
+     * hashing. The transaction loads the accepted users again and checks them again, in case they changed meanwhile.
+     */
+    public ResponseEntity<List<BulkItemResult>> changePasswords(List<PasswordChangeRequest> passwordChangeRequests) {
+        return ResponseEntity.ok(applyInChunks(passwordChangeRequests, chunk -> {
+            Map<String, User> checkedUsers = usersByUsername(chunk);
+            List<ResponseEntity<MessageResponse>> checks = chunk.stream()
+                    .map(change -> checkPasswordChange(change, Optional.ofNullable(checkedUsers.get(change.getUsername()))))
+                    .toList();
+            List<PasswordChangeRequest> accepted = new ArrayList<>(chunk.size());
+            for (int i = 0; i < chunk.size(); i++) {
+                if (checks.get(i).getStatusCode().is2xxSuccessful()) {
+                    accepted.add(chunk.get(i));
+                }
+            }
+            if (accepted.isEmpty()) {
+                return results(chunk, checks);
+            }
+
+            Iterator<String> hashes = encoder.encodeAll(accepted.stream().map(PasswordChangeRequest::getPassword).toList()).iterator();
+            return transactionTemplate.execute(status -> {
+                Map<String, User> users = usersByUsername(accepted);
+                List<ResponseEntity<MessageResponse>> responses = new ArrayList<>(chunk.size());
+                List<String> changed = new ArrayList<>(accepted.size());
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (!checks.get(i).getStatusCode().is2xxSuccessful()) {
+                        responses.add(checks.get(i));
+                        continue;
+                    }
+                    PasswordChangeRequest change = chunk.get(i);
+                    String hash = hashes.next();
+                    Optional<User> optionalUser = Optional.ofNullable(users.get(change.getUsername()));
+                    ResponseEntity<MessageResponse> response = checkPasswordChange(change, optionalUser);
+                    if (response.getStatusCode().is2xxSuccessful()) {
+                        optionalUser.get().setPassword(hash);
+                        changed.add(change.getUsername());
+                    }
+                    responses.add(response);
+                }
+                if (!changed.isEmpty()) {
+                    refreshTokenRepository.revokeAll(changed);
+                }
+                return results(chunk, responses);
+            });
+        }, userChangeNotifier::passwordChanged));
+    }
+
+    private Map<String, User> usersByUsername(List<PasswordChangeRequest> passwordChangeRequests) {
+        return userRepository.findAllByUsernameIn(usernames(passwordChangeRequests, PasswordChangeRequest::getUsername))
+                .stream().collect(Collectors.toMap(User::getUsername, Function.identity()));
+    }
+
+    private static List<BulkItemResult> results(List<PasswordChangeRequest> passwordChangeRequests,
+                                                List<ResponseEntity<MessageResponse>> responses) {
+        List<BulkItemResult> results = new ArrayList<>(passwordChangeRequests.size());
+        for (int i = 0; i < passwordChangeRequests.size(); i++) {
+            PasswordChangeRequest change = passwordChangeRequests.get(i);
+            results.add(result(change.getId(), change.getUsername(), responses.get(i)));
+        }
+        return results;
+    }
+
+    private ResponseEntity<MessageResponse> checkPasswordChange(PasswordChangeRequest passwordChangeRequest,
+                                                                Optional<User> optionalUser) {
         if (hasValidCredentials(optionalUser, passwordChangeRequest.getId())) {
             return new ResponseEntity(new MessageResponse(USER_NOT_FOUND), FORBIDDEN);
         }
 
         if (isCurrentUser(passwordChangeRequest.getUsername()) || isAdmin()) {
-            User user = optionalUser.get();
-            user.setPassword(encoder.encode(passwordChangeRequest.getPassword()));
-
-            userRepository.save(user);
-
             return ResponseEntity.ok(new MessageResponse(PASSWORD_CHANGE_SUCCESS));
         }
         return new ResponseEntity(new MessageResponse(USER_NOT_FOUND), FORBIDDEN);
@@ -89,8 +217,34 @@ public class UserService {
 
     public ResponseEntity<MessageResponse> deleteUser(Long id) {
         Optional<User> optionalUser = userRepository.findById(id);
-        UserDetailsImpl userDetails = getConnectedUSer();
+        ResponseEntity<MessageResponse> response = deleteUser(optionalUser);
+        if (response.getStatusCode().is2xxSuccessful()) {
+            userChangeNotifier.userDeleted(optionalUser.get().getUsername());
+        }
+        return response;
+    }
+
+    public ResponseEntity<List<BulkItemResult>> deleteUsers(List<Long> ids) {
+        return ResponseEntity.ok(applyInChunks(ids, chunk -> transactionTemplate.execute(status -> {
+            Map<Long, User> users = userRepository.findAllById(new HashSet<>(chunk))
+                    .stream().collect(Collectors.toMap(User::getId, Function.identity()));
+            // the users removed by a former item of the chunk are gone from the map, their repetitions are not found
+            return chunk.stream()
+                    .map(id -> {
+                        Optional<User> optionalUser = Optional.ofNullable(users.get(id));
+                        ResponseEntity<MessageResponse> response = deleteUser(optionalUser);
+                        if (response.getStatusCode().is2xxSuccessful()) {
+                            users.remove(id);
+                        }
+                        return result(id, optionalUser.map(User::getUsername).orElse(null), response);
+                    })
+                    .toList();
+        }), userChangeNotifier::userDeleted));
+    }
+
+    private ResponseEntity<MessageResponse> deleteUser(Optional<User> optionalUser) {
         if (optionalUser.isPresent()) {
+            UserDetailsImpl userDetails = getConnectedUSer();
             if (userDetails.getUsername().equals(optionalUser.get().getUsername())) {
                 return badRequest(CAN_NOT_DELETE_OWN_ACCOUNT);
             }
@@ -100,8 +254,47 @@ public class UserService {
         return badRequest(USER_NOT_FOUND);
     }
 
+    /**
+     * Applies the items chunk by chunk, each chunk in its own transaction whose statements are sent in JDBC batches
+     * on commit. The items of a chunk that could not be committed are reported as failed, the other chunks are kept.
+     * The users are notified once their chunk is committed.
+     */
+    private <T> List<BulkItemResult> applyInChunks(List<T> items, Function<List<T>, List<BulkItemResult>> applyChunk,
+                                                   Consumer<String> notifyChange) {
+        List<BulkItemResult> results = new ArrayList<>(items.size());
+        for (int start = 0; start < items.size(); start += bulkChunkSize) {
+            List<T> chunk = items.subList(start, Math.min(start + bulkChunkSize, items.size()));
+            List<BulkItemResult> chunkResults;
+            try {
+                chunkResults = applyChunk.apply(chunk);
+            } catch (DataAccessException | TransactionException exception) {
+                logger.error("Bulk chunk of {} items from index {} failed: {}", chunk.size(), start, exception.getMessage());
+                chunkResults = chunk.stream()
+                        .map(item -> new BulkItemResult(null, null, INTERNAL_SERVER_ERROR.value(), BULK_CHUNK_FAILED))
+                        .toList();
+            }
+            for (int i = 0; i < chunkResults.size(); i++) {
+                BulkItemResult result = chunkResults.get(i);
+                result.setIndex(start + i);
+                if (HttpStatus.valueOf(result.getStatus()).is2xxSuccessful()) {
+                    notifyChange.accept(result.getUsername());
+                }
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private static <T> Set<String> usernames(List<T> items, Function<T, String> username) {
+        return items.stream().map(username).collect(Collectors.toSet());
+    }
+
+    private static BulkItemResult result(Long id, String username, ResponseEntity<MessageResponse> response) {
+        return new BulkItemResult(id, username, response.getStatusCodeValue(), response.getBody().getMessage());
+    }
+
     public ResponseEntity<List<User>> findAll() {
-        return ResponseEntity.ok(userRepository.findAll());
+        return ResponseEntity.ok(userRepository.findAllWithRoles());
     }
 
     private static boolean isCurrentUser(String username) {
@@ -0,0 +1,72 @@
+package com.technicaltest.authentication.security.throttle;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Address of the client of a sign in, the key of its throttle. The X-Forwarded-For header is only read when the
+ * connection comes from one of {@code authorization.app.loginThrottle.trustedProxies}, addresses or CIDR ranges: the
+ * header is walked from the right, the address appended by the last proxy first, and the first one which is not a
+ * trusted proxy is the client. Without trusted proxies, the default, the header is ignored: a client can not choose its
+ * own address, nor a fresh bucket on every attempt. Both stacks resolve it the same way, the container forwarding
+ * support being disabled.
+ */
+@Component
+public class ClientAddressResolver {
+
+    public static final String FORWARDED_FOR = "X-Forwarded-For";
+
+    // IP literals only: anything else would be resolved by a DNS lookup when matched
+    private static final Pattern IP_LITERAL = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}|[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private final List<IpAddressMatcher> trustedProxies;
+
+    public ClientAddressResolver(@Value("${authorization.app.loginThrottle.trustedProxies:}") String trustedProxies) {
+        this.trustedProxies = Arrays.stream(trustedProxies.split(","))
+                .map(String::strip)
+                .filter(proxy -> !proxy.isEmpty())
+                .map(IpAddressMatcher::new)
+                .toList();
+    }
+
+    /**
+     * @param remoteAddress address of the connection
+     * @param forwardedFor  values of the X-Forwarded-For headers, null or empty without any
+     */
+    public String resolve(String remoteAddress, List<String> forwardedFor) {
+        if (forwardedFor == null || forwardedFor.isEmpty() || !isTrusted(remoteAddress)) {
+            return remoteAddress;
+        }
+        List<String> hops = forwardedFor.stream()
+                .flatMap(header -> Arrays.stream(header.split(",")))
+                .map(String::strip)
+                .filter(hop -> !hop.isEmpty())
+                .toList();
+        String client = remoteAddress;
+        for (int i = hops.size() - 1; i >= 0; i--) {
+            client = hops.get(i);
+            if (!isTrusted(client)) {
+                return client;
+            }
+        }
+        // only trusted proxies: the first of them is the client
+        return client;
+    }
+
+    private boolean isTrusted(String address) {
+        if (address == null || trustedProxies.isEmpty() || !IP_LITERAL.matcher(address).matches()) {
+            return false;
+        }
+        for (IpAddressMatcher trustedProxy : trustedProxies) {
+            if (trustedProxy.matches(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
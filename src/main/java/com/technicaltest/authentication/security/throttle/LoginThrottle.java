@@ -0,0 +1,208 @@
+package com.technicaltest.authentication.security.throttle;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the sign in attempts per client address, and the failed ones per username and client address and per username
+ * from any address, checked before the user is looked up and its password hashed, so that a credential stuffing burst
+ * costs a map lookup per attempt. Each key has a token bucket of
+ * {@code attempts} per {@code periodMs}, held in a single atomic long updated by compare and set (the time at which
+ * the bucket is full again, as in the generic cell rate algorithm): no lock is taken. An attempt made while the bucket
+ * is empty pushes the next admission one more interval away, up to {@code maxBackoffMs}, so that a client insisting
+ * waits longer and longer. The buckets are bounded in number and dropped once idle long enough to be full again.
+ * Every attempt takes a token of its address. Only the failed ones take a token of the username from that address, and
+ * one of the account, the username from any address: the successful sign ins never lock their user out, and failing on
+ * purpose from one address only locks that address out, until the failures from every address together empty the
+ * account. Its higher limit bounds the lookups and hashes a burst spread over many addresses costs for one username.
+ */
+@Component
+public class LoginThrottle {
+
+    static final String REJECTED_COUNTER = "login.throttle.rejected";
+
+    private final boolean enabled;
+
+    private final Limit usernameLimit;
+
+    private final Limit accountLimit;
+
+    private final Limit addressLimit;
+
+    private final long maxBackoffNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final Cache<String, AtomicLong> usernameBuckets;
+
+    private final Cache<String, AtomicLong> accountBuckets;
+
+    private final Cache<String, AtomicLong> addressBuckets;
+
+    private final Counter usernameRejections;
+
+    private final Counter accountRejections;
+
+    private final Counter addressRejections;
+
+    @Autowired
+    public LoginThrottle(@Value("${authorization.app.loginThrottle.enabled:true}") boolean enabled,
+                         @Value("${authorization.app.loginThrottle.maxKeys:100000}") long maxKeys,
+                         @Value("${authorization.app.loginThrottle.username.attempts:5}") int usernameAttempts,
+                         @Value("${authorization.app.loginThrottle.username.periodMs:60000}") long usernamePeriodMs,
+                         @Value("${authorization.app.loginThrottle.account.attempts:100}") int accountAttempts,
+                         @Value("${authorization.app.loginThrottle.account.periodMs:60000}") long accountPeriodMs,
+                         @Value("${authorization.app.loginThrottle.address.attempts:50}") int addressAttempts,
+                         @Value("${authorization.app.loginThrottle.address.periodMs:60000}") long addressPeriodMs,
+                         @Value("${authorization.app.loginThrottle.maxBackoffMs:900000}") long maxBackoffMs,
+                         MeterRegistry meterRegistry) {
+        this(enabled, maxKeys, new Limit(usernameAttempts, Duration.ofMillis(usernamePeriodMs)),
+                new Limit(accountAttempts, Duration.ofMillis(accountPeriodMs)), new Limit(addressAttempts, Duration.ofMillis(addressPeriodMs)), Duration.ofMillis(maxBackoffMs),
+                meterRegistry, System::nanoTime);
+    }
+
+    LoginThrottle(boolean enabled, long maxKeys, Limit usernameLimit, Limit accountLimit, Limit addressLimit,
+                  Duration maxBackoff, MeterRegistry meterRegistry, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.usernameLimit = usernameLimit;
+        this.accountLimit = accountLimit;
+        this.addressLimit = addressLimit;
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.nanoClock = nanoClock;
+        this.usernameBuckets = buckets(maxKeys, usernameLimit, maxBackoff);
+        this.accountBuckets = buckets(maxKeys, accountLimit, maxBackoff);
+        this.addressBuckets = buckets(maxKeys, addressLimit, maxBackoff);
+        this.usernameRejections = rejectionCounter("username", meterRegistry);
+        this.accountRejections = rejectionCounter("account", meterRegistry);
+        this.addressRejections = rejectionCounter("address", meterRegistry);
+    }
+
+    private static Cache<String, AtomicLong> buckets(long maxKeys, Limit limit, Duration maxBackoff) {
+        // a bucket left alone for a period after the longest backoff is full again, like a new one
+        return Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(limit.period().plus(maxBackoff))
+                .build();
+    }
+
+    private static Counter rejectionCounter(String key, MeterRegistry meterRegistry) {
+        return Counter.builder(REJECTED_COUNTER)
+                .description("Sign in attempts rejected before any lookup")
+                .tag("key", key)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes a token from the bucket of the address, then checks that the username still has one from that address, and
+     * from any address.
+     *
+     * @throws LoginThrottledException when one of them is empty
+     */
+    public void acquire(String username, String address) {
+        if (!enabled) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+
+        long waitNanos = acquire(addressBuckets.get(String.valueOf(address), ignored -> new AtomicLong(now)), addressLimit, now, true);
+        if (waitNanos > 0) {
+            addressRejections.increment();
+            throw new LoginThrottledException(toRetryAfterSeconds(waitNanos));
+        }
+        // no bucket yet: the username never failed from that address
+        AtomicLong usernameBucket = usernameBuckets.getIfPresent(usernameKey(username, address));
+        waitNanos = usernameBucket != null ? acquire(usernameBucket, usernameLimit, now, false) : 0;
+        if (waitNanos > 0) {
+            usernameRejections.increment();
+            throw new LoginThrottledException(toRetryAfterSeconds(waitNanos));
+        }
+        AtomicLong accountBucket = accountBuckets.getIfPresent(accountKey(username));
+        waitNanos = accountBucket != null ? acquire(accountBucket, accountLimit, now, false) : 0;
+        if (waitNanos > 0) {
+            accountRejections.increment();
+            throw new LoginThrottledException(toRetryAfterSeconds(waitNanos));
+        }
+    }
+
+    /**
+     * Takes a token from the bucket of the username from that address, and from the one of the account, once the
+     * credentials were rejected.
+     */
+    public void failed(String username, String address) {
+        if (!enabled) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        acquire(usernameBuckets.get(usernameKey(username, address), ignored -> new AtomicLong(now)), usernameLimit, now, true);
+        acquire(accountBuckets.get(accountKey(username), ignored -> new AtomicLong(now)), accountLimit, now, true);
+    }
+
+    /**
+     * The address goes first, it holds no space.
+     */
+    private static String usernameKey(String username, String address) {
+        return address + ' ' + accountKey(username);
+    }
+
+    /**
+     * Usernames are matched whatever their case, so that changing it does not give a new bucket.
+     */
+    private static String accountKey(String username) {
+        return String.valueOf(username).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param take whether an available token is taken, or only checked for
+     * @return 0 when a token is available, else the time before the next one
+     */
+    private long acquire(AtomicLong bucket, Limit limit, long now, boolean take) {
+        while (true) {
+            long fullAt = bucket.get();
+            long base = Math.max(fullAt, now);
+            long waitNanos = base - limit.toleranceNanos() - now;
+            if (waitNanos <= 0) {
+                if (!take || bucket.compareAndSet(fullAt, base + limit.intervalNanos())) {
+                    return 0;
+                }
+            } else {
+                long penalized = Math.max(fullAt,
+                        Math.min(base + limit.intervalNanos(), now + limit.toleranceNanos() + maxBackoffNanos));
+                if (bucket.compareAndSet(fullAt, penalized)) {
+                    return penalized - limit.toleranceNanos() - now;
+                }
+            }
+        }
+    }
+
+    private static long toRetryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    /**
+     * {@code attempts} per {@code period}, all of them usable at once.
+     */
+    record Limit(int attempts, Duration period) {
+
+        long intervalNanos() {
+            return period.toNanos() / attempts;
+        }
+
+        /**
+         * How far ahead of now the full time of the bucket may be while a token is left.
+         */
+        long toleranceNanos() {
+            return period.toNanos() - intervalNanos();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.technicaltest.authentication.security.throttle;
+
+/**
+ * Too many sign in attempts were made for the username or from the client address: the attempt is rejected before
+ * the user is looked up and its password checked.
+ */
+public class LoginThrottledException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public LoginThrottledException(long retryAfterSeconds) {
+        super("Sign in attempts limit exceeded");
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
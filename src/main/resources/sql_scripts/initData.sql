@@ -3,6 +3,19 @@ VALUES (1, 'ROLE_USER') ON CONFLICT DO NOTHING;
 INSERT INTO roles(id, name)
 VALUES (2, 'ROLE_ADMIN') ON CONFLICT DO NOTHING;
 
+-- refresh tokens, not mapped by JPA: only the SHA-256 digest of a token is stored
+CREATE TABLE IF NOT EXISTS refresh_tokens
+(
+    token_hash bytea                    NOT NULL PRIMARY KEY,
+    family_id  bigint                   NOT NULL,
+    user_id    bigint                   NOT NULL REFERENCES users (id) ON DELETE CASCADE,
+    expires_at timestamp with time zone NOT NULL,
+    used       boolean                  NOT NULL DEFAULT false
+);
+CREATE SEQUENCE IF NOT EXISTS refresh_token_families_seq;
+CREATE INDEX IF NOT EXISTS refresh_tokens_family_idx ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS refresh_tokens_user_idx ON refresh_tokens (user_id);
+
 /*
 INSERT INTO users(id, email, password, username)
 VALUES (0, 'admin@admin.lu', '$2a$10$vnbLuJrMxF6brARBGTSo.eUaTc1My.Rf.2bjnsFIcbXEwm1oztF3.',
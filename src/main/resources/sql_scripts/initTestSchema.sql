@@ -41,6 +41,21 @@ CREATE SEQUENCE test.users_id_seq
     NO MINVALUE
     NO MAXVALUE CACHE 1;
 
+CREATE TABLE test.refresh_tokens
+(
+    token_hash bytea                    NOT NULL,
+    family_id  bigint                   NOT NULL,
+    user_id    bigint                   NOT NULL,
+    expires_at timestamp with time zone NOT NULL,
+    used       boolean                  NOT NULL DEFAULT false
+);
+
+CREATE SEQUENCE test.refresh_token_families_seq
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE CACHE 1;
+
 ALTER SEQUENCE test.roles_id_seq OWNED BY test.roles.id;
 
 ALTER TABLE test.users_id_seq OWNER TO postgres;
@@ -72,6 +87,16 @@ ALTER TABLE ONLY test.user_roles
 ALTER TABLE ONLY test.users
     ADD CONSTRAINT users_pkey PRIMARY KEY (id);
 
+ALTER TABLE ONLY test.refresh_tokens
+    ADD CONSTRAINT refresh_tokens_pkey PRIMARY KEY (token_hash);
+
+ALTER TABLE ONLY test.refresh_tokens
+    ADD CONSTRAINT refresh_tokens_user_id_fkey FOREIGN KEY (user_id) REFERENCES test.users(id) ON DELETE CASCADE;
+
+CREATE INDEX refresh_tokens_family_idx ON test.refresh_tokens (family_id);
+
+CREATE INDEX refresh_tokens_user_idx ON test.refresh_tokens (user_id);
+
 ALTER TABLE ONLY test.user_roles
     ADD CONSTRAINT fkh8ciramu9cc9q3qcqiv4ue8a6 FOREIGN KEY (role_id) REFERENCES test.roles(id);
 
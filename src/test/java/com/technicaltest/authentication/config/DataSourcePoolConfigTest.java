@@ -0,0 +1,49 @@
+package com.technicaltest.authentication.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DataSourcePoolConfigTest {
+
+    @Test
+    public void poolSizeIsDerivedFromTheDatabaseCores() {
+        assertThat(DataSourcePoolConfig.poolSize(0, 1, 0, 0)).isEqualTo(3);
+        assertThat(DataSourcePoolConfig.poolSize(0, 8, 0, 0)).isEqualTo(17);
+    }
+
+    @Test
+    public void derivedPoolSizeIsBoundedByTheConcurrencyAndTheConnections() {
+        assertThat(DataSourcePoolConfig.poolSize(0, 8, 10, 0)).isEqualTo(10);
+        assertThat(DataSourcePoolConfig.poolSize(0, 8, 10, 6)).isEqualTo(6);
+        assertThat(DataSourcePoolConfig.poolSize(0, 8, 40, 100)).isEqualTo(17);
+    }
+
+    @Test
+    public void configuredPoolSizeIsKept() {
+        assertThat(DataSourcePoolConfig.poolSize(25, 8, 10, 6)).isEqualTo(25);
+    }
+
+    @Test
+    public void streamingPoolHasNoLeakDetection() {
+        // Setup
+        DataSourceProperties dataSourceProperties = new DataSourceProperties();
+        dataSourceProperties.setUrl("jdbc:postgresql://localhost:32768/postgres");
+
+        // Test
+        try (StreamingDataSource streamingDataSource = new DataSourcePoolConfig()
+                .streamingDataSource(dataSourceProperties, new SimpleMeterRegistry(), 2, 5000)) {
+
+            // Assertions - the connections are only opened by the first export
+            HikariDataSource dataSource = (HikariDataSource) streamingDataSource.get();
+            assertThat(dataSource.getPoolName()).isEqualTo("authentication-streaming");
+            assertThat(dataSource.getLeakDetectionThreshold()).isZero();
+            assertThat(dataSource.getMaximumPoolSize()).isEqualTo(2);
+            assertThat(dataSource.getMinimumIdle()).isZero();
+            assertThat(dataSource.isRunning()).isFalse();
+        }
+    }
+}
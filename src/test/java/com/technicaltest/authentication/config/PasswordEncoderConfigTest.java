@@ -0,0 +1,71 @@
+package com.technicaltest.authentication.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordEncoderConfigTest {
+
+    private final PasswordEncoder encoder = PasswordEncoderConfig.delegatingPasswordEncoder("bcrypt", 5);
+
+    @Test
+    public void newHashesArePrefixedAndCurrent() {
+        // Test
+        String hash = encoder.encode("password");
+
+        // Assertions
+        assertThat(hash).startsWith("{bcrypt}$2a$05$");
+        assertThat(encoder.matches("password", hash)).isTrue();
+        assertThat(encoder.upgradeEncoding(hash)).isFalse();
+    }
+
+    @Test
+    public void legacyHashesStillMatchAndAreUpgraded() {
+        // Setup - hashes stored before the {id} prefix
+        String legacyHash = new BCryptPasswordEncoder(4).encode("password");
+
+        // Test & Assertions
+        assertThat(encoder.matches("password", legacyHash)).isTrue();
+        assertThat(encoder.matches("wrong", legacyHash)).isFalse();
+        assertThat(encoder.upgradeEncoding(legacyHash)).isTrue();
+    }
+
+    @Test
+    public void lowerCostAndOtherAlgorithmsAreUpgraded() {
+        // Setup
+        String weakerHash = PasswordEncoderConfig.delegatingPasswordEncoder("bcrypt", 4).encode("password");
+        String pbkdf2Hash = PasswordEncoderConfig.delegatingPasswordEncoder("pbkdf2", 4).encode("password");
+        String strongerHash = PasswordEncoderConfig.delegatingPasswordEncoder("bcrypt", 6).encode("password");
+
+        // Test & Assertions
+        assertThat(encoder.matches("password", weakerHash)).isTrue();
+        assertThat(encoder.upgradeEncoding(weakerHash)).isTrue();
+        assertThat(encoder.matches("password", pbkdf2Hash)).isTrue();
+        assertThat(encoder.upgradeEncoding(pbkdf2Hash)).isTrue();
+        assertThat(encoder.upgradeEncoding(strongerHash)).isFalse();
+    }
+
+    @Test
+    public void argon2CanBeSelected() {
+        // Setup
+        PasswordEncoder argon2 = PasswordEncoderConfig.delegatingPasswordEncoder("argon2", 5);
+
+        // Test
+        String hash = argon2.encode("password");
+
+        // Assertions
+        assertThat(hash).startsWith("{argon2}");
+        assertThat(argon2.matches("password", hash)).isTrue();
+        assertThat(encoder.matches("password", hash)).isTrue();
+        assertThat(encoder.upgradeEncoding(hash)).isTrue();
+    }
+
+    @Test
+    public void unknownEncoderIsRejected() {
+        assertThatThrownBy(() -> PasswordEncoderConfig.delegatingPasswordEncoder("md5", 5))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -8,13 +8,17 @@ import com.technicaltest.authentication.UserAuthenticationSkeletonApplication;
 import com.technicaltest.authentication.models.Role;
 import com.technicaltest.authentication.models.User;
 import com.technicaltest.authentication.payload.request.LoginRequest;
+import com.technicaltest.authentication.payload.request.RefreshTokenRequest;
 import com.technicaltest.authentication.payload.request.SignupRequest;
 import com.technicaltest.authentication.payload.response.JwtResponse;
 import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.repository.RefreshTokenRepository;
 import com.technicaltest.authentication.repository.RoleRepository;
 import com.technicaltest.authentication.repository.UserRepository;
 import com.technicaltest.authentication.security.jwt.JwtUtils;
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
@@ -22,7 +26,9 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.jdbc.Sql;
@@ -31,9 +37,14 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 import static com.technicaltest.authentication.models.ERole.ROLE_ADMIN;
@@ -42,6 +53,7 @@ import static com.technicaltest.authentication.payload.response.MessageResponse.
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -50,7 +62,8 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         classes = UserAuthenticationSkeletonApplication.class)
 @AutoConfigureMockMvc
 @TestPropertySource(
-        locations = "classpath:application.test.properties")
+        locations = "classpath:application.test.properties",
+        properties = "authorization.app.loginThrottle.username.attempts=5")
 @Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:sql_scripts/initTestSchema.sql")
 @ActiveProfiles({"test"})
 @TestMethodOrder(OrderAnnotation.class)
@@ -68,6 +81,15 @@ class AuthControllerTest {
     @Autowired
     private JwtUtils jwtUtils;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
     @Order(1)
     @Test
     public void authController_IntegrationTests() throws Exception {
@@ -112,6 +134,144 @@ class AuthControllerTest {
         signInIsOkWithValidJwtResponse(username, password, email, roleSetToStringList(expectedUserRoles));
     }
 
+    @Order(2)
+    @Test
+    public void concurrentFirstSignupsMakeASingleAdmin_IntegrationTests() throws Exception {
+        // Test - several signups race for the first account
+        int signups = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(signups);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> statuses = new ArrayList<>();
+            for (int i = 0; i < signups; i++) {
+                String username = "user" + i;
+                statuses.add(executorService.submit(() -> {
+                    start.await();
+                    return doSignUp(convertToJson(new SignupRequest(username, username + "@user.lu", "password")))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+            for (Future<Integer> signupStatus : statuses) {
+                assertThat(signupStatus.get(30, TimeUnit.SECONDS)).isEqualTo(200);
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        // Assertions - exactly one of them is admin
+        List<User> users = userRepository.findAllWithRoles();
+        assertThat(users).hasSize(signups);
+        assertThat(users).filteredOn(user -> user.getRoles().stream().anyMatch(role -> role.getName() == ROLE_ADMIN))
+                .hasSize(1);
+    }
+
+    @Order(3)
+    @Test
+    public void signInThrottling_IntegrationTests() throws Exception {
+        // Setup - the username is limited to 5 failed attempts per minute from an address, the successful ones are free
+        doSignUp(convertToJson(new SignupRequest("stuffed", "stuffed@user.lu", "password"))).andExpect(status().isOk());
+        for (int i = 0; i < 6; i++) {
+            signIn("stuffed", "password");
+        }
+        for (int i = 0; i < 5; i++) {
+            signInShouldFailCaseWrongCredentials("stuffed", "password" + i);
+        }
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // Test - the next attempt is rejected before the user is looked up
+        String result = doSignIn(convertToJson(new LoginRequest("stuffed", "password")))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER))
+                .andReturn().getResponse().getContentAsString();
+
+        // Assertions
+        assertThat(parseJsonResponse(result, MessageResponse.class).getMessage()).isEqualTo(TOO_MANY_SIGN_IN_ATTEMPTS);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+        // a forwarded address is ignored unless the connection comes from a trusted proxy
+        mvc.perform(MockMvcRequestBuilders.post("/api/auth/signin")
+                        .header("X-Forwarded-For", "203.0.113.7")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(convertToJson(new LoginRequest("stuffed", "password"))))
+                .andExpect(status().isTooManyRequests());
+        // the user is not locked out from the other addresses
+        mvc.perform(MockMvcRequestBuilders.post("/api/auth/signin")
+                        .with(request -> {
+                            request.setRemoteAddr("10.0.0.2");
+                            return request;
+                        })
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(convertToJson(new LoginRequest("stuffed", "password"))))
+                .andExpect(status().isOk());
+    }
+
+    @Order(4)
+    @Test
+    public void refreshTokenRotation_IntegrationTests() throws Exception {
+        // Setup
+        doSignUp(convertToJson(new SignupRequest("refreshed", "refreshed@user.lu", "password"))).andExpect(status().isOk());
+        JwtResponse signIn = signIn("refreshed", "password");
+        assertThat(signIn.getRefreshToken()).isNotBlank();
+
+        // Test - a new access token without the password
+        String result = doRefresh(signIn.getRefreshToken())
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        // Assertions
+        JwtResponse refreshed = parseJsonResponse(result, JwtResponse.class);
+        assertThat(refreshed.getId()).isEqualTo(signIn.getId());
+        assertThat(refreshed.getRoles()).containsExactlyInAnyOrderElementsOf(signIn.getRoles());
+        assertThat(jwtUtils.getUserNameFromJwtToken(refreshed.getAccessToken())).isEqualTo("refreshed");
+        assertThat(refreshed.getRefreshToken()).isNotEqualTo(signIn.getRefreshToken());
+
+        // Test & Assertions - the rotated token presented again revokes its successor too
+        doRefresh(signIn.getRefreshToken()).andExpect(status().isUnauthorized());
+        doRefresh(refreshed.getRefreshToken()).andExpect(status().isUnauthorized());
+
+        // Test & Assertions - a sign out revokes the tokens of its sign in only
+        JwtResponse firstSession = signIn("refreshed", "password");
+        JwtResponse secondSession = signIn("refreshed", "password");
+        mvc.perform(MockMvcRequestBuilders.post("/api/auth/signout")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(convertToJson(new RefreshTokenRequest(firstSession.getRefreshToken()))))
+                .andExpect(status().isOk());
+        doRefresh(firstSession.getRefreshToken()).andExpect(status().isUnauthorized());
+        doRefresh(secondSession.getRefreshToken()).andExpect(status().isOk());
+    }
+
+    @Order(5)
+    @Test
+    public void expiredRefreshTokensArePurgedOnRotation_IntegrationTests() throws Exception {
+        // Setup - a user who signs in once then only refreshes
+        doSignUp(convertToJson(new SignupRequest("refreshing", "refreshing@user.lu", "password"))).andExpect(status().isOk());
+        long userId = signIn("refreshing", "password").getId();
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("DELETE FROM refresh_tokens WHERE user_id = ?", userId);
+        Instant now = Instant.now();
+        byte[] first = randomDigest();
+        byte[] second = randomDigest();
+        byte[] third = randomDigest();
+        refreshTokenRepository.insertFamily(first, userId, now, now.plusSeconds(10));
+        assertThat(refreshTokenRepository.rotate(first, second, now, now.plusSeconds(100))).isPresent();
+
+        // Test - the used first token has expired by the next refresh
+        assertThat(refreshTokenRepository.rotate(second, third, now.plusSeconds(20), now.plusSeconds(200))).isPresent();
+
+        // Assertions - the used second token is kept for the reuse detection, the first one is gone
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM refresh_tokens WHERE user_id = ?", Long.class, userId))
+                .isEqualTo(2);
+        assertThat(refreshTokenRepository.revokeReusedFamily(first)).isZero();
+        assertThat(refreshTokenRepository.revokeReusedFamily(second)).isEqualTo(2);
+    }
+
+    private static byte[] randomDigest() {
+        byte[] digest = new byte[32];
+        ThreadLocalRandom.current().nextBytes(digest);
+        return digest;
+    }
+
     private static List<String> roleSetToStringList(Set<Role> expectedAdminRoles) {
         return expectedAdminRoles.stream().map(role -> role.getName().getRoleId()).collect(Collectors.toList());
     }
@@ -192,7 +352,7 @@ class AuthControllerTest {
     }
 
     private void assertSignedUpUser(String username, String email, Set<Role> roles) {
-        Optional<User> user = userRepository.findByUsername(username);
+        Optional<User> user = userRepository.findWithRolesByUsername(username);
         assertThat(user.isPresent()).isTrue();
         assertThat(user.get().getUsername()).isEqualTo(username);
         assertThat(user.get().getEmail()).isEqualTo(email);
@@ -205,6 +365,19 @@ class AuthControllerTest {
                 .content(requestBody));
     }
 
+    private JwtResponse signIn(String username, String password) throws Exception {
+        String result = doSignIn(convertToJson(new LoginRequest(username, password)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return parseJsonResponse(result, JwtResponse.class);
+    }
+
+    private ResultActions doRefresh(String refreshToken) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.post("/api/auth/refresh")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(convertToJson(new RefreshTokenRequest(refreshToken))));
+    }
+
     private ResultActions doSignUp(String body) throws Exception {
         return mvc.perform(MockMvcRequestBuilders.post("/api/auth/signup")
                 .contentType(MediaType.APPLICATION_JSON)
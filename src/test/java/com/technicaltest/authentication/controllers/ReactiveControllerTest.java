@@ -0,0 +1,162 @@
+package com.technicaltest.authentication.controllers;
+
+import com.technicaltest.authentication.UserAuthenticationSkeletonApplication;
+import com.technicaltest.authentication.models.User;
+import com.technicaltest.authentication.payload.request.LoginRequest;
+import com.technicaltest.authentication.payload.request.PasswordChangeRequest;
+import com.technicaltest.authentication.payload.request.SignupRequest;
+import com.technicaltest.authentication.payload.request.UserRoleUpdateRequest;
+import com.technicaltest.authentication.payload.response.JwtResponse;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.*;
+import static java.util.Collections.emptyList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Same contract as {@link AuthControllerTest} and {@link UserControllerTest}, on the reactive profile.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        classes = UserAuthenticationSkeletonApplication.class,
+        properties = "spring.main.web-application-type=reactive")
+@AutoConfigureWebTestClient
+@Import(ReactiveControllerTest.SchemaDataSourceConfig.class)
+@TestPropertySource(
+        locations = "classpath:application.test.properties",
+        properties = "spring.r2dbc.url=r2dbc:postgresql://localhost:32768/postgres?schema=test")
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:sql_scripts/initTestSchema.sql")
+@ActiveProfiles({"test", "reactive"})
+class ReactiveControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * The reactive profile has no JDBC data source, this one only runs the schema script.
+     */
+    @TestConfiguration
+    static class SchemaDataSourceConfig {
+
+        @Bean
+        public DataSource dataSource(@Value("${spring.datasource.url}") String url,
+                                     @Value("${spring.datasource.username}") String username,
+                                     @Value("${spring.datasource.password}") String password) {
+            return new DriverManagerDataSource(url, username, password);
+        }
+    }
+
+    @Test
+    public void reactiveControllers_IntegrationTests() {
+        // Test - SignIn return unauthorized because user was not created yet
+        webTestClient.post().uri("/api/auth/signin").bodyValue(new LoginRequest("admin", "password"))
+                .exchange().expectStatus().isUnauthorized();
+
+        // Test - First user is admin, the second one is a simple user
+        assertMessage(signUp("admin", "admin@email.lu", "password"), HttpStatus.OK, USER_CREATION_SUCCESS);
+        assertMessage(signUp("user", "user@email.lu", "password"), HttpStatus.OK, USER_CREATION_SUCCESS);
+        assertMessage(signUp("user", "other@email.lu", "password"), HttpStatus.BAD_REQUEST, USERNAME_EXISTS);
+        assertMessage(signUp("other", "user@email.lu", "password"), HttpStatus.BAD_REQUEST, MAIL_EXISTS);
+
+        webTestClient.post().uri("/api/auth/signin").bodyValue(new LoginRequest("admin", "wrongPassword"))
+                .exchange().expectStatus().isUnauthorized();
+        JwtResponse admin = signIn("admin", "password");
+        JwtResponse user = signIn("user", "password");
+        assertThat(admin.getRoles()).containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+        assertThat(user.getRoles()).containsExactly("ROLE_USER");
+
+        // Test - only the admin can list the users
+        webTestClient.get().uri("/api/user/fetch").exchange().expectStatus().isUnauthorized();
+        webTestClient.get().uri("/api/user/fetch").header("Authorization", bearer(user))
+                .exchange().expectStatus().isForbidden();
+        assertThat(fetchUsers(admin)).extracting(User::getUsername).containsExactly("admin", "user");
+
+        // Test - password changes, the refresh tokens issued to the user by a servlet node are revoked
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.update("INSERT INTO refresh_tokens (token_hash, family_id, user_id, expires_at) VALUES (?, 1, ?, ?)",
+                new byte[32], user.getId(), Timestamp.from(Instant.now().plusSeconds(60)));
+        assertMessage(webTestClient.patch().uri("/api/user/password").header("Authorization", bearer(user))
+                        .bodyValue(new PasswordChangeRequest(admin.getId(), "admin", "1234567")).exchange(),
+                HttpStatus.FORBIDDEN, USER_NOT_FOUND);
+        assertMessage(webTestClient.patch().uri("/api/user/password").header("Authorization", bearer(user))
+                        .bodyValue(new PasswordChangeRequest(user.getId(), "user", "1234567")).exchange(),
+                HttpStatus.OK, PASSWORD_CHANGE_SUCCESS);
+        signIn("user", "1234567");
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM refresh_tokens WHERE user_id = ?", Long.class, user.getId()))
+                .isZero();
+
+        // Test - role updates, the user without ROLE_USER is suspended
+        assertMessage(webTestClient.put().uri("/api/user/role").header("Authorization", bearer(admin))
+                        .bodyValue(new UserRoleUpdateRequest(admin.getId(), "admin", List.of("ROLE_USER"))).exchange(),
+                HttpStatus.BAD_REQUEST, CAN_NOT_REVOKE_OWN_AUTHORITY);
+        assertMessage(webTestClient.put().uri("/api/user/role").header("Authorization", bearer(admin))
+                        .bodyValue(new UserRoleUpdateRequest(user.getId(), "user", List.of("ROLE_UNKNOWN"))).exchange(),
+                HttpStatus.BAD_REQUEST, ROLE_NOT_FOUND);
+        assertMessage(webTestClient.put().uri("/api/user/role").header("Authorization", bearer(admin))
+                        .bodyValue(new UserRoleUpdateRequest(user.getId(), "user", null)).exchange(),
+                HttpStatus.BAD_REQUEST, ROLE_NOT_FOUND);
+        assertMessage(webTestClient.put().uri("/api/user/role").header("Authorization", bearer(admin))
+                        .bodyValue(new UserRoleUpdateRequest(user.getId(), "user", emptyList())).exchange(),
+                HttpStatus.OK, USER_ROLE_UPDATE_SUCCESS);
+        assertMessage(webTestClient.post().uri("/api/auth/signin").bodyValue(new LoginRequest("user", "1234567")).exchange(),
+                HttpStatus.BAD_REQUEST, ACCOUNT_SUSPENDED);
+
+        // Test - deletion
+        assertMessage(webTestClient.delete().uri("/api/user/delete/" + admin.getId()).header("Authorization", bearer(admin)).exchange(),
+                HttpStatus.BAD_REQUEST, CAN_NOT_DELETE_OWN_ACCOUNT);
+        assertMessage(webTestClient.delete().uri("/api/user/delete/" + user.getId()).header("Authorization", bearer(admin)).exchange(),
+                HttpStatus.OK, USER_DELETION_SUCCESS);
+        assertThat(fetchUsers(admin)).extracting(User::getUsername).containsExactly("admin");
+    }
+
+    private WebTestClient.ResponseSpec signUp(String username, String email, String password) {
+        return webTestClient.post().uri("/api/auth/signup").bodyValue(new SignupRequest(username, email, password)).exchange();
+    }
+
+    private JwtResponse signIn(String username, String password) {
+        return webTestClient.post().uri("/api/auth/signin").bodyValue(new LoginRequest(username, password))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(JwtResponse.class).returnResult().getResponseBody();
+    }
+
+    private List<User> fetchUsers(JwtResponse jwtResponse) {
+        return webTestClient.get().uri("/api/user/fetch").header("Authorization", bearer(jwtResponse))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(User.class).returnResult().getResponseBody();
+    }
+
+    private static void assertMessage(WebTestClient.ResponseSpec response, HttpStatus status, String message) {
+        MessageResponse messageResponse = response.expectStatus().isEqualTo(status)
+                .expectBody(MessageResponse.class).returnResult().getResponseBody();
+        assertThat(messageResponse.getMessage()).isEqualTo(message);
+    }
+
+    private static String bearer(JwtResponse jwtResponse) {
+        return jwtResponse.getTokenType() + " " + jwtResponse.getAccessToken();
+    }
+}
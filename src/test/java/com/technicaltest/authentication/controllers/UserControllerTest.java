@@ -1,36 +1,78 @@
 package com.technicaltest.authentication.controllers;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.technicaltest.authentication.UserAuthenticationSkeletonApplication;
 import com.technicaltest.authentication.models.Role;
 import com.technicaltest.authentication.models.User;
+import com.technicaltest.authentication.payload.request.BulkDeletionRequest;
+import com.technicaltest.authentication.payload.request.BulkPasswordChangeRequest;
+import com.technicaltest.authentication.payload.request.BulkRoleUpdateRequest;
 import com.technicaltest.authentication.payload.request.LoginRequest;
 import com.technicaltest.authentication.payload.request.PasswordChangeRequest;
 import com.technicaltest.authentication.payload.request.SignupRequest;
 import com.technicaltest.authentication.payload.request.UserRoleUpdateRequest;
+import com.technicaltest.authentication.payload.response.BulkItemResult;
+import com.technicaltest.authentication.payload.response.ImportRejection;
 import com.technicaltest.authentication.payload.response.JwtResponse;
 import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.payload.response.UserImportReport;
+import com.technicaltest.authentication.payload.response.UserPage;
+import com.technicaltest.authentication.payload.response.UserSummary;
+import com.technicaltest.authentication.security.services.UserListingService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Order;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import javax.persistence.EntityManagerFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.zip.GZIPInputStream;
 
 import static com.technicaltest.authentication.models.ERole.ROLE_ADMIN;
 import static com.technicaltest.authentication.models.ERole.ROLE_USER;
@@ -39,6 +81,9 @@ import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -46,16 +91,30 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
         webEnvironment = SpringBootTest.WebEnvironment.MOCK,
         classes = UserAuthenticationSkeletonApplication.class)
 @AutoConfigureMockMvc
+@AutoConfigureMetrics
 @TestPropertySource(
-        locations = "classpath:application.test.properties")
+        locations = "classpath:application.test.properties",
+        properties = {"authorization.app.jwt.algorithm=ES256", "authorization.app.jwt.watchKeyFiles=false"})
 @Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:sql_scripts/initTestSchema.sql")
 @ActiveProfiles({"test"})
 @TestMethodOrder(OrderAnnotation.class)
 class UserControllerTest {
 
+    // the keys are only rotated through their files, the test rewrites them before each rotation
+    private static final Path KEY_DIRECTORY = writeKeyFiles(createKeyDirectory());
+
+    @DynamicPropertySource
+    static void keyFiles(DynamicPropertyRegistry registry) {
+        registry.add("authorization.app.jwt.privateKeyFile", () -> KEY_DIRECTORY.resolve("private.pem").toString());
+        registry.add("authorization.app.jwt.publicKeyFile", () -> KEY_DIRECTORY.resolve("public.pem").toString());
+    }
+
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Order(1)
     @Test
     public void userControllerAsAdmin_IntegrationTests() throws Exception {
@@ -186,6 +245,444 @@ class UserControllerTest {
         checkUserIsSuspended(convertToJson(new LoginRequest("user", "password")));
     }
 
+    @Order(4)
+    @Test
+    public void userControllerListing_IntegrationTests() throws Exception {
+        // Setup
+        signUp("admin", "password", "admin@email.lu");
+        signUp("user", "password", "user@email.lu");
+        signUp("bob", "password", "bob@email.lu");
+
+        JwtResponse response = signIn(convertToJson(new LoginRequest("admin", "password")));
+        String bearerHeaderValue = response.getTokenType() + " " + response.getAccessToken();
+
+        // Test - keyset pages sorted by username
+        UserPage firstPage = fetchPage(bearerHeaderValue, "sort=username&limit=2");
+        assertThat(firstPage.getUsers()).extracting(UserSummary::getUsername).containsExactly("admin", "bob");
+        assertThat(firstPage.getUsers().get(0).getRoles()).containsExactly("ROLE_ADMIN", "ROLE_USER");
+        assertThat(firstPage.getNextCursor()).isNotNull();
+
+        UserPage lastPage = fetchPage(bearerHeaderValue, "sort=username&limit=2&cursor=" + firstPage.getNextCursor());
+        assertThat(lastPage.getUsers()).extracting(UserSummary::getUsername).containsExactly("user");
+        assertThat(lastPage.getNextCursor()).isNull();
+
+        assertThat(fetchPage(bearerHeaderValue, "sort=id&order=desc").getUsers())
+                .extracting(UserSummary::getUsername).containsExactly("bob", "user", "admin");
+
+        // Test - filters
+        assertThat(fetchPage(bearerHeaderValue, "role=ROLE_ADMIN").getUsers())
+                .extracting(UserSummary::getUsername).containsExactly("admin");
+        assertThat(fetchPage(bearerHeaderValue, "emailPrefix=b").getUsers())
+                .extracting(UserSummary::getUsername).containsExactly("bob");
+        assertThat(fetchPage(bearerHeaderValue, "usernamePrefix=_").getUsers()).isEmpty();
+
+        // Test - a cursor is only valid for the sort it was issued with, unknown roles are rejected
+        String result = doFetchPage(bearerHeaderValue, "sort=email&cursor=" + firstPage.getNextCursor())
+                .andExpect(status().isBadRequest()).andReturn().getResponse().getContentAsString();
+        assertThat(parseJsonResponse(result, MessageResponse.class).getMessage()).isEqualTo(INVALID_CURSOR);
+        result = doFetchPage(bearerHeaderValue, "role=ROLE_UNKNOWN")
+                .andExpect(status().isBadRequest()).andReturn().getResponse().getContentAsString();
+        assertThat(parseJsonResponse(result, MessageResponse.class).getMessage()).isEqualTo(ROLE_NOT_FOUND);
+        doFetchPage(bearerHeaderValue, "sort=password").andExpect(status().isBadRequest());
+
+        // Test - newline delimited stream
+        MvcResult streamResult = mvc.perform(MockMvcRequestBuilders.get("/api/user/fetch/stream?sort=username")
+                        .header("Authorization", bearerHeaderValue))
+                .andExpect(request().asyncStarted()).andReturn();
+        assertThat(streamResult.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofHours(1).toMillis());
+        String stream = mvc.perform(asyncDispatch(streamResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(UserListingService.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        List<String> lines = stream.lines().toList();
+        assertThat(lines).hasSize(3);
+        assertThat(parseJsonResponse(lines.get(2), UserSummary.class).getUsername()).isEqualTo("user");
+        streamResult = mvc.perform(MockMvcRequestBuilders.get("/api/user/fetch/stream?role=ROLE_UNKNOWN")
+                .header("Authorization", bearerHeaderValue)).andReturn();
+        result = mvc.perform(asyncDispatch(streamResult))
+                .andExpect(status().isBadRequest()).andReturn().getResponse().getContentAsString();
+        assertThat(parseJsonResponse(result, MessageResponse.class).getMessage()).isEqualTo(ROLE_NOT_FOUND);
+
+        // Test - the listings are restricted to the admins
+        JwtResponse userResponse = signIn(convertToJson(new LoginRequest("user", "password")));
+        doFetchPage(userResponse.getTokenType() + " " + userResponse.getAccessToken(), "").andExpect(status().isForbidden());
+    }
+
+    @Order(5)
+    @Test
+    public void userControllerBulk_IntegrationTests() throws Exception {
+        // Setup
+        signUp("admin", "password", "admin@email.lu");
+        signUp("user", "password", "user@email.lu");
+        signUp("bob", "password", "bob@email.lu");
+
+        JwtResponse response = signIn(convertToJson(new LoginRequest("admin", "password")));
+        String bearerHeaderValue = response.getTokenType() + " " + response.getAccessToken();
+
+        // Test - role updates, the admin can not revoke their own grants
+        BulkItemResult[] results = doBulk(MockMvcRequestBuilders.put("/api/user/bulk/role"), bearerHeaderValue,
+                new BulkRoleUpdateRequest(List.of(
+                        new UserRoleUpdateRequest(2L, "user", List.of(ROLE_USER.getRoleId(), ROLE_ADMIN.getRoleId())),
+                        new UserRoleUpdateRequest(1L, "admin", List.of(ROLE_USER.getRoleId())),
+                        new UserRoleUpdateRequest(3L, "bob", List.of("ROLE_UNKNOWN")))));
+        assertThat(results).extracting(BulkItemResult::getMessage)
+                .containsExactly(USER_ROLE_UPDATE_SUCCESS, CAN_NOT_REVOKE_OWN_AUTHORITY, ROLE_NOT_FOUND);
+        assertThat(fetchPage(bearerHeaderValue, "role=ROLE_ADMIN").getUsers())
+                .extracting(UserSummary::getUsername).containsExactly("admin", "user");
+
+        // Test - password resets
+        results = doBulk(MockMvcRequestBuilders.patch("/api/user/bulk/password"), bearerHeaderValue,
+                new BulkPasswordChangeRequest(List.of(
+                        new PasswordChangeRequest(3L, "bob", "newPassword"),
+                        new PasswordChangeRequest(4L, "ghost", "newPassword"))));
+        assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(200, 403);
+        signIn(convertToJson(new LoginRequest("bob", "newPassword")));
+
+        // Test - deletions, the admin can not delete their own account
+        results = doBulk(MockMvcRequestBuilders.post("/api/user/bulk/delete"), bearerHeaderValue,
+                new BulkDeletionRequest(List.of(2L, 1L, 3L, 3L)));
+        assertThat(results).extracting(BulkItemResult::getMessage)
+                .containsExactly(USER_DELETION_SUCCESS, CAN_NOT_DELETE_OWN_ACCOUNT, USER_DELETION_SUCCESS, USER_NOT_FOUND);
+        assertThat(fetchPage(bearerHeaderValue, "").getUsers()).extracting(UserSummary::getUsername).containsExactly("admin");
+
+        // Test - empty requests are rejected
+        mvc.perform(MockMvcRequestBuilders.post("/api/user/bulk/delete")
+                        .header("Authorization", bearerHeaderValue)
+                        .content(convertToJson(new BulkDeletionRequest(emptyList())))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Order(6)
+    @Test
+    public void userControllerImport_IntegrationTests() throws Exception {
+        // Setup
+        signUp("admin", "password", "admin@email.lu");
+
+        JwtResponse response = signIn(convertToJson(new LoginRequest("admin", "password")));
+        String bearerHeaderValue = response.getTokenType() + " " + response.getAccessToken();
+
+        // Test - CSV import, the existing admin and the repeated username are rejected
+        UserImportReport report = doImport(bearerHeaderValue, "text/csv", """
+                username,email,password
+                alice,alice@email.lu,"pass,word"
+                admin,other@email.lu,password
+                alice,alice2@email.lu,password
+                bob,bob@email.lu,password
+                """);
+        assertThat(report.getRows()).isEqualTo(4);
+        assertThat(report.getImported()).isEqualTo(2);
+        assertThat(report.getRejections()).extracting(ImportRejection::getLine).containsExactly(3L, 4L);
+        assertThat(report.getRejections()).extracting(ImportRejection::getReason).containsOnly(USERNAME_EXISTS);
+
+        // Test - the imported users can sign in, with the user role only
+        JwtResponse aliceResponse = signIn(convertToJson(new LoginRequest("alice", "pass,word")));
+        assertThat(aliceResponse.getRoles()).containsExactly(ROLE_USER.getRoleId());
+
+        // Test - NDJSON import
+        report = doImport(bearerHeaderValue, "application/x-ndjson", """
+                {"username": "carl", "email": "carl@email.lu", "password": "password"}
+                {"username": "dave", "email": "bob@email.lu", "password": "password"}
+                """);
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getRejections()).extracting(ImportRejection::getReason).containsExactly(MAIL_EXISTS);
+        assertThat(fetchPage(bearerHeaderValue, "sort=username").getUsers()).extracting(UserSummary::getUsername)
+                .containsExactly("admin", "alice", "bob", "carl");
+
+        // Test - other formats are refused, and the import is restricted to the admins
+        mvc.perform(MockMvcRequestBuilders.post("/api/user/import")
+                        .header("Authorization", bearerHeaderValue)
+                        .content("[]")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isUnsupportedMediaType());
+        mvc.perform(MockMvcRequestBuilders.post("/api/user/import")
+                        .header("Authorization", aliceResponse.getTokenType() + " " + aliceResponse.getAccessToken())
+                        .content("username,email,password\n")
+                        .contentType("text/csv"))
+                .andExpect(status().isForbidden());
+    }
+
+    @Order(7)
+    @Test
+    public void userControllerExport_IntegrationTests() throws Exception {
+        // Setup
+        signUp("admin", "password", "admin@email.lu");
+        signUp("user", "password", "user@email.lu");
+        signUp("bob", "password", "bob@email.lu");
+
+        JwtResponse response = signIn(convertToJson(new LoginRequest("admin", "password")));
+        String bearerHeaderValue = response.getTokenType() + " " + response.getAccessToken();
+
+        // Test - CSV written by COPY, with a header and the roles separated by spaces
+        MockHttpServletResponse csv = doExport(bearerHeaderValue, "");
+        assertThat(csv.getContentType()).isEqualTo("text/csv");
+        assertThat(csv.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"users.csv\"");
+        assertThat(csv.getContentAsString().lines()).containsExactly(
+                "id,username,email,roles",
+                "1,admin,admin@email.lu,ROLE_ADMIN ROLE_USER",
+                "2,user,user@email.lu,ROLE_USER",
+                "3,bob,bob@email.lu,ROLE_USER");
+
+        // Test - compressed NDJSON resumed after the first user
+        MockHttpServletResponse ndjson = doExport(bearerHeaderValue, "format=ndjson&gzip=true&afterId=1");
+        assertThat(ndjson.getContentType()).isEqualTo("application/gzip");
+        List<String> lines = new String(new GZIPInputStream(new ByteArrayInputStream(ndjson.getContentAsByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8).lines().toList();
+        assertThat(lines).hasSize(2);
+        assertThat(parseJsonResponse(lines.get(0), UserSummary.class).getUsername()).isEqualTo("user");
+        assertThat(parseJsonResponse(lines.get(1), UserSummary.class).getRoles()).containsExactly("ROLE_USER");
+
+        // Test - unknown formats are rejected
+        mvc.perform(MockMvcRequestBuilders.get("/api/user/export?format=xml")
+                        .header("Authorization", bearerHeaderValue))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MockHttpServletResponse doExport(String bearerHeaderValue, String query) throws Exception {
+        MvcResult result = mvc.perform(MockMvcRequestBuilders.get("/api/user/export?" + query)
+                        .header("Authorization", bearerHeaderValue))
+                .andExpect(request().asyncStarted()).andReturn();
+        assertThat(result.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofHours(1).toMillis());
+        return mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk()).andReturn().getResponse();
+    }
+
+    private UserImportReport doImport(String bearerHeaderValue, String contentType, String body) throws Exception {
+        String result = mvc.perform(MockMvcRequestBuilders.post("/api/user/import")
+                        .header("Authorization", bearerHeaderValue)
+                        .content(body)
+                        .contentType(contentType))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return parseJsonResponse(result, UserImportReport.class);
+    }
+
+    private BulkItemResult[] doBulk(MockHttpServletRequestBuilder requestBuilder, String bearerHeaderValue, Object body) throws Exception {
+        String result = mvc.perform(requestBuilder
+                        .header("Authorization", bearerHeaderValue)
+                        .content(convertToJson(body))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return parseJsonResponse(result, BulkItemResult[].class);
+    }
+
+    private UserPage fetchPage(String bearerHeaderValue, String query) throws Exception {
+        String result = doFetchPage(bearerHeaderValue, query)
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        return parseJsonResponse(result, UserPage.class);
+    }
+
+    private ResultActions doFetchPage(String bearerHeaderValue, String query) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.get("/api/user/fetch/page?" + query)
+                .header("Authorization", bearerHeaderValue));
+    }
+
+    @Order(8)
+    @Test
+    public void userControllerStatementCounts_IntegrationTests() throws Exception {
+        // Setup
+        signUp("admin", "password", "admin@email.lu");
+        signUp("user", "password", "user@email.lu");
+        signUp("bob", "password", "bob@email.lu");
+
+        JwtResponse response = signIn(convertToJson(new LoginRequest("admin", "password")));
+        String bearerHeaderValue = response.getTokenType() + " " + response.getAccessToken();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // Test - besides the principal loaded with its roles, the users are fetched with theirs by a single statement
+        assertThat(countStatements(statistics, () -> doFetchUsers(bearerHeaderValue).andExpect(status().isOk()))).isEqualTo(2);
+        signUp("carl", "password", "carl@email.lu");
+        signUp("dave", "password", "dave@email.lu");
+        assertThat(countStatements(statistics, () -> doFetchUsers(bearerHeaderValue).andExpect(status().isOk()))).isEqualTo(2);
+
+        // Test - the sign in loads the principal with its roles by a single statement
+        assertThat(countStatements(statistics, () -> signIn(convertToJson(new LoginRequest("bob", "password"))))).isEqualTo(1);
+
+        // Test - a role update loads the user with its roles, then inserts the granted role
+        assertThat(countStatements(statistics, () -> doUpdateRoles(bearerHeaderValue,
+                new UserRoleUpdateRequest(3L, "bob", List.of(ROLE_USER.getRoleId(), ROLE_ADMIN.getRoleId())))
+                .andExpect(status().isOk()))).isEqualTo(3);
+
+        // Test - a password change and a deletion do not load the roles
+        assertThat(countStatements(statistics, () -> doChangePassword(bearerHeaderValue,
+                new PasswordChangeRequest(2L, "user", "newPassword")).andExpect(status().isOk()))).isEqualTo(4);
+        assertThat(countStatements(statistics, () -> doDelete(2L, bearerHeaderValue).andExpect(status().isOk()))).isEqualTo(5);
+    }
+
+    @Order(9)
+    @Test
+    public void connectionPoolMetrics_IntegrationTests() throws Exception {
+        // Setup
+        signUp("admin", "password", "admin@email.lu");
+        signUp("user", "password", "user@email.lu");
+
+        JwtResponse response = signIn(convertToJson(new LoginRequest("admin", "password")));
+        String bearerHeaderValue = response.getTokenType() + " " + response.getAccessToken();
+
+        // Test - the pool wait time, usage and timeouts are scraped, sized from the cores
+        String scrape = mvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus")
+                        .header("Authorization", bearerHeaderValue))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertThat(scrape).contains("hikaricp_connections_acquire_seconds_bucket{pool=\"authentication\"",
+                "hikaricp_connections_active{pool=\"authentication\",}", "hikaricp_connections_idle{pool=\"authentication\",}",
+                "hikaricp_connections_pending{pool=\"authentication\",}", "hikaricp_connections_timeout_total{pool=\"authentication\",}",
+                "hikaricp_connections_max{pool=\"authentication\",} " + (Runtime.getRuntime().availableProcessors() * 2 + 1) + ".0");
+
+        // Test - the metrics are restricted to the admins
+        JwtResponse userResponse = signIn(convertToJson(new LoginRequest("user", "password")));
+        mvc.perform(MockMvcRequestBuilders.get("/actuator/prometheus")
+                        .header("Authorization", userResponse.getTokenType() + " " + userResponse.getAccessToken()))
+                .andExpect(status().isForbidden());
+    }
+
+    @Order(10)
+    @Test
+    public void jwks_IntegrationTests() throws Exception {
+        // Setup
+        signUp("admin", "password", "admin@email.lu");
+        JwtResponse response = signIn(convertToJson(new LoginRequest("admin", "password")));
+        String token = response.getAccessToken();
+
+        // Test - the keys are public and cacheable
+        MockHttpServletResponse jwksResponse = mvc.perform(MockMvcRequestBuilders.get("/.well-known/jwks.json"))
+                .andExpect(status().isOk()).andReturn().getResponse();
+        assertThat(jwksResponse.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("max-age=3600, public");
+        String eTag = jwksResponse.getHeader(HttpHeaders.ETAG);
+        mvc.perform(MockMvcRequestBuilders.get("/.well-known/jwks.json").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+
+        // Test - the token is verified locally with the published key of its kid
+        JsonNode header = new ObjectMapper().readTree(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))));
+        assertThat(header.get("alg").asText()).isEqualTo("ES256");
+        JsonNode jwk = null;
+        for (JsonNode key : new ObjectMapper().readTree(jwksResponse.getContentAsString()).get("keys")) {
+            if (key.get("kid").equals(header.get("kid"))) {
+                jwk = key;
+            }
+        }
+        assertThat(jwk.get("crv").asText()).isEqualTo("P-256");
+        AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+        parameters.init(new ECGenParameterSpec("secp256r1"));
+        PublicKey publicKey = KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(
+                new ECPoint(new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("x").asText())),
+                        new BigInteger(1, Base64.getUrlDecoder().decode(jwk.get("y").asText()))),
+                parameters.getParameterSpec(ECParameterSpec.class)));
+        Signature signature = Signature.getInstance("SHA256withECDSAinP1363Format");
+        signature.initVerify(publicKey);
+        signature.update(token.substring(0, token.lastIndexOf('.')).getBytes(StandardCharsets.US_ASCII));
+        assertThat(signature.verify(Base64.getUrlDecoder().decode(token.substring(token.lastIndexOf('.') + 1)))).isTrue();
+
+        // Assertions - and accepted by the application
+        doFetchUsers(response.getTokenType() + " " + token).andExpect(status().isOk());
+    }
+
+    @Order(11)
+    @Test
+    public void jwtKeyRotation_IntegrationTests() throws Exception {
+        // Setup
+        signUp("admin", "password", "admin@email.lu");
+        signUp("user", "password", "user@email.lu");
+        JwtResponse response = signIn(convertToJson(new LoginRequest("admin", "password")));
+        String bearerHeaderValue = response.getTokenType() + " " + response.getAccessToken();
+        String keyId = keyId(response.getAccessToken());
+
+        // Test - only the admins manage the keys
+        JwtResponse userResponse = signIn(convertToJson(new LoginRequest("user", "password")));
+        mvc.perform(MockMvcRequestBuilders.post("/actuator/jwtkeys")
+                        .header("Authorization", userResponse.getTokenType() + " " + userResponse.getAccessToken()))
+                .andExpect(status().isForbidden());
+
+        // Test - the unchanged key files hold the active key, nothing changes
+        mvc.perform(MockMvcRequestBuilders.post("/actuator/jwtkeys")
+                        .header("Authorization", bearerHeaderValue))
+                .andExpect(status().isOk());
+        assertThat(keyId(signIn(convertToJson(new LoginRequest("admin", "password"))).getAccessToken())).isEqualTo(keyId);
+
+        // Test - publication of the new key files: the new key verifies but does not sign yet
+        writeKeyFiles(KEY_DIRECTORY);
+        String result = mvc.perform(MockMvcRequestBuilders.post("/actuator/jwtkeys")
+                        .header("Authorization", bearerHeaderValue))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        JsonNode keys = new ObjectMapper().readTree(result);
+        assertThat(keys.get(0).get("keyId").asText()).isEqualTo(keyId);
+        assertThat(keys.get(1).get("active").asBoolean()).isFalse();
+        assertThat(keys.get(1).get("activatesAt").isNull()).isFalse();
+        String activeKeyId = keys.get(1).get("keyId").asText();
+        assertThat(keyId(signIn(convertToJson(new LoginRequest("admin", "password"))).getAccessToken())).isEqualTo(keyId);
+
+        // Test - promotion by a second POST: new tokens are signed by the new key, the former tokens stay valid
+        result = mvc.perform(MockMvcRequestBuilders.post("/actuator/jwtkeys")
+                        .header("Authorization", bearerHeaderValue))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        keys = new ObjectMapper().readTree(result);
+        assertThat(keys.get(0).get("active").asBoolean()).isTrue();
+        assertThat(keys.get(0).get("keyId").asText()).isEqualTo(activeKeyId);
+        assertThat(keys.findValuesAsText("keyId")).contains(keyId);
+
+        JwtResponse rotatedResponse = signIn(convertToJson(new LoginRequest("admin", "password")));
+        assertThat(keyId(rotatedResponse.getAccessToken())).isEqualTo(activeKeyId);
+        doFetchUsers(bearerHeaderValue).andExpect(status().isOk());
+        String jwks = mvc.perform(MockMvcRequestBuilders.get("/.well-known/jwks.json"))
+                .andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+        assertThat(new ObjectMapper().readTree(jwks).findValuesAsText("kid")).containsExactlyInAnyOrder(activeKeyId, keyId);
+
+        // Test - a revoked key no longer verifies its tokens
+        String rotatedBearerHeaderValue = rotatedResponse.getTokenType() + " " + rotatedResponse.getAccessToken();
+        mvc.perform(MockMvcRequestBuilders.delete("/actuator/jwtkeys/" + activeKeyId).header("Authorization", rotatedBearerHeaderValue))
+                .andExpect(status().isBadRequest());
+        mvc.perform(MockMvcRequestBuilders.delete("/actuator/jwtkeys/" + keyId).header("Authorization", rotatedBearerHeaderValue))
+                .andExpect(status().isOk());
+
+        // Assertions
+        doFetchUsers(bearerHeaderValue).andExpect(status().isUnauthorized());
+        doFetchUsers(rotatedBearerHeaderValue).andExpect(status().isOk());
+    }
+
+    private static Path createKeyDirectory() {
+        try {
+            Path directory = Files.createTempDirectory("jwt-keys");
+            directory.toFile().deleteOnExit();
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static Path writeKeyFiles(Path directory) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+            generator.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair keyPair = generator.generateKeyPair();
+            writePem(directory.resolve("private.pem"), "PRIVATE KEY", keyPair.getPrivate().getEncoded());
+            writePem(directory.resolve("public.pem"), "PUBLIC KEY", keyPair.getPublic().getEncoded());
+            return directory;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writePem(Path file, String type, byte[] der) throws IOException {
+        Files.writeString(file, "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der)
+                + "\n-----END " + type + "-----\n");
+        file.toFile().deleteOnExit();
+    }
+
+    private static String keyId(String token) throws Exception {
+        return new ObjectMapper().readTree(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.')))).get("kid").asText();
+    }
+
+    /**
+     * @return the statements prepared by Hibernate while the request was handled, none of them loading roles lazily
+     */
+    private static long countStatements(Statistics statistics, Callable<?> request) throws Exception {
+        statistics.clear();
+        request.call();
+        assertThat(statistics.getCollectionFetchCount()).isZero();
+        return statistics.getPrepareStatementCount();
+    }
+
     private void checkUserIsSuspended(String requestBody) throws Exception {
         String result = doSignIn(requestBody)
                 .andExpect(status().isBadRequest()).andReturn().getResponse().getContentAsString();
@@ -222,7 +719,8 @@ class UserControllerTest {
         User[] users = parseJsonResponse(result, User[].class);
         assertThat(users).isNotEmpty();
         assertThat(users.length).isEqualTo(expectedSize);
-        assertThat(users).containsOnlyElementsOf(expectedUSers);
+        // every field, users being equal by username only
+        assertThat(users).usingRecursiveFieldByFieldElementComparator().containsOnlyElementsOf(expectedUSers);
     }
 
     private void checkForbiddenPasswordChange(String bearerHeaderValue, PasswordChangeRequest passwordChangeRequest) throws Exception {
@@ -0,0 +1,132 @@
+package com.technicaltest.authentication.models;
+
+import com.technicaltest.authentication.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.LongConsumer;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Properties of the equals and hashCode of the entities, checked on random ids drawn from the whole id ranges: below
+ * and above the 214748364 bound where the former User.hashCode overflowed, and up to Long.MAX_VALUE.
+ */
+class EntityIdentityTest {
+
+    private static final int SAMPLES = 10_000;
+
+    private static final long SEED = 20_180L;
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, 214_748_364L, 214_748_365L, Integer.MAX_VALUE, 1L << 40, Long.MAX_VALUE})
+    public void userHashIsStableAcrossThePersist(long from) {
+        forEachId(from, id -> {
+            User user = user(null, "user" + id);
+            int transientHash = user.hashCode();
+
+            user.setId(id);
+
+            assertThat(user.hashCode()).isEqualTo(transientHash);
+            assertThat(user).isEqualTo(user(id, "user" + id));
+        });
+    }
+
+    @Test
+    public void usersAreEqualByUsernameOnly() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < SAMPLES; i++) {
+            String username = "user" + random.nextInt(SAMPLES);
+            User user = user(random.nextLong(1, Long.MAX_VALUE), username);
+            User sameUsername = user(random.nextLong(1, Long.MAX_VALUE), username);
+            sameUsername.setEmail("other@email.lu");
+            sameUsername.setPassword("otherPassword");
+            sameUsername.getRoles().add(new Role(ERole.ROLE_ADMIN));
+            User otherUsername = user(user.getId(), username + "x");
+
+            assertThat(user).isEqualTo(sameUsername).hasSameHashCodeAs(sameUsername);
+            assertThat(sameUsername).isEqualTo(user);
+            assertThat(user).isNotEqualTo(otherUsername).isNotEqualTo(null);
+        }
+    }
+
+    @Test
+    public void usersWithoutUsernameAreOnlyEqualToThemselves() {
+        User user = new User();
+        User other = new User();
+
+        assertThat(user).isEqualTo(user).isNotEqualTo(other);
+        assertThat(user.hashCode()).isZero();
+    }
+
+    @Test
+    public void setsOfTransientUsersStillFindThemOncePersisted() {
+        SplittableRandom random = new SplittableRandom(SEED);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < SAMPLES; i++) {
+            users.add(user(null, "user" + i));
+        }
+        Set<User> set = new HashSet<>(users);
+
+        users.forEach(user -> user.setId(random.nextLong(1, Long.MAX_VALUE)));
+
+        assertThat(set).hasSize(SAMPLES);
+        assertThat(users).allMatch(set::contains);
+    }
+
+    @Test
+    public void rolesAreEqualByName() {
+        for (ERole name : ERole.values()) {
+            Role role = new Role(name);
+            int transientHash = role.hashCode();
+            role.setId(name.ordinal() + 1);
+            Role detached = new Role(name);
+            detached.setId(Integer.MAX_VALUE);
+
+            assertThat(role.hashCode()).isEqualTo(transientHash).isEqualTo(detached.hashCode());
+            assertThat(role).isEqualTo(detached).isEqualTo(new Role(name));
+        }
+        assertThat(new Role(ERole.ROLE_USER)).isNotEqualTo(new Role(ERole.ROLE_ADMIN));
+        assertThat(new Role()).isNotEqualTo(new Role());
+        assertThat(new HashSet<>(List.of(new Role(ERole.ROLE_USER), new Role(ERole.ROLE_ADMIN)))).contains(new Role(ERole.ROLE_ADMIN));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1L, Integer.MAX_VALUE, Long.MAX_VALUE})
+    public void userDetailsHashIsConsistentWithEquals(long from) {
+        forEachId(from, id -> {
+            UserDetailsImpl userDetails = new UserDetailsImpl(id, "user", "user@email.lu", "password", List.of());
+            UserDetailsImpl sameId = new UserDetailsImpl(id, "renamed", "other@email.lu", "other", List.of());
+
+            assertThat(userDetails).isEqualTo(sameId).hasSameHashCodeAs(sameId);
+            assertThat(new HashSet<>(List.of(userDetails))).contains(sameId);
+        });
+    }
+
+    /**
+     * Runs the check on random ids around the given one, within the positive longs.
+     */
+    private static void forEachId(long from, LongConsumer check) {
+        SplittableRandom random = new SplittableRandom(SEED ^ from);
+        LongSupplier ids = () -> from == Long.MAX_VALUE
+                ? random.nextLong(Long.MAX_VALUE - SAMPLES, Long.MAX_VALUE)
+                : random.nextLong(from, Math.min(Long.MAX_VALUE, from + 1_000_000_000L));
+        for (int i = 0; i < SAMPLES; i++) {
+            check.accept(ids.getAsLong());
+        }
+        check.accept(from);
+    }
+
+    private static User user(Long id, String username) {
+        User user = new User(username, username + "@email.lu", "password");
+        user.setId(id);
+        return user;
+    }
+}
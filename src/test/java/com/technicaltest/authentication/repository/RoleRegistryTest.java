@@ -0,0 +1,76 @@
+package com.technicaltest.authentication.repository;
+
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoleRegistryTest {
+
+    @Mock
+    private RoleRepository roleRepository;
+
+    @InjectMocks
+    private RoleRegistry roleRegistry;
+
+    @Test
+    public void rolesAreServedFromMemoryOnceLoaded() {
+        // Setup
+        Role userRole = role(1, ERole.ROLE_USER);
+        Role adminRole = role(2, ERole.ROLE_ADMIN);
+        doReturn(List.of(userRole, adminRole)).when(roleRepository).findAll();
+        roleRegistry.load();
+
+        // Test
+        for (int i = 0; i < 10; i++) {
+            assertThat(roleRegistry.findByName(ERole.ROLE_USER)).containsSame(userRole);
+            assertThat(roleRegistry.findByName("ROLE_ADMIN")).containsSame(adminRole);
+        }
+
+        // Assertions
+        verify(roleRepository, times(1)).findAll();
+    }
+
+    @Test
+    public void unknownRoleNamesAreNotLookedUp() {
+        // Test
+        assertThat(roleRegistry.findByName("randomString")).isEmpty();
+        assertThat(roleRegistry.findByName((String) null)).isEmpty();
+
+        // Assertions
+        verifyNoInteractions(roleRepository);
+    }
+
+    @Test
+    public void missingRoleTriggersAReload() {
+        // Setup - the roles table was still empty at startup
+        Role adminRole = role(2, ERole.ROLE_ADMIN);
+        doThrow(new DataAccessResourceFailureException("relation \"roles\" does not exist"))
+                .doReturn(List.of(adminRole))
+                .when(roleRepository).findAll();
+        roleRegistry.load();
+
+        // Test
+        assertThat(roleRegistry.findByName(ERole.ROLE_ADMIN)).containsSame(adminRole);
+        assertThat(roleRegistry.findByName(ERole.ROLE_USER)).isEmpty();
+
+        // Assertions
+        verify(roleRepository, times(3)).findAll();
+    }
+
+    private static Role role(Integer id, ERole name) {
+        Role role = new Role(name);
+        role.setId(id);
+        return role;
+    }
+}
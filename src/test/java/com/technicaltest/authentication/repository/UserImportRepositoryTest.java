@@ -0,0 +1,83 @@
+package com.technicaltest.authentication.repository;
+
+import com.technicaltest.authentication.UserAuthenticationSkeletonApplication;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        classes = UserAuthenticationSkeletonApplication.class)
+@AutoConfigureMockMvc
+@TestPropertySource(
+        locations = "classpath:application.test.properties",
+        properties = "authorization.app.loginThrottle.username.attempts=5")
+@Sql(executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD, scripts = "classpath:sql_scripts/initTestSchema.sql")
+@ActiveProfiles({"test"})
+class UserImportRepositoryTest {
+
+    private static final int ROLE_USER_ID = 1;
+
+    @Autowired
+    private UserImportRepository userImportRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    public void rowsSkippedByAConcurrentSignupAreReportedWithTheTakenColumn() throws Exception {
+        // Setup - a signup holds the email of one row and the username of another, not committed yet
+        try (Connection signup = dataSource.getConnection()) {
+            signup.setAutoCommit(false);
+            try (PreparedStatement statement = signup.prepareStatement(
+                    "INSERT INTO users (username, email, password) VALUES ('carl', 'dave@email.lu', 'hash'), "
+                            + "('erin', 'carl@email.lu', 'hash')")) {
+                statement.executeUpdate();
+            }
+
+            // Test - the duplicates checks do not see the signup, the insert waits for it
+            CompletableFuture<UserImportRepository.Batch> batch = CompletableFuture.supplyAsync(() ->
+                    userImportRepository.importBatch(List.of(
+                            new UserImportRepository.Row(1, "bob", "bob@email.lu", "hash"),
+                            new UserImportRepository.Row(2, "dave", "dave@email.lu", "hash"),
+                            new UserImportRepository.Row(3, "erin", "erin@email.lu", "hash")), ROLE_USER_ID));
+            awaitInsertBlocked();
+            signup.commit();
+
+            // Assertions
+            UserImportRepository.Batch result = batch.get(10, TimeUnit.SECONDS);
+            assertThat(result.imported()).containsExactly("bob");
+            assertThat(result.rejected()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                    2L, UserImportRepository.DUPLICATE_EMAIL,
+                    3L, UserImportRepository.DUPLICATE_USERNAME));
+        }
+    }
+
+    private void awaitInsertBlocked() throws InterruptedException {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        for (int i = 0; i < 100; i++) {
+            Integer blocked = jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity "
+                    + "WHERE wait_event_type = 'Lock' AND query LIKE 'WITH inserted AS%'", Integer.class);
+            if (blocked != null && blocked > 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("The import did not wait for the signup");
+    }
+}
@@ -0,0 +1,29 @@
+package com.technicaltest.authentication.security.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BCryptStrengthCalibratorTest {
+
+    @Test
+    public void strengthForDoublesTheWorkPerStep() {
+        Duration budget = Duration.ofMillis(50);
+
+        assertThat(BCryptStrengthCalibrator.strengthFor(budget, Duration.ofMillis(12))).isEqualTo(12);
+        assertThat(BCryptStrengthCalibrator.strengthFor(budget, Duration.ofMillis(13))).isEqualTo(11);
+        assertThat(BCryptStrengthCalibrator.strengthFor(budget, Duration.ofMillis(50))).isEqualTo(10);
+    }
+
+    @Test
+    public void strengthForStaysWithinBounds() {
+        Duration budget = Duration.ofMillis(50);
+
+        assertThat(BCryptStrengthCalibrator.strengthFor(budget, Duration.ofMillis(200)))
+                .isEqualTo(BCryptStrengthCalibrator.MIN_STRENGTH);
+        assertThat(BCryptStrengthCalibrator.strengthFor(budget, Duration.ZERO))
+                .isEqualTo(BCryptStrengthCalibrator.MAX_STRENGTH);
+    }
+}
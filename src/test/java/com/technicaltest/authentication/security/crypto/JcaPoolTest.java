@@ -0,0 +1,72 @@
+package com.technicaltest.authentication.security.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JcaPoolTest {
+
+    private final AtomicInteger created = new AtomicInteger();
+
+    private final Supplier<MessageDigest> factory = () -> {
+        created.incrementAndGet();
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    };
+
+    @Test
+    public void instancesAreReusedByNewThreads() throws Exception {
+        // Setup - a new thread per operation, as with one virtual thread per request
+        JcaPool<MessageDigest> pool = new JcaPool<>(factory, 2);
+
+        // Test
+        for (int i = 0; i < 10; i++) {
+            CompletableFuture.runAsync(() -> {
+                MessageDigest digest = pool.acquire();
+                digest.digest(new byte[]{1});
+                pool.release(digest);
+            }, command -> new Thread(command).start()).get(5, TimeUnit.SECONDS);
+        }
+
+        // Assertions - the instance created with the pool served them all
+        assertThat(created.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void poolGrowsWhenEmptyAndKeepsAtMostItsCapacity() {
+        // Setup
+        JcaPool<MessageDigest> pool = new JcaPool<>(factory, 2);
+
+        // Test - three operations at once
+        MessageDigest first = pool.acquire();
+        MessageDigest second = pool.acquire();
+        MessageDigest third = pool.acquire();
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+
+        // Assertions - the third one was dropped
+        assertThat(created.get()).isEqualTo(3);
+        assertThat(pool.acquire()).isSameAs(first);
+        assertThat(pool.acquire()).isSameAs(second);
+        assertThat(pool.acquire()).isNotSameAs(third);
+    }
+
+    @Test
+    public void creationFailsWithThePool() {
+        assertThatThrownBy(() -> new JcaPool<>(() -> {
+            throw new IllegalStateException("HS512 is not available");
+        })).isInstanceOf(IllegalStateException.class);
+    }
+}
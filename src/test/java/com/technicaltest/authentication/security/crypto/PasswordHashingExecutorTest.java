@@ -0,0 +1,160 @@
+package com.technicaltest.authentication.security.crypto;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private PasswordHashingExecutor executor;
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void executeRunsOnThePool() {
+        // Setup
+        executor = new PasswordHashingExecutor(1, 0, 0, 1, meterRegistry);
+
+        // Test
+        String threadName = executor.execute("encode", () -> Thread.currentThread().getName());
+
+        // Assertions
+        assertThat(threadName).startsWith("password-hashing-");
+        assertThat(meterRegistry.get(PasswordHashingExecutor.HASHING_TIMER).tag("operation", "encode").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void executeFailsFastWhenSaturated() throws Exception {
+        // Setup - one thread, no queue, the only slot is busy
+        executor = new PasswordHashingExecutor(1, 0, 0, 7, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> busy = CompletableFuture.supplyAsync(() -> executor.execute("matches", () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return true;
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Test & Assertions
+        assertThatThrownBy(() -> executor.execute("matches", () -> true))
+                .isInstanceOf(PasswordHashingRejectedException.class)
+                .extracting("retryAfterSeconds").isEqualTo(7L);
+        assertThat(meterRegistry.get(PasswordHashingExecutor.REJECTED_COUNTER).counter().count()).isEqualTo(1);
+
+        // The slot is given back once the hash is done
+        release.countDown();
+        assertThat(busy.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(executor.execute("matches", () -> true)).isTrue();
+    }
+
+    @Test
+    public void executeRethrowsHashingFailures() {
+        // Setup
+        executor = new PasswordHashingExecutor(1, 0, 0, 1, meterRegistry);
+
+        // Test & Assertions
+        assertThatThrownBy(() -> executor.execute("encode", () -> {
+            throw new IllegalArgumentException("rawPassword cannot be null");
+        })).isInstanceOf(IllegalArgumentException.class);
+        assertThat(executor.execute("encode", () -> "hash")).isEqualTo("hash");
+    }
+
+    @Test
+    public void tryExecuteAsyncSkipsWhenSaturatedAndRunsNestedHashesInline() throws Exception {
+        // Setup
+        executor = new PasswordHashingExecutor(1, 0, 0, 1, meterRegistry);
+        CompletableFuture<String> nested = new CompletableFuture<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Test - the background task holds the only slot and hashes again from the pool
+        boolean accepted = executor.tryExecuteAsync("rehash", () -> {
+            nested.complete(executor.execute("encode", () -> Thread.currentThread().getName()));
+            awaitQuietly(release);
+        });
+        String nestedThread = nested.get(5, TimeUnit.SECONDS);
+        boolean acceptedWhileBusy = executor.tryExecuteAsync("rehash", () -> { });
+        release.countDown();
+
+        // Assertions
+        assertThat(accepted).isTrue();
+        assertThat(nestedThread).startsWith("password-hashing-");
+        assertThat(acceptedWhileBusy).isFalse();
+        assertThat(meterRegistry.get(PasswordHashingExecutor.SKIPPED_COUNTER).counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get(PasswordHashingExecutor.REJECTED_COUNTER).counter().count()).isZero();
+    }
+
+    @Test
+    public void executeAllGivesBackItsSlotWhenInterrupted() throws Exception {
+        // Setup - one thread, no queue, the only slot is busy
+        executor = new PasswordHashingExecutor(1, 0, 0, 1, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> busy = CompletableFuture.supplyAsync(() -> executor.execute("matches", () -> {
+            started.countDown();
+            awaitQuietly(release);
+            return true;
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread batch = new Thread(() -> {
+            try {
+                executor.executeAll("encode", List.of(() -> "hash"));
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        });
+
+        // Test - the batch holds the only batch slot while it waits for the busy one
+        batch.start();
+        while (batch.getState() != Thread.State.WAITING) {
+            assertThat(batch.isAlive()).isTrue();
+            Thread.onSpinWait();
+        }
+        batch.interrupt();
+        batch.join(5000);
+
+        // Assertions - the next batch gets the batch slot back
+        assertThat(failure.get()).isInstanceOf(IllegalStateException.class);
+        release.countDown();
+        assertThat(busy.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(CompletableFuture.supplyAsync(() -> executor.executeAll("encode", List.of(() -> "hash")))
+                .get(5, TimeUnit.SECONDS)).containsExactly("hash");
+    }
+
+    @Test
+    public void executeAllGivesBackItsSlotWhenRejected() throws Exception {
+        // Setup - one thread, the pool no longer accepts work
+        executor = new PasswordHashingExecutor(1, 0, 0, 1, meterRegistry);
+        executor.shutdown();
+
+        // Test & Assertions - each rejected batch gives back its batch slot, the second one does not wait for it
+        assertThatThrownBy(() -> executor.executeAll("encode", List.of(() -> "hash")))
+                .isInstanceOf(RejectedExecutionException.class);
+        assertThat(CompletableFuture.runAsync(() -> assertThatThrownBy(() -> executor.executeAll("encode", List.of(() -> "hash")))
+                .isInstanceOf(RejectedExecutionException.class)).get(5, TimeUnit.SECONDS)).isNull();
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
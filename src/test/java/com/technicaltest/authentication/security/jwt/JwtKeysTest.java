@@ -0,0 +1,325 @@
+package com.technicaltest.authentication.security.jwt;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.authentication.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.technicaltest.authentication.models.ERole.ROLE_USER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class JwtKeysTest {
+
+    private static final String SECRET = "secretKey";
+
+    private static final UserDetailsImpl USER = new UserDetailsImpl(1L, "admin", "admin@email.lu", null,
+            List.of(new SimpleGrantedAuthority(ROLE_USER.getRoleId())));
+
+    @Test
+    public void rotationKeepsTheRetiringKeyUntilItsTokensExpire() throws Exception {
+        // Setup
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.ES256, "", "", "", "", 60000, 0);
+        JwtUtils jwtUtils = jwtUtils(jwtKeys);
+        String legacyToken = jwtUtils(new JwtKeys(SECRET, JwsAlgorithm.HS512, "", "", "", "", 60000, 0)).generateJwtToken(USER);
+        String before = jwtUtils.generateJwtToken(USER);
+        String retiringKeyId = jwtKeys.getSigningKey().getKeyId();
+
+        // Test
+        assertThat(jwtKeys.rotate(JwtKey.generate(JwsAlgorithm.ES256))).isTrue();
+        String after = jwtUtils.generateJwtToken(USER);
+
+        // Assertions
+        assertThat(jwtKeys.getSigningKey().getKeyId()).isNotEqualTo(retiringKeyId);
+        assertThat(jwtUtils.verifyJwtToken(before).getSubject()).isEqualTo("admin");
+        assertThat(jwtUtils.verifyJwtToken(after).getSubject()).isEqualTo("admin");
+        assertThat(jwtUtils.verifyJwtToken(legacyToken).getSubject()).isEqualTo("admin");
+        assertThat(jwtKeys.getKeyStatuses()).extracting(JwtKeys.KeyStatus::keyId, JwtKeys.KeyStatus::active)
+                .containsExactlyInAnyOrder(
+                        tuple(jwtKeys.getSigningKey().getKeyId(), true),
+                        tuple(retiringKeyId, false),
+                        tuple(null, false));
+        assertThat(jwtKeys.getKeyStatuses()).filteredOn(status -> !status.active())
+                .allSatisfy(status -> assertThat(status.retiresAt()).isNotNull());
+        List<String> publishedKeyIds = new ArrayList<>();
+        new ObjectMapper().readTree(jwtKeys.getJwks()).get("keys").forEach(key -> publishedKeyIds.add(key.get("kid").asText()));
+        assertThat(publishedKeyIds).containsExactlyInAnyOrder(jwtKeys.getSigningKey().getKeyId(), retiringKeyId);
+    }
+
+    @Test
+    public void incomingKeyVerifiesBeforeItSigns() throws Exception {
+        // Setup - the rejected tokens are cached
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.ES256, "", "", "", "", 60000, 3600);
+        JwtUtils jwtUtils = new JwtUtils(jwtKeys, 60000, true, new VerifiedTokenCache(true, 100, true, 100, 60000, new SimpleMeterRegistry()));
+        String activeKeyId = jwtKeys.getSigningKey().getKeyId();
+        JwtKeys peer = new JwtKeys(SECRET, JwsAlgorithm.ES256, "", "", "", "", 60000, 0);
+        String peerToken = jwtUtils(peer).generateJwtToken(USER);
+        assertThat(jwtUtils.verifyJwtToken(peerToken)).isNull();
+
+        // Test - publication
+        assertThat(jwtKeys.rotate(peer.getSigningKey())).isTrue();
+        assertThat(jwtKeys.rotate(peer.getSigningKey())).isFalse();
+
+        // Assertions - published and verifying, not signing yet
+        assertThat(jwtUtils.verifyJwtToken(peerToken).getSubject()).isEqualTo("admin");
+        assertThat(keyId(jwtUtils.generateJwtToken(USER))).isEqualTo(activeKeyId);
+        assertThat(jwtKeys.getKeyStatuses()).extracting(JwtKeys.KeyStatus::keyId, JwtKeys.KeyStatus::active)
+                .containsExactly(tuple(activeKeyId, true), tuple(peer.getSigningKey().getKeyId(), false), tuple(null, false));
+        assertThat(jwtKeys.getKeyStatuses().get(1).activatesAt()).isAfter(Instant.now().plusSeconds(3500));
+        List<String> publishedKeyIds = new ArrayList<>();
+        new ObjectMapper().readTree(jwtKeys.getJwks()).get("keys").forEach(key -> publishedKeyIds.add(key.get("kid").asText()));
+        assertThat(publishedKeyIds).containsExactly(activeKeyId, peer.getSigningKey().getKeyId());
+
+        // Test - promotion
+        assertThat(jwtKeys.promote()).isTrue();
+        assertThat(jwtKeys.promote()).isFalse();
+
+        // Assertions - signing, the former key retiring
+        assertThat(keyId(jwtUtils.generateJwtToken(USER))).isEqualTo(peer.getSigningKey().getKeyId());
+        assertThat(jwtKeys.getKeyStatuses()).extracting(JwtKeys.KeyStatus::keyId, JwtKeys.KeyStatus::active)
+                .containsExactlyInAnyOrder(tuple(peer.getSigningKey().getKeyId(), true), tuple(activeKeyId, false), tuple(null, false));
+    }
+
+    @Test
+    public void incomingKeyIsPromotedAfterTheJwksMaxAge() throws Exception {
+        // Setup
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.EdDSA, "", "", "", "", 60000, 1);
+        String activeKeyId = jwtKeys.getSigningKey().getKeyId();
+
+        // Test
+        JwtKey incoming = JwtKey.generate(JwsAlgorithm.EdDSA);
+        assertThat(jwtKeys.rotate(incoming)).isTrue();
+        assertThat(jwtKeys.rotate(incoming)).isFalse();
+        String incomingKeyId = jwtKeys.getKeyStatuses().get(1).keyId();
+
+        // Assertions
+        assertThat(jwtKeys.getSigningKey().getKeyId()).isEqualTo(activeKeyId);
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!jwtKeys.getSigningKey().getKeyId().equals(incomingKeyId) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(jwtKeys.getSigningKey().getKeyId()).isEqualTo(incomingKeyId);
+    }
+
+    @Test
+    public void retiredKeysNoLongerVerify() throws Exception {
+        // Setup - the tokens expire at once
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.EdDSA, "", "", "", "", 0, 0);
+        JwtUtils jwtUtils = jwtUtils(jwtKeys);
+        String before = jwtUtils.generateJwtToken(USER);
+        String legacyToken = jwtUtils(new JwtKeys(SECRET, JwsAlgorithm.HS512, "", "", "", "", 60000, 0)).generateJwtToken(USER);
+        String eTag = jwtKeys.getJwksETag();
+
+        // Test
+        jwtKeys.rotate(JwtKey.generate(JwsAlgorithm.EdDSA));
+        jwtKeys.advance();
+
+        // Assertions
+        assertThat(jwtUtils.verifyJwtToken(before)).isNull();
+        assertThat(jwtUtils.verifyJwtToken(legacyToken)).isNull();
+        assertThat(jwtKeys.getKeyStatuses()).hasSize(1);
+        JsonNode keys = new ObjectMapper().readTree(jwtKeys.getJwks()).get("keys");
+        assertThat(keys).hasSize(1);
+        assertThat(keys.get(0).get("kid").asText()).isEqualTo(jwtKeys.getSigningKey().getKeyId());
+        assertThat(jwtKeys.getJwksETag()).isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void legacyTokensAreRejectedAfterTheMigrationWindow() {
+        // Setup - an HS512 token signed with jwtSecret, which has a well known default value
+        String legacyToken = jwtUtils(new JwtKeys(SECRET, JwsAlgorithm.HS512, "", "", "", "", 60000, 0)).generateJwtToken(USER);
+
+        // Test - the tokens issued before the startup expire at once
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.RS256, "", "", "", "", 0, 0);
+
+        // Assertions - neither by the fast path nor by the jjwt fallback
+        assertThat(jwtKeys.acceptsLegacyTokens()).isFalse();
+        assertThat(jwtUtils(jwtKeys).verifyJwtToken(legacyToken)).isNull();
+        assertThat(new JwtUtils(jwtKeys, 60000, false, new VerifiedTokenCache(false, 1, false, 1, 1, new SimpleMeterRegistry()))
+                .verifyJwtToken(legacyToken)).isNull();
+        assertThat(jwtKeys.getKeyStatuses()).extracting(JwtKeys.KeyStatus::keyId).doesNotContainNull();
+    }
+
+    @Test
+    public void hmacKeysRotateFromTheSecretFile(@TempDir Path directory) throws Exception {
+        // Setup
+        Path secretFile = Files.writeString(directory.resolve("secret"), base64Secret());
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.HS512, "", "", secretFile.toString(), "", 60000, 0);
+        JwtUtils jwtUtils = jwtUtils(jwtKeys);
+        String before = jwtUtils.generateJwtToken(USER);
+
+        // Test
+        boolean unchanged = jwtKeys.reload();
+        Files.writeString(secretFile, base64Secret());
+        boolean rotated = jwtKeys.reload();
+
+        // Assertions
+        assertThat(unchanged).isFalse();
+        assertThat(rotated).isTrue();
+        assertThat(jwtKeys.getSigningKey().getKeyId()).isNotNull();
+        assertThat(jwtUtils.verifyJwtToken(before).getSubject()).isEqualTo("admin");
+        assertThat(jwtUtils.verifyJwtToken(jwtUtils.generateJwtToken(USER)).getSubject()).isEqualTo("admin");
+        assertThat(new ObjectMapper().readTree(jwtKeys.getJwks()).get("keys")).isEmpty();
+    }
+
+    @Test
+    public void reloadDoesNotGenerateAKeyWithoutKeyFiles() {
+        // Setup - the default configuration, and an ephemeral key pair
+        JwtKeys hmacKeys = new JwtKeys(SECRET, JwsAlgorithm.HS512, "", "", "", "", 60000, 0);
+        JwtKeys ephemeralKeys = new JwtKeys(SECRET, JwsAlgorithm.ES256, "", "", "", "", 60000, 0);
+        JwtKey hmacKey = hmacKeys.getSigningKey();
+        JwtKey ephemeralKey = ephemeralKeys.getSigningKey();
+
+        // Test & Assertions - a key known by this instance only would sign out the users of the other ones
+        assertThatThrownBy(hmacKeys::reload).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(ephemeralKeys::reload).isInstanceOf(IllegalStateException.class);
+        assertThat(hmacKeys.getSigningKey()).isSameAs(hmacKey);
+        assertThat(hmacKeys.getKeyStatuses()).hasSize(1);
+        assertThat(ephemeralKeys.getSigningKey()).isSameAs(ephemeralKey);
+        assertThat(ephemeralKeys.getKeyStatuses()).extracting(JwtKeys.KeyStatus::active).containsExactly(true, false);
+    }
+
+    @Test
+    public void mismatchedKeyFilesLeaveTheKeysUnchanged(@TempDir Path directory) throws Exception {
+        // Setup
+        Path privateKeyFile = directory.resolve("private.pem");
+        Path publicKeyFile = directory.resolve("public.pem");
+        writePair(JwsAlgorithm.RS256.generateKeyPair(), privateKeyFile, publicKeyFile);
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.RS256, privateKeyFile.toString(), publicKeyFile.toString(), "", "", 60000, 0);
+        JwtKey signingKey = jwtKeys.getSigningKey();
+
+        // Test - only the public key was replaced yet
+        writePem(publicKeyFile, "PUBLIC KEY", JwsAlgorithm.RS256.generateKeyPair().getPublic().getEncoded());
+
+        // Assertions
+        assertThatThrownBy(jwtKeys::reload).isInstanceOf(IllegalArgumentException.class);
+        assertThat(jwtKeys.getSigningKey()).isSameAs(signingKey);
+    }
+
+    @Test
+    public void revokeDropsARetiringKeyOnly() {
+        // Setup
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.ES256, "", "", "", "", 60000, 0);
+        JwtUtils jwtUtils = jwtUtils(jwtKeys);
+        String before = jwtUtils.generateJwtToken(USER);
+        String retiringKeyId = jwtKeys.getSigningKey().getKeyId();
+        jwtKeys.rotate(JwtKey.generate(JwsAlgorithm.ES256));
+
+        // Test & Assertions
+        assertThatThrownBy(() -> jwtKeys.revoke(jwtKeys.getSigningKey().getKeyId())).isInstanceOf(IllegalArgumentException.class);
+        assertThat(jwtKeys.revoke("unknown")).isFalse();
+        assertThat(jwtKeys.revoke(retiringKeyId)).isTrue();
+        assertThat(jwtUtils.verifyJwtToken(before)).isNull();
+    }
+
+    @Test
+    public void verificationIsNotDisturbedByRotations() throws Exception {
+        // Setup
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.ES256, "", "", "", "", 60000, 0);
+        JwtUtils jwtUtils = jwtUtils(jwtKeys);
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tokens.add(jwtUtils.generateJwtToken(USER));
+            jwtKeys.rotate(JwtKey.generate(JwsAlgorithm.ES256));
+        }
+        AtomicBoolean rotating = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        // Test
+        List<Future<Integer>> verifiers = new ArrayList<>();
+        for (int thread = 0; thread < 4; thread++) {
+            verifiers.add(executor.submit(() -> {
+                int failures = 0;
+                while (rotating.get()) {
+                    for (String token : tokens) {
+                        if (jwtUtils.verifyJwtToken(token) == null) {
+                            failures++;
+                        }
+                    }
+                }
+                return failures;
+            }));
+        }
+        for (int i = 0; i < 50; i++) {
+            jwtKeys.rotate(JwtKey.generate(JwsAlgorithm.ES256));
+        }
+        rotating.set(false);
+
+        // Assertions
+        for (Future<Integer> verifier : verifiers) {
+            assertThat(verifier.get(10, TimeUnit.SECONDS)).isZero();
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void keyFilesChangesAreWatched(@TempDir Path directory) throws Exception {
+        // Setup
+        Path privateKeyFile = directory.resolve("private.pem");
+        Path publicKeyFile = directory.resolve("public.pem");
+        writePair(JwsAlgorithm.EdDSA.generateKeyPair(), privateKeyFile, publicKeyFile);
+        JwtKeys jwtKeys = new JwtKeys(SECRET, JwsAlgorithm.EdDSA, privateKeyFile.toString(), publicKeyFile.toString(), "", "", 60000, 0);
+        String keyId = jwtKeys.getSigningKey().getKeyId();
+        JwtKeyFileWatcher watcher = new JwtKeyFileWatcher(jwtKeys, true, 100);
+        watcher.start();
+
+        try {
+            // Test
+            writePair(JwsAlgorithm.EdDSA.generateKeyPair(), privateKeyFile, publicKeyFile);
+
+            // Assertions
+            long deadline = System.currentTimeMillis() + 10000;
+            while (jwtKeys.getSigningKey().getKeyId().equals(keyId) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            assertThat(jwtKeys.getSigningKey().getKeyId()).isNotEqualTo(keyId);
+            assertThat(jwtKeys.getKeyStatuses()).extracting(JwtKeys.KeyStatus::keyId).contains(keyId);
+        } finally {
+            watcher.stop();
+        }
+    }
+
+    private static JwtUtils jwtUtils(JwtKeys jwtKeys) {
+        return new JwtUtils(jwtKeys, 60000, true, new VerifiedTokenCache(false, 1, false, 1, 1, new SimpleMeterRegistry()));
+    }
+
+    private static String keyId(String token) throws Exception {
+        return new ObjectMapper().readTree(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.')))).get("kid").asText();
+    }
+
+    private static String base64Secret() {
+        byte[] secret = new byte[64];
+        new SecureRandom().nextBytes(secret);
+        return Base64.getEncoder().encodeToString(secret);
+    }
+
+    private static void writePair(KeyPair keyPair, Path privateKeyFile, Path publicKeyFile) throws Exception {
+        writePem(privateKeyFile, "PRIVATE KEY", keyPair.getPrivate().getEncoded());
+        writePem(publicKeyFile, "PUBLIC KEY", keyPair.getPublic().getEncoded());
+    }
+
+    private static void writePem(Path file, String type, byte[] der) throws Exception {
+        Files.writeString(file, "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der)
+                + "\n-----END " + type + "-----\n");
+    }
+}
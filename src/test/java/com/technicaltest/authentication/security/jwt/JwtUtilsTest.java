@@ -0,0 +1,271 @@
+package com.technicaltest.authentication.security.jwt;
+
+import com.technicaltest.authentication.security.services.UserDetailsImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+import static com.technicaltest.authentication.models.ERole.ROLE_ADMIN;
+import static com.technicaltest.authentication.models.ERole.ROLE_USER;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JwtUtilsTest {
+
+    private static final String SECRET = "secretKey";
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private JwtUtils jwtUtils;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtUtils = jwtUtils(60000, true, true);
+    }
+
+    private JwtUtils jwtUtils(int expirationMs, boolean fastPath, boolean cacheEnabled) {
+        return jwtUtils(new JwtKeys(SECRET, JwsAlgorithm.HS512, "", "", "", "", 60000, 0), expirationMs, fastPath, cacheEnabled);
+    }
+
+    private JwtUtils jwtUtils(JwtKeys jwtKeys, int expirationMs, boolean fastPath, boolean cacheEnabled) {
+        return new JwtUtils(jwtKeys, expirationMs, fastPath, new VerifiedTokenCache(cacheEnabled, 100, cacheEnabled, 100, 60000, meterRegistry));
+    }
+
+    @Test
+    public void verifyJwtTokenReturnsPrincipalClaims() {
+        // Setup
+        String token = generateToken();
+
+        // Test
+        VerifiedJwt verifiedJwt = jwtUtils.verifyJwtToken(token);
+
+        // Assertions
+        assertThat(verifiedJwt.getSubject()).isEqualTo("admin");
+        assertThat(verifiedJwt.getId()).isEqualTo(1L);
+        assertThat(verifiedJwt.getEmail()).isEqualTo("admin@email.lu");
+        assertThat(verifiedJwt.getRoles()).containsExactly(ROLE_USER.getRoleId(), ROLE_ADMIN.getRoleId());
+        assertThat(verifiedJwt.getExpiration()).isAfter(verifiedJwt.getIssuedAt());
+
+        UserDetailsImpl userDetails = jwtUtils.getUserDetailsFromClaims(verifiedJwt);
+        assertThat(userDetails.getUsername()).isEqualTo("admin");
+        assertThat(userDetails.getPassword()).isNull();
+        assertThat(userDetails.getAuthorities()).extracting("authority").containsExactly(ROLE_USER.getRoleId(), ROLE_ADMIN.getRoleId());
+    }
+
+    @Test
+    public void verifyJwtTokenIsCached() {
+        // Setup
+        String token = generateToken();
+
+        // Test
+        VerifiedJwt first = jwtUtils.verifyJwtToken(token);
+        VerifiedJwt second = jwtUtils.verifyJwtToken(token);
+
+        // Assertions
+        assertThat(second).isSameAs(first);
+        assertThat(meterRegistry.get(VerifiedTokenCache.VERIFICATION_TIMER).timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", VerifiedTokenCache.CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void verifyJwtTokenCaseInvalidSignature() {
+        // Setup
+        String token = generateToken();
+        String tampered = token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+
+        // Test & Assertions
+        assertThat(jwtUtils.verifyJwtToken(tampered)).isNull();
+        assertThat(jwtUtils.validateJwtToken(tampered)).isFalse();
+        assertThat(jwtUtils.validateJwtToken("not.a.token")).isFalse();
+    }
+
+    @Test
+    public void verifyJwtTokenCaseRejectedIsNotVerifiedAgain() {
+        // Setup
+        String token = generateToken();
+        String tampered = token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+
+        // Test
+        for (int i = 0; i < 3; i++) {
+            assertThat(jwtUtils.validateJwtToken(tampered)).isFalse();
+            assertThat(jwtUtils.validateJwtToken("not.a.token")).isFalse();
+        }
+
+        // Assertions
+        assertThat(meterRegistry.get(VerifiedTokenCache.VERIFICATION_TIMER).timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", VerifiedTokenCache.REJECTED_CACHE_NAME).tag("result", "hit")
+                .functionCounter().count()).isEqualTo(4);
+        assertThat(jwtUtils.validateJwtToken(token)).isTrue();
+    }
+
+    @Test
+    public void verifyJwtTokenCaseExpired() {
+        // Setup
+        jwtUtils = jwtUtils(-1000, true, true);
+        String token = generateToken();
+
+        // Test & Assertions
+        assertThat(jwtUtils.verifyJwtToken(token)).isNull();
+        assertThat(jwtUtils(-1000, false, false).verifyJwtToken(token)).isNull();
+    }
+
+    @Test
+    public void fastPathAndJjwtParserAgree() {
+        // Setup
+        String token = generateToken();
+        JwtUtils jjwtOnly = jwtUtils(60000, false, false);
+
+        // Test
+        VerifiedJwt fastPath = jwtUtils.verifyJwtToken(token);
+        VerifiedJwt jjwt = jjwtOnly.verifyJwtToken(token);
+
+        // Assertions
+        assertThat(token).startsWith("eyJhbGciOiJIUzUxMiJ9.");
+        assertThat(fastPath).usingRecursiveComparison().isEqualTo(jjwt);
+    }
+
+    @Test
+    public void otherHeadersFallBackToJjwtParser() {
+        // Setup
+        String token = Jwts.builder().setHeaderParam("typ", "JWT").setSubject("admin")
+                .setExpiration(new Date(System.currentTimeMillis() + 60000))
+                .signWith(SignatureAlgorithm.HS512, SECRET)
+                .compact();
+        String otherKey = Jwts.builder().setSubject("admin").signWith(SignatureAlgorithm.HS512, "otherKey").compact();
+
+        // Test & Assertions
+        assertThat(jwtUtils.verifyJwtToken(token).getSubject()).isEqualTo("admin");
+        assertThat(jwtUtils.verifyJwtToken(otherKey)).isNull();
+    }
+
+    @ParameterizedTest
+    @EnumSource(JwsAlgorithm.class)
+    public void eachAlgorithmSignsAndVerifies(JwsAlgorithm algorithm) {
+        // Setup
+        JwtKeys jwtKeys = new JwtKeys(SECRET, algorithm, "", "", "", algorithm.isAsymmetric() ? "" : "hmac-1", 60000, 0);
+        jwtUtils = jwtUtils(jwtKeys, 60000, true, false);
+        String token = generateToken();
+        String tampered = token.substring(0, token.length() - 4) + (token.endsWith("AAAA") ? "BBBB" : "AAAA");
+        JwtUtils otherKey = jwtUtils(new JwtKeys("otherKey", algorithm, "", "", "", algorithm.isAsymmetric() ? "" : "hmac-1", 60000, 0),
+                60000, true, false);
+
+        // Test
+        VerifiedJwt verifiedJwt = jwtUtils.verifyJwtToken(token);
+
+        // Assertions
+        String header = new String(Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))), StandardCharsets.UTF_8);
+        assertThat(header).isEqualTo("{\"alg\":\"" + algorithm.name() + "\",\"kid\":\"" + jwtKeys.getSigningKey().getKeyId() + "\"}");
+        assertThat(verifiedJwt.getSubject()).isEqualTo("admin");
+        assertThat(verifiedJwt.getRoles()).containsExactly(ROLE_USER.getRoleId(), ROLE_ADMIN.getRoleId());
+        assertThat(jwtUtils.verifyJwtToken(tampered)).isNull();
+        assertThat(otherKey.verifyJwtToken(token)).isNull();
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = JwsAlgorithm.class, names = {"RS256", "ES256"})
+    public void pemKeysTokensAreVerifiedByJjwt(JwsAlgorithm algorithm, @TempDir Path directory) throws Exception {
+        // Setup
+        KeyPair keyPair = algorithm.generateKeyPair();
+        Path privateKeyFile = writePem(directory.resolve("private.pem"), "PRIVATE KEY", keyPair.getPrivate().getEncoded());
+        Path publicKeyFile = writePem(directory.resolve("public.pem"), "PUBLIC KEY", keyPair.getPublic().getEncoded());
+        jwtUtils = jwtUtils(new JwtKeys(SECRET, algorithm, privateKeyFile.toString(), publicKeyFile.toString(), "", "key-1", 60000, 0),
+                60000, true, false);
+
+        // Test
+        String token = generateToken();
+
+        // Assertions
+        Jws<Claims> jws = Jwts.parser().setSigningKey(keyPair.getPublic()).parseClaimsJws(token);
+        assertThat(jws.getHeader().getKeyId()).isEqualTo("key-1");
+        assertThat(jws.getBody().getSubject()).isEqualTo("admin");
+        assertThat(jwtUtils.verifyJwtToken(token)).usingRecursiveComparison().isEqualTo(VerifiedJwt.fromClaims(jws.getBody()));
+    }
+
+    @Test
+    public void hs512TokensAreStillAcceptedAfterSwitchingAlgorithm() {
+        // Setup
+        String hs512Token = generateToken();
+
+        // Test
+        JwtUtils es256 = jwtUtils(new JwtKeys(SECRET, JwsAlgorithm.ES256, "", "", "", "", 60000, 0), 60000, true, false);
+
+        // Assertions
+        assertThat(es256.verifyJwtToken(hs512Token).getSubject()).isEqualTo("admin");
+        assertThat(jwtUtils.verifyJwtToken(es256.generateJwtToken(jwtUtils.getUserDetailsFromClaims(jwtUtils.verifyJwtToken(hs512Token)))))
+                .isNull();
+    }
+
+    @Test
+    public void keyIdIsTheJwkThumbprint() throws Exception {
+        // Setup - example of RFC 7638, section 3.1
+        String modulus = "0vx7agoebGcQSuuPiLJXZptN9nndrQmbXEps2aiAFbWhM78LhWx4cbbfAAtVT86zwu1RK7aPFFxuhDR1L6tSoc_BJECPebWKRXjBZCiFV4n3oknjhMstn64tZ_2W-5JsGY4Hc5n9yBXArwl93lqt7_RN5w6Cf0h4QyQ5v-65YGjQR0_FDW2QvzqY368QQMicAtaSqzs8KJZgnYb9c7d0zgdAZHzu6qMQvRL5hajrn1n91CbOpbISD08qNLyrdkt-bFTWhAI4vMQFh6WeZu0fM4lFd2NcRwr3XPksINHaQ-G_xBniIqbw0Ls1jF44-csFCur-kEgU8awapJzKnqDKgw";
+        PublicKey publicKey = KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(
+                new BigInteger(1, Base64.getUrlDecoder().decode(modulus)), BigInteger.valueOf(65537)));
+
+        // Test
+        JwtKey key = JwtKey.of(JwsAlgorithm.RS256, null, publicKey, null);
+
+        // Assertions
+        assertThat(key.getKeyId()).isEqualTo("NzbLsXh8uDCcd-6MNwXF4W_7noWXFZAfHkxZsRGC9Xs");
+        assertThat(key.toPublicJwk()).containsEntry("n", modulus).containsEntry("e", "AQAB").containsEntry("use", "sig");
+    }
+
+    @Test
+    public void jwksPublishesOnlyThePublicKeys() throws Exception {
+        // Setup
+        JwtKeys hs512 = new JwtKeys(SECRET, JwsAlgorithm.HS512, "", "", "", "", 60000, 0);
+        JwtKeys edDsa = new JwtKeys(SECRET, JwsAlgorithm.EdDSA, "", "", "", "", 60000, 0);
+
+        // Test
+        JsonNode hs512Keys = new ObjectMapper().readTree(hs512.getJwks()).get("keys");
+        JsonNode edDsaKeys = new ObjectMapper().readTree(edDsa.getJwks()).get("keys");
+
+        // Assertions
+        assertThat(hs512Keys).isEmpty();
+        assertThat(edDsaKeys).hasSize(1);
+        assertThat(edDsaKeys.get(0).get("kty").asText()).isEqualTo("OKP");
+        assertThat(edDsaKeys.get(0).get("crv").asText()).isEqualTo("Ed25519");
+        assertThat(edDsaKeys.get(0).get("kid").asText()).isEqualTo(edDsa.getSigningKey().getKeyId());
+        assertThat(Base64.getUrlDecoder().decode(edDsaKeys.get(0).get("x").asText())).hasSize(32);
+        assertThat(edDsaKeys.get(0).has("d")).isFalse();
+        assertThat(edDsa.getJwksETag()).isNotEqualTo(hs512.getJwksETag());
+    }
+
+    private static Path writePem(Path file, String type, byte[] der) throws IOException {
+        String pem = "-----BEGIN " + type + "-----\n"
+                + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der)
+                + "\n-----END " + type + "-----\n";
+        return Files.writeString(file, pem);
+    }
+
+    private String generateToken() {
+        UserDetailsImpl userDetails = new UserDetailsImpl(1L, "admin", "admin@email.lu", "password",
+                List.of(new SimpleGrantedAuthority(ROLE_USER.getRoleId()), new SimpleGrantedAuthority(ROLE_ADMIN.getRoleId())));
+        return jwtUtils.generateJwtToken(new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()));
+    }
+}
@@ -6,6 +6,8 @@ import com.technicaltest.authentication.payload.response.MessageResponse;
 import com.technicaltest.authentication.repository.RoleRepository;
 import com.technicaltest.authentication.repository.UserRepository;
 import com.technicaltest.authentication.security.jwt.JwtUtils;
+import com.technicaltest.authentication.security.throttle.LoginThrottle;
+import com.technicaltest.authentication.security.throttle.LoginThrottledException;
 import com.technicaltest.authentication.models.ERole;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,6 +16,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -44,6 +47,15 @@ class AuthenticationServiceTest {
     @Mock
     private JwtUtils jwtUtils;
 
+    @Mock
+    private PasswordRehashService passwordRehashService;
+
+    @Mock
+    private LoginThrottle loginThrottle;
+
+    @Mock
+    private RefreshTokenService refreshTokenService;
+
     @InjectMocks
     private AuthenticationService authenticationService;
 
@@ -60,9 +72,10 @@ class AuthenticationServiceTest {
         Authentication authentication = mock(Authentication.class);
         doReturn(userDetails).when(authentication).getPrincipal();
         doReturn(authentication).when(authenticationManager).authenticate(any());
+        doReturn("refreshToken").when(refreshTokenService).issue(1L);
 
         // Test
-        ResponseEntity<?> response = authenticationService.doAuthenticate(new LoginRequest("username", "password"));
+        ResponseEntity<?> response = authenticationService.doAuthenticate(new LoginRequest("username", "password"), "127.0.0.1");
 
         // Assertions
         assertThat(response.getBody().getClass()).isEqualTo(JwtResponse.class);
@@ -72,6 +85,8 @@ class AuthenticationServiceTest {
         assertThat(jwtResponse.getId()).isEqualTo(1l);
         assertThat(jwtResponse.getUsername()).isEqualTo("username");
         assertThat(jwtResponse.getEmail()).isEqualTo("email@mail.lu");
+        assertThat(jwtResponse.getRefreshToken()).isEqualTo("refreshToken");
+        verify(passwordRehashService).rehashIfNeeded(userDetails, "password");
     }
 
     @Test
@@ -86,12 +101,35 @@ class AuthenticationServiceTest {
         doReturn(authentication).when(authenticationManager).authenticate(any());
 
         // Test
-        ResponseEntity<?> response = authenticationService.doAuthenticate(new LoginRequest("username", "password"));
+        ResponseEntity<?> response = authenticationService.doAuthenticate(new LoginRequest("username", "password"), "127.0.0.1");
 
         // Assertions
         assertThat(response.getBody().getClass()).isEqualTo(MessageResponse.class);
         MessageResponse messageResponse = (MessageResponse) response.getBody();
         assertThat(messageResponse.getMessage()).isEqualTo(MessageResponse.ACCOUNT_SUSPENDED);
+        verifyNoInteractions(refreshTokenService);
+    }
+
+
+    @Test
+    public void throttledAttemptIsRejectedBeforeTheAuthentication() {
+        // Setup
+        doThrow(new LoginThrottledException(12)).when(loginThrottle).acquire("username", "127.0.0.1");
+
+        // Test & Assertions
+        assertThatThrownBy(() -> authenticationService.doAuthenticate(new LoginRequest("username", "password"), "127.0.0.1"))
+                .isInstanceOf(LoginThrottledException.class);
+        verifyNoInteractions(authenticationManager, passwordRehashService);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void onlyFailedCredentialsAreChargedToTheUsername() {
+        // Setup
+        doThrow(new BadCredentialsException("Bad credentials")).when(authenticationManager).authenticate(any());
+
+        // Test & Assertions
+        assertThatThrownBy(() -> authenticationService.doAuthenticate(new LoginRequest("username", "wrong"), "127.0.0.1"))
+                .isInstanceOf(BadCredentialsException.class);
+        verify(loginThrottle).failed("username", "127.0.0.1");
+    }
+}
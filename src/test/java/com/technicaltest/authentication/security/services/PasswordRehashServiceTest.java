@@ -0,0 +1,85 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.repository.UserRepository;
+import com.technicaltest.authentication.security.crypto.PasswordHashingExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PasswordRehashServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private PasswordEncoder encoder;
+
+    @Mock
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Mock
+    private UserChangeNotifier userChangeNotifier;
+
+    @InjectMocks
+    private PasswordRehashService passwordRehashService;
+
+    private final UserDetailsImpl userDetails = new UserDetailsImpl(1L, "admin", "admin@mail.lu", "$2a$04$old", List.of());
+
+    @Test
+    public void rehashIfNeededUpgradesOutdatedHash() {
+        // Setup
+        doReturn(true).when(encoder).upgradeEncoding("$2a$04$old");
+        doReturn(true).when(passwordHashingExecutor).tryExecuteAsync(eq("rehash"), any());
+        doReturn("{bcrypt}$2a$12$new").when(encoder).encode("password");
+        doReturn(1).when(userRepository).updatePassword("admin", "$2a$04$old", "{bcrypt}$2a$12$new");
+
+        // Test
+        boolean scheduled = passwordRehashService.rehashIfNeeded(userDetails, "password");
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(passwordHashingExecutor).tryExecuteAsync(eq("rehash"), task.capture());
+        task.getValue().run();
+
+        // Assertions
+        assertThat(scheduled).isTrue();
+        verify(userRepository).updatePassword("admin", "$2a$04$old", "{bcrypt}$2a$12$new");
+        verify(userChangeNotifier).passwordChanged("admin");
+    }
+
+    @Test
+    public void rehashIfNeededSkipsCurrentHash() {
+        // Setup
+        doReturn(false).when(encoder).upgradeEncoding("$2a$04$old");
+
+        // Test
+        boolean scheduled = passwordRehashService.rehashIfNeeded(userDetails, "password");
+
+        // Assertions
+        assertThat(scheduled).isFalse();
+        verifyNoInteractions(passwordHashingExecutor, userRepository, userChangeNotifier);
+    }
+
+    @Test
+    public void rehashKeepsConcurrentPasswordChange() {
+        // Setup - the password was changed between the sign in and the rehash
+        doReturn("{bcrypt}$2a$12$new").when(encoder).encode("password");
+        doReturn(0).when(userRepository).updatePassword("admin", "$2a$04$old", "{bcrypt}$2a$12$new");
+
+        // Test
+        passwordRehashService.rehash("admin", "password", "$2a$04$old");
+
+        // Assertions
+        verifyNoInteractions(userChangeNotifier);
+    }
+}
@@ -0,0 +1,136 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.payload.request.RefreshTokenRequest;
+import com.technicaltest.authentication.payload.response.JwtResponse;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.repository.RefreshTokenRepository;
+import com.technicaltest.authentication.security.jwt.JwtUtils;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static com.technicaltest.authentication.models.ERole.ROLE_ADMIN;
+import static com.technicaltest.authentication.models.ERole.ROLE_USER;
+import static com.technicaltest.authentication.payload.response.MessageResponse.ACCOUNT_SUSPENDED;
+import static com.technicaltest.authentication.payload.response.MessageResponse.INVALID_REFRESH_TOKEN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RefreshTokenServiceTest {
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private RefreshTokenService refreshTokenService;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        refreshTokenService = new RefreshTokenService(refreshTokenRepository, jwtUtils, 60000, meterRegistry);
+    }
+
+    @Test
+    public void issueStoresOnlyTheDigest() {
+        // Test
+        String token = refreshTokenService.issue(1L);
+
+        // Assertions
+        ArgumentCaptor<byte[]> digest = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<Instant> now = ArgumentCaptor.forClass(Instant.class);
+        ArgumentCaptor<Instant> expiresAt = ArgumentCaptor.forClass(Instant.class);
+        verify(refreshTokenRepository).insertFamily(digest.capture(), eq(1L), now.capture(), expiresAt.capture());
+        assertThat(token).hasSize(43);
+        assertThat(digest.getValue()).isEqualTo(RefreshTokenService.digest(token));
+        assertThat(expiresAt.getValue()).isEqualTo(now.getValue().plusMillis(60000));
+        assertThat(refreshTokenService.issue(1L)).isNotEqualTo(token);
+    }
+
+    @Test
+    public void doRefreshRotatesTheToken() {
+        // Setup
+        doReturn(Optional.of(new RefreshTokenRepository.Owner(1L, "admin", "admin@admin.lu",
+                List.of(ROLE_USER.getRoleId(), ROLE_ADMIN.getRoleId()))))
+                .when(refreshTokenRepository).rotate(any(), any(), any(), any());
+        doReturn("accessToken").when(jwtUtils).generateJwtToken(any(UserDetailsImpl.class));
+
+        // Test
+        ResponseEntity<?> response = refreshTokenService.doRefresh(new RefreshTokenRequest("presented"));
+
+        // Assertions
+        JwtResponse jwtResponse = (JwtResponse) response.getBody();
+        assertThat(jwtResponse.getAccessToken()).isEqualTo("accessToken");
+        assertThat(jwtResponse.getUsername()).isEqualTo("admin");
+        assertThat(jwtResponse.getRoles()).containsExactly(ROLE_USER.getRoleId(), ROLE_ADMIN.getRoleId());
+        ArgumentCaptor<byte[]> presented = ArgumentCaptor.forClass(byte[].class);
+        ArgumentCaptor<byte[]> next = ArgumentCaptor.forClass(byte[].class);
+        verify(refreshTokenRepository).rotate(presented.capture(), next.capture(), any(), any());
+        assertThat(presented.getValue()).isEqualTo(RefreshTokenService.digest("presented"));
+        assertThat(next.getValue()).isEqualTo(RefreshTokenService.digest(jwtResponse.getRefreshToken()));
+        verifyNoMoreInteractions(refreshTokenRepository);
+    }
+
+    @Test
+    public void doRefreshCaseReusedTokenRevokesItsFamily() {
+        // Setup
+        doReturn(Optional.empty()).when(refreshTokenRepository).rotate(any(), any(), any(), any());
+        doReturn(3).when(refreshTokenRepository).revokeReusedFamily(any());
+
+        // Test
+        ResponseEntity<?> response = refreshTokenService.doRefresh(new RefreshTokenRequest("rotated"));
+
+        // Assertions
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(((MessageResponse) response.getBody()).getMessage()).isEqualTo(INVALID_REFRESH_TOKEN);
+        verify(refreshTokenRepository).revokeReusedFamily(RefreshTokenService.digest("rotated"));
+        assertThat(meterRegistry.counter(RefreshTokenService.REUSE_COUNTER).count()).isEqualTo(1);
+        verifyNoInteractions(jwtUtils);
+    }
+
+    @Test
+    public void doRefreshCaseUnknownToken() {
+        // Setup
+        doReturn(Optional.empty()).when(refreshTokenRepository).rotate(any(), any(), any(), any());
+
+        // Test
+        ResponseEntity<?> response = refreshTokenService.doRefresh(new RefreshTokenRequest("unknown"));
+
+        // Assertions
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(meterRegistry.counter(RefreshTokenService.REUSE_COUNTER).count()).isZero();
+    }
+
+    @Test
+    public void doRefreshCaseUserIsSuspended() {
+        // Setup
+        doReturn(Optional.of(new RefreshTokenRepository.Owner(1L, "admin", "admin@admin.lu", List.of(ROLE_ADMIN.getRoleId()))))
+                .when(refreshTokenRepository).rotate(any(), any(), any(), any());
+
+        // Test
+        ResponseEntity<?> response = refreshTokenService.doRefresh(new RefreshTokenRequest("presented"));
+
+        // Assertions
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(((MessageResponse) response.getBody()).getMessage()).isEqualTo(ACCOUNT_SUSPENDED);
+        ArgumentCaptor<byte[]> next = ArgumentCaptor.forClass(byte[].class);
+        verify(refreshTokenRepository).rotate(any(), next.capture(), any(), any());
+        verify(refreshTokenRepository).revokeFamily(next.getValue());
+        verify(jwtUtils, never()).generateJwtToken(any(UserDetailsImpl.class));
+    }
+}
@@ -0,0 +1,167 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import com.technicaltest.authentication.models.User;
+import com.technicaltest.authentication.payload.request.SignupRequest;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.repository.RoleRegistry;
+import com.technicaltest.authentication.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.SQLException;
+import java.util.Optional;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.MAIL_EXISTS;
+import static com.technicaltest.authentication.payload.response.MessageResponse.USERNAME_EXISTS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SignupServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private RoleRegistry roleRegistry;
+
+    @Mock
+    private PasswordEncoder encoder;
+
+    @Mock
+    private UserChangeNotifier userChangeNotifier;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private SignupService signupService;
+
+    private final Role userRole = new Role(ERole.ROLE_USER);
+
+    private final Role adminRole = new Role(ERole.ROLE_ADMIN);
+
+    @BeforeEach
+    public void setUp() {
+        userRole.setId(1);
+        adminRole.setId(2);
+        lenient().doReturn(Optional.of(userRole)).when(roleRegistry).findByName(ERole.ROLE_USER);
+        lenient().doReturn(Optional.of(adminRole)).when(roleRegistry).findByName(ERole.ROLE_ADMIN);
+    }
+
+    @Test
+    public void signupWithExistingUsersSkipsTheFirstUserLock() {
+        // Setup
+        doReturn(true).when(userRepository).existsAny();
+
+        // Test
+        signupService.doSignup(new SignupRequest("admin", "admin@email.lu", "password"));
+
+        // Assertions
+        assertThat(savedUser().getRoles()).containsExactly(userRole);
+        verify(userRepository, never()).lockFirstUser();
+        verify(userRepository, never()).findAll();
+        verify(userRepository, never()).existsByUsername(any());
+        verify(userRepository, never()).existsByEmail(any());
+        verify(userChangeNotifier).userCreated("admin");
+    }
+
+    @Test
+    public void firstSignupIsAdminOnceTheLockIsHeld() {
+        // Setup
+        doReturn(false).when(userRepository).existsAny();
+
+        // Test
+        signupService.doSignup(new SignupRequest("admin", "admin@email.lu", "password"));
+
+        // Assertions
+        assertThat(savedUser().getRoles()).containsExactlyInAnyOrder(userRole, adminRole);
+        InOrder inOrder = inOrder(userRepository, transactionManager);
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(userRepository).existsAny();
+        inOrder.verify(userRepository).lockFirstUser();
+        inOrder.verify(userRepository).existsAny();
+        inOrder.verify(userRepository).save(any());
+        inOrder.verify(transactionManager).commit(any());
+    }
+
+    @Test
+    public void signupLosingTheFirstUserRaceIsNotAdmin() {
+        // Setup - a concurrent signup created the first user while this one waited for the lock
+        doReturn(false, true).when(userRepository).existsAny();
+
+        // Test
+        signupService.doSignup(new SignupRequest("admin", "admin@email.lu", "password"));
+
+        // Assertions
+        assertThat(savedUser().getRoles()).containsExactly(userRole);
+        verify(userRepository).lockFirstUser();
+    }
+
+    @Test
+    public void duplicateUsernameIsMappedFromTheUniqueConstraint() {
+        // Setup
+        doReturn(true).when(userRepository).existsAny();
+        doThrow(uniqueViolation(User.USERNAME_CONSTRAINT)).when(userRepository).save(any());
+
+        // Test
+        ResponseEntity<?> response = signupService.doSignup(new SignupRequest("admin", "admin@email.lu", "password"));
+
+        // Assertions
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        assertThat(((MessageResponse) response.getBody()).getMessage()).isEqualTo(USERNAME_EXISTS);
+        verify(transactionManager).rollback(any());
+        verifyNoInteractions(userChangeNotifier);
+    }
+
+    @Test
+    public void duplicateEmailIsMappedFromTheUniqueConstraint() {
+        // Setup
+        doReturn(true).when(userRepository).existsAny();
+        doThrow(uniqueViolation(User.EMAIL_CONSTRAINT)).when(userRepository).save(any());
+
+        // Test
+        ResponseEntity<?> response = signupService.doSignup(new SignupRequest("admin", "admin@email.lu", "password"));
+
+        // Assertions
+        assertThat(((MessageResponse) response.getBody()).getMessage()).isEqualTo(MAIL_EXISTS);
+    }
+
+    @Test
+    public void otherViolationsAreNotMapped() {
+        // Setup
+        doReturn(true).when(userRepository).existsAny();
+        DataIntegrityViolationException violation = uniqueViolation("users_pkey");
+        doThrow(violation).when(userRepository).save(any());
+
+        // Test
+        assertThatThrownBy(() -> signupService.doSignup(new SignupRequest("admin", "admin@email.lu", "password")))
+                .isSameAs(violation);
+    }
+
+    private static DataIntegrityViolationException uniqueViolation(String constraintName) {
+        return new DataIntegrityViolationException("duplicate key",
+                new ConstraintViolationException("duplicate key", new SQLException("duplicate key", "23505"), constraintName));
+    }
+
+    private User savedUser() {
+        ArgumentCaptor<User> user = ArgumentCaptor.forClass(User.class);
+        verify(userRepository).save(user.capture());
+        return user.getValue();
+    }
+}
@@ -0,0 +1,137 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.security.invalidation.LoopbackInvalidationChannel;
+import com.technicaltest.authentication.security.invalidation.UserChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.technicaltest.authentication.security.invalidation.UserChangeEvent.Type.ROLES_CHANGED;
+import static com.technicaltest.authentication.security.invalidation.UserChangeEvent.Type.USERS_CREATED;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserChangeNotifierTest {
+
+    private LoopbackInvalidationChannel channel;
+
+    private UserRevocationRegistry peerRevocationRegistry;
+
+    private UserDetailsCache peerCache;
+
+    private UnknownUsernameCache peerUnknownUsernames;
+
+    private UserChangeNotifier notifier;
+
+    @BeforeEach
+    public void setUp() {
+        // Two nodes sharing the same channel
+        channel = new LoopbackInvalidationChannel();
+        notifier = new UserChangeNotifier(channel, new UserRevocationRegistry(60000),
+                new UserDetailsCache(true, 100, 60000, new SimpleMeterRegistry()),
+                new UnknownUsernameCache(true, 100, 60000, new SimpleMeterRegistry()));
+
+        peerRevocationRegistry = new UserRevocationRegistry(60000);
+        peerCache = new UserDetailsCache(true, 100, 60000, new SimpleMeterRegistry());
+        peerUnknownUsernames = new UnknownUsernameCache(true, 100, 60000, new SimpleMeterRegistry());
+        new UserChangeNotifier(channel, peerRevocationRegistry, peerCache, peerUnknownUsernames);
+    }
+
+    @Test
+    public void userCreatedIsNoLongerUnknownToPeers() {
+        // Setup
+        peerUnknownUsernames.recordMiss("user", peerUnknownUsernames.version());
+        peerUnknownUsernames.recordMiss("other", peerUnknownUsernames.version());
+
+        // Test
+        notifier.userCreated("user");
+
+        // Assertions
+        assertThat(peerUnknownUsernames.isUnknown("user")).isFalse();
+        assertThat(peerUnknownUsernames.isUnknown("other")).isTrue();
+    }
+
+    @Test
+    public void usersCreatedSendsASingleEvent() {
+        // Setup
+        List<UserChangeEvent> events = new ArrayList<>();
+        channel.subscribe(events::add);
+        peerUnknownUsernames.recordMiss("user", peerUnknownUsernames.version());
+        peerUnknownUsernames.recordMiss("other", peerUnknownUsernames.version());
+
+        // Test
+        notifier.usersCreated(List.of("user", "another"));
+        notifier.usersCreated(List.of());
+
+        // Assertions
+        assertThat(events).extracting(UserChangeEvent::getType).containsExactly(USERS_CREATED);
+        assertThat(peerUnknownUsernames.isUnknown("user")).isFalse();
+        assertThat(peerUnknownUsernames.isUnknown("other")).isFalse();
+    }
+
+    @Test
+    public void rolesChangedReachesPeers() {
+        // Setup
+        Instant issuedAt = Instant.now().minusSeconds(2);
+        AtomicInteger loads = new AtomicInteger();
+        peerCache.get("user", username -> loadUser(username, loads));
+
+        // Test
+        notifier.rolesChanged("user");
+
+        // Assertions
+        assertThat(peerRevocationRegistry.isRevoked("user", issuedAt)).isTrue();
+        assertThat(peerRevocationRegistry.isRevoked("other", issuedAt)).isFalse();
+        peerCache.get("user", username -> loadUser(username, loads));
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void passwordChangedOnlyEvictsPeers() {
+        // Setup
+        Instant issuedAt = Instant.now().minusSeconds(2);
+        AtomicInteger loads = new AtomicInteger();
+        peerCache.get("user", username -> loadUser(username, loads));
+
+        // Test
+        notifier.passwordChanged("user");
+
+        // Assertions
+        assertThat(peerRevocationRegistry.isRevoked("user", issuedAt)).isFalse();
+        peerCache.get("user", username -> loadUser(username, loads));
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void allEventFlushesPeers() {
+        // Setup
+        Instant issuedAt = Instant.now().minusSeconds(2);
+        AtomicInteger loads = new AtomicInteger();
+        peerCache.get("user", username -> loadUser(username, loads));
+
+        // Test
+        channel.publish(UserChangeEvent.all("channel"));
+
+        // Assertions
+        assertThat(peerRevocationRegistry.isRevoked("any", issuedAt)).isTrue();
+        peerCache.get("user", username -> loadUser(username, loads));
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void eventWireFormat() {
+        UserChangeEvent event = new UserChangeEvent("node", ROLES_CHANGED, "user;name");
+
+        assertThat(UserChangeEvent.decode(event.encode())).isEqualTo(event);
+        assertThat(UserChangeEvent.decode(UserChangeEvent.all("node").encode()).getUsername()).isNull();
+    }
+
+    private static UserDetailsImpl loadUser(String username, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return new UserDetailsImpl(1L, username, username + "@email.lu", "password", List.of());
+    }
+}
@@ -0,0 +1,113 @@
+package com.technicaltest.authentication.security.services;
+
+import com.technicaltest.authentication.models.Role;
+import com.technicaltest.authentication.models.User;
+import com.technicaltest.authentication.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static com.technicaltest.authentication.models.ERole.ROLE_USER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserDetailsCache userDetailsCache;
+
+    private UnknownUsernameCache unknownUsernameCache;
+
+    private UserDetailsServiceImpl userDetailsService;
+
+    @BeforeEach
+    public void setUp() {
+        userDetailsCache = new UserDetailsCache(true, 100, 60000, new SimpleMeterRegistry());
+        unknownUsernameCache = new UnknownUsernameCache(true, 100, 60000, new SimpleMeterRegistry());
+        userDetailsService = new UserDetailsServiceImpl(userRepository, userDetailsCache, unknownUsernameCache);
+    }
+
+    @Test
+    public void loadUserByUsernameIsCached() {
+        // Setup
+        doReturn(Optional.of(user())).when(userRepository).findWithRolesByUsername("user");
+
+        // Test
+        UserDetails first = userDetailsService.loadUserByUsername("user");
+        UserDetails second = userDetailsService.loadUserByUsername("user");
+
+        // Assertions
+        assertThat(second).isSameAs(first);
+        assertThat(second.getAuthorities()).extracting("authority").containsOnly(ROLE_USER.getRoleId());
+        verify(userRepository, times(1)).findWithRolesByUsername("user");
+        assertThat(userDetailsCache.stats().hitCount()).isEqualTo(1);
+        assertThat(userDetailsCache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadUserByUsernameReloadsAfterEviction() {
+        // Setup
+        doReturn(Optional.of(user())).when(userRepository).findWithRolesByUsername("user");
+        userDetailsService.loadUserByUsername("user");
+
+        // Test
+        userDetailsCache.evict("user");
+        userDetailsService.loadUserByUsername("user");
+
+        // Assertions
+        verify(userRepository, times(2)).findWithRolesByUsername("user");
+    }
+
+    @Test
+    public void loadUserByUsernameCaseUserNotFoundIsRememberedUntilCreated() {
+        // Setup
+        doReturn(Optional.empty()).when(userRepository).findWithRolesByUsername("user");
+
+        // Test & Assertions
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("user")).isInstanceOf(UsernameNotFoundException.class);
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("user")).isInstanceOf(UsernameNotFoundException.class);
+        verify(userRepository, times(1)).findWithRolesByUsername("user");
+        assertThat(unknownUsernameCache.stats().hitCount()).isEqualTo(1);
+
+        doReturn(Optional.of(user())).when(userRepository).findWithRolesByUsername("user");
+        unknownUsernameCache.invalidate("user");
+        assertThat(userDetailsService.loadUserByUsername("user").getUsername()).isEqualTo("user");
+        verify(userRepository, times(2)).findWithRolesByUsername("user");
+    }
+
+    @Test
+    public void loadUserByUsernameCaseUserCreatedDuringTheLookupIsNotRemembered() {
+        // Setup - the user is created once the lookup read the database, before it records the miss
+        doAnswer(invocation -> {
+            unknownUsernameCache.invalidate("user");
+            return Optional.empty();
+        }).when(userRepository).findWithRolesByUsername("user");
+
+        // Test
+        assertThatThrownBy(() -> userDetailsService.loadUserByUsername("user")).isInstanceOf(UsernameNotFoundException.class);
+
+        // Assertions
+        assertThat(unknownUsernameCache.isUnknown("user")).isFalse();
+    }
+
+    private static User user() {
+        Role role = new Role(ROLE_USER);
+        role.setId(1);
+        User user = new User("user", "user@email.lu", "password");
+        user.setId(1L);
+        user.setRoles(Set.of(role));
+        return user;
+    }
+}
@@ -0,0 +1,73 @@
+package com.technicaltest.authentication.security.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.authentication.payload.response.UserSummary;
+import com.technicaltest.authentication.repository.UserCursor;
+import com.technicaltest.authentication.repository.UserListingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserExportServiceTest {
+
+    @Mock
+    private UserListingRepository userListingRepository;
+
+    private UserExportService userExportService;
+
+    @BeforeEach
+    public void setUp() {
+        userExportService = new UserExportService(userListingRepository, new ObjectMapper());
+    }
+
+    @Test
+    public void ndjsonExportResumesAfterTheGivenIdAndIsCompressed() throws Exception {
+        // Setup
+        doAnswer(invocation -> {
+            Consumer<UserSummary> consumer = invocation.getArgument(2);
+            consumer.accept(new UserSummary(42L, "bob", "bob@email.lu", List.of("ROLE_USER")));
+            return null;
+        }).when(userListingRepository).stream(any(), eq(new UserCursor("id", "asc", 41L, null)), any());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // Test
+        long users = userExportService.export(UserFileFormat.NDJSON, true, 41L, output);
+
+        // Assertions
+        assertThat(users).isEqualTo(1);
+        String content = new String(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertThat(content).isEqualTo("{\"id\":42,\"username\":\"bob\",\"email\":\"bob@email.lu\",\"roles\":[\"ROLE_USER\"]}\n");
+        verify(userListingRepository, never()).copyCsv(anyLong(), any());
+    }
+
+    @Test
+    public void csvExportIsCopiedAndClientFailuresAreRethrown() {
+        // Setup
+        doThrow(new UncheckedIOException(new IOException("Broken pipe"))).when(userListingRepository).copyCsv(eq(0L), any());
+
+        // Test
+        assertThatThrownBy(() -> userExportService.export(UserFileFormat.CSV, false, 0L, OutputStream.nullOutputStream()))
+                .isInstanceOf(IOException.class)
+                .hasMessage("Broken pipe");
+    }
+}
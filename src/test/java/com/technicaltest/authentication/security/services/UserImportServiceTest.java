@@ -0,0 +1,159 @@
+package com.technicaltest.authentication.security.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.authentication.models.ERole;
+import com.technicaltest.authentication.models.Role;
+import com.technicaltest.authentication.payload.response.ImportRejection;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.payload.response.UserImportReport;
+import com.technicaltest.authentication.repository.RoleRegistry;
+import com.technicaltest.authentication.repository.UserImportRepository;
+import com.technicaltest.authentication.security.crypto.PooledPasswordEncoder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserImportServiceTest {
+
+    @Mock
+    private UserImportRepository userImportRepository;
+
+    @Mock
+    private RoleRegistry roleRegistry;
+
+    @Mock
+    private PooledPasswordEncoder encoder;
+
+    @Mock
+    private UserChangeNotifier userChangeNotifier;
+
+    private UserImportService userImportService;
+
+    @BeforeEach
+    public void setUp() {
+        // batches of two rows
+        userImportService = new UserImportService(userImportRepository, roleRegistry, encoder,
+                Validation.buildDefaultValidatorFactory().getValidator(), new ObjectMapper(), userChangeNotifier, 2, 1000);
+
+        Role userRole = new Role(ERole.ROLE_USER);
+        userRole.setId(1);
+        lenient().doReturn(Optional.of(userRole)).when(roleRegistry).findByName(ERole.ROLE_USER);
+        lenient().doAnswer(invocation -> new UserImportRepository.Taken(new HashSet<>(), new HashSet<>()))
+                .when(userImportRepository).findTaken(any(), any());
+        lenient().doAnswer(invocation -> ((List<String>) invocation.getArgument(0)).stream().map(password -> "{hash}" + password).toList())
+                .when(encoder).encodeAll(anyList());
+    }
+
+    @Test
+    public void parseCsvLineHandlesQuotes() {
+        assertThat(UserImportService.parseCsvLine("bob,bob@email.lu,password")).containsExactly("bob", "bob@email.lu", "password");
+        assertThat(UserImportService.parseCsvLine("bob,\"a,\"\"b\"\"\",")).containsExactly("bob", "a,\"b\"", "");
+        assertThat(UserImportService.parseCsvLine("bob,\"open")).isNull();
+    }
+
+    @Test
+    public void csvRowsAreValidatedHashedAndImportedByBatch() throws Exception {
+        // Setup
+        doAnswer(invocation -> {
+            List<UserImportRepository.Row> rows = invocation.getArgument(0);
+            return new UserImportRepository.Batch(rows.stream().map(UserImportRepository.Row::username).toList(), Map.of());
+        }).when(userImportRepository).importBatch(anyList(), anyInt());
+
+        // Test - the columns follow the header, line 4 is invalid, line 5 malformed, line 6 is blank
+        UserImportReport report = userImportService.importUsers(input("""
+                password,username,email
+                password1,alice,alice@email.lu
+                password2,bob,bob@email.lu
+                pass,x,not an email
+                password4,"carl
+
+                password5,dave,dave@email.lu
+                """), UserFileFormat.CSV);
+
+        // Assertions
+        assertThat(report.getRows()).isEqualTo(5);
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getRejected()).isEqualTo(2);
+        assertThat(report.getRejections()).extracting(ImportRejection::getLine).containsExactly(4L, 5L);
+        assertThat(report.getRejections().get(0).getReason()).isEqualTo(
+                "email: must be a well-formed email address, password: size must be between 6 and 40, username: size must be between 3 and 20");
+        assertThat(report.getRejections().get(1).getReason()).isEqualTo(MALFORMED_ROW);
+
+        ArgumentCaptor<List<UserImportRepository.Row>> batches = ArgumentCaptor.forClass(List.class);
+        verify(userImportRepository, times(2)).importBatch(batches.capture(), eq(1));
+        assertThat(batches.getAllValues().get(0)).containsExactly(
+                new UserImportRepository.Row(2, "alice", "alice@email.lu", "{hash}password1"),
+                new UserImportRepository.Row(3, "bob", "bob@email.lu", "{hash}password2"));
+        assertThat(batches.getAllValues().get(1)).containsExactly(
+                new UserImportRepository.Row(7, "dave", "dave@email.lu", "{hash}password5"));
+        verify(userChangeNotifier).usersCreated(List.of("dave"));
+    }
+
+    @Test
+    public void duplicatesAreRejectedBeforeTheHashing() throws Exception {
+        // Setup - alice exists, bob loses a race against a concurrent signup between the check and the insert
+        doReturn(new UserImportRepository.Taken(new HashSet<>(Set.of("alice")), new HashSet<>(Set.of("alice@email.lu"))))
+                .when(userImportRepository).findTaken(List.of("alice"), List.of("alice@email.lu"));
+        doReturn(new UserImportRepository.Batch(List.of(), Map.of(1L, UserImportRepository.DUPLICATE_USERNAME)))
+                .when(userImportRepository).importBatch(anyList(), anyInt());
+
+        // Test - carl reuses the email of bob in the same batch
+        UserImportReport report = userImportService.importUsers(input("""
+                {"username": "bob", "email": "bob@email.lu", "password": "password"}
+                {"username": "carl", "email": "bob@email.lu", "password": "password"}
+                {"username": "alice", "email": "alice@email.lu", "password": "password"}
+                {"username": "dave", "email": "dave@email.lu", "password": "password"
+                """), UserFileFormat.NDJSON);
+
+        // Assertions
+        assertThat(report.getImported()).isZero();
+        assertThat(report.getRejections()).extracting(ImportRejection::getLine).containsExactly(1L, 2L, 3L, 4L);
+        assertThat(report.getRejections()).extracting(ImportRejection::getReason)
+                .containsExactly(USERNAME_EXISTS, MAIL_EXISTS, USERNAME_EXISTS, MALFORMED_ROW);
+        // only bob is hashed, the second batch has nothing left to import
+        verify(encoder).encodeAll(List.of("password"));
+        verify(userImportRepository).importBatch(anyList(), anyInt());
+        verifyNoInteractions(userChangeNotifier);
+    }
+
+    @Test
+    public void onlyCsvAndNdjsonAreImported() throws Exception {
+        ResponseEntity<?> response = userImportService.importUsers(input("{}"), "application/json");
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(415);
+        assertThat(((MessageResponse) response.getBody()).getMessage()).isEqualTo(UNSUPPORTED_IMPORT_FORMAT);
+
+        response = userImportService.importUsers(input("name,mail\n"), "text/csv");
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        assertThat(((MessageResponse) response.getBody()).getMessage()).isEqualTo(INVALID_CSV_HEADER);
+        verifyNoInteractions(userImportRepository);
+    }
+
+    private static InputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
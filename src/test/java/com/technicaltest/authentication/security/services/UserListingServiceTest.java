@@ -0,0 +1,111 @@
+package com.technicaltest.authentication.security.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.technicaltest.authentication.payload.request.UserListingRequest;
+import com.technicaltest.authentication.payload.response.MessageResponse;
+import com.technicaltest.authentication.payload.response.UserPage;
+import com.technicaltest.authentication.payload.response.UserSummary;
+import com.technicaltest.authentication.repository.UserCursor;
+import com.technicaltest.authentication.repository.UserListingRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+
+import static com.technicaltest.authentication.payload.response.MessageResponse.INVALID_CURSOR;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserListingServiceTest {
+
+    @Mock
+    private UserListingRepository userListingRepository;
+
+    private UserListingService userListingService;
+
+    @BeforeEach
+    public void setUp() {
+        userListingService = new UserListingService(userListingRepository, new ObjectMapper(), 50, 500);
+    }
+
+    @Test
+    public void pageSizeFallsBackToTheDefaultAndIsCapped() {
+        assertThat(userListingService.pageSize(null)).isEqualTo(50);
+        assertThat(userListingService.pageSize(0)).isEqualTo(50);
+        assertThat(userListingService.pageSize(10)).isEqualTo(10);
+        assertThat(userListingService.pageSize(100000)).isEqualTo(500);
+    }
+
+    @Test
+    public void findPageIssuesACursorOnTheLastUserWhenMoreUsersFollow() {
+        // Setup
+        doReturn(List.of(summary(3L, "carl"), summary(1L, "dave"), summary(2L, "eve")))
+                .when(userListingRepository).findPage(any(), any(), eq(3));
+        UserListingRequest request = new UserListingRequest(null, null, null, "username", "asc");
+        request.setLimit(2);
+
+        // Test
+        UserPage page = (UserPage) userListingService.findPage(request).getBody();
+
+        // Assertions
+        assertThat(page.getUsers()).extracting(UserSummary::getUsername).containsExactly("carl", "dave");
+        assertThat(UserCursor.decode(page.getNextCursor())).isEqualTo(new UserCursor("username", "asc", 1L, "dave"));
+    }
+
+    @Test
+    public void findPageResumesAfterTheCursor() {
+        // Setup
+        doReturn(List.of(summary(2L, "eve"))).when(userListingRepository).findPage(any(), any(), anyInt());
+        UserListingRequest request = new UserListingRequest(null, null, null, "username", "asc");
+        request.setCursor(new UserCursor("username", "asc", 1L, "dave").encode());
+
+        // Test
+        UserPage page = (UserPage) userListingService.findPage(request).getBody();
+
+        // Assertions
+        ArgumentCaptor<UserCursor> after = ArgumentCaptor.forClass(UserCursor.class);
+        verify(userListingRepository).findPage(any(), after.capture(), eq(51));
+        assertThat(after.getValue().value()).isEqualTo("dave");
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void findPageRejectsACursorOfAnotherSort() {
+        // Setup
+        UserListingRequest request = new UserListingRequest(null, null, null, "email", "asc");
+        request.setCursor(new UserCursor("username", "asc", 1L, "dave").encode());
+
+        // Test
+        ResponseEntity<?> response = userListingService.findPage(request);
+
+        // Assertions
+        assertThat(response.getStatusCodeValue()).isEqualTo(400);
+        assertThat(((MessageResponse) response.getBody()).getMessage()).isEqualTo(INVALID_CURSOR);
+        verifyNoInteractions(userListingRepository);
+    }
+
+    @Test
+    public void findPageRejectsAMalformedCursor() {
+        // Setup
+        UserListingRequest request = new UserListingRequest(null, null, null, "id", "asc");
+        request.setCursor("not-a-cursor");
+
+        // Test
+        ResponseEntity<?> response = userListingService.findPage(request);
+
+        // Assertions
+        assertThat(((MessageResponse) response.getBody()).getMessage()).isEqualTo(INVALID_CURSOR);
+    }
+
+    private static UserSummary summary(Long id, String username) {
+        return new UserSummary(id, username, username + "@email.lu", List.of("ROLE_USER"));
+    }
+}
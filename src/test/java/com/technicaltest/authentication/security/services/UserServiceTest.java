@@ -4,9 +4,13 @@ import com.technicaltest.authentication.models.Role;
 import com.technicaltest.authentication.models.User;
 import com.technicaltest.authentication.payload.request.PasswordChangeRequest;
 import com.technicaltest.authentication.payload.request.UserRoleUpdateRequest;
+import com.technicaltest.authentication.payload.response.BulkItemResult;
 import com.technicaltest.authentication.payload.response.MessageResponse;
-import com.technicaltest.authentication.repository.RoleRepository;
+import com.technicaltest.authentication.repository.RefreshTokenRepository;
+import com.technicaltest.authentication.repository.RoleRegistry;
 import com.technicaltest.authentication.repository.UserRepository;
+import com.technicaltest.authentication.security.crypto.PooledPasswordEncoder;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.*;
@@ -15,15 +19,18 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.technicaltest.authentication.models.ERole.*;
 import static com.technicaltest.authentication.payload.response.MessageResponse.*;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.mockito.Mockito.doReturn;
@@ -36,19 +43,34 @@ class UserServiceTest {
     private UserRepository userRepository;
 
     @Mock
-    private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
 
     @Mock
-    private PasswordEncoder encoder;
+    private PooledPasswordEncoder encoder;
+
+    @Mock
+    private UserChangeNotifier userChangeNotifier;
+
+    @Mock
+    private RefreshTokenRepository refreshTokenRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
 
-    @InjectMocks
     private UserService userService;
 
+    @BeforeEach
+    public void setUp() {
+        // chunks of two items, so that the bulk tests span several transactions
+        userService = new UserService(userRepository, roleRegistry, encoder, userChangeNotifier, refreshTokenRepository,
+                transactionManager, 2);
+    }
+
     @Test
     public void updateUserCaseUserNotFound() {
         // Setup
         Optional<User> optionalUser = Optional.empty();
-        doReturn(optionalUser).when(userRepository).findByUsername(any());
+        doReturn(optionalUser).when(userRepository).findWithRolesByUsername(any());
 
         // Test
         UserRoleUpdateRequest userRoleUpdateRequest = new UserRoleUpdateRequest();
@@ -59,7 +81,7 @@ class UserServiceTest {
 
         // Assertions
         assertThat(messageResponse.getMessage()).isEqualTo(USER_NOT_FOUND);
-        verify(userRepository).findByUsername("admin");
+        verify(userRepository).findWithRolesByUsername("admin");
         verifyNoMoreInteractions(userRepository);
     }
 
@@ -70,7 +92,7 @@ class UserServiceTest {
         user.setUsername("admin");
         user.setId(2l);
         Optional<User> optionalUser = Optional.of(user);
-        doReturn(optionalUser).when(userRepository).findByUsername("admin");
+        doReturn(optionalUser).when(userRepository).findWithRolesByUsername("admin");
 
         // Test
         UserRoleUpdateRequest userRoleUpdateRequest = new UserRoleUpdateRequest();
@@ -81,7 +103,7 @@ class UserServiceTest {
 
         // Assertions
         assertThat(messageResponse.getMessage()).isEqualTo(USER_NOT_FOUND);
-        verify(userRepository).findByUsername("admin");
+        verify(userRepository).findWithRolesByUsername("admin");
         verifyNoMoreInteractions(userRepository);
     }
 
@@ -92,13 +114,14 @@ class UserServiceTest {
         role.setId(1);
         role.setName(ROLE_USER);
 
-        doReturn(Optional.of(role)).when(roleRepository).findByName(any());
+        doReturn(Optional.of(role)).when(roleRegistry).findByName(ROLE_USER.getRoleId());
+        doReturn(Optional.empty()).when(roleRegistry).findByName("randomString");
 
         User user = new User();
         user.setUsername("admin");
         user.setId(1l);
         Optional<User> optionalUser = Optional.of(user);
-        doReturn(optionalUser).when(userRepository).findByUsername("admin");
+        doReturn(optionalUser).when(userRepository).findWithRolesByUsername("admin");
 
         mockSecurityContextHolderUserName("adminUsername", false);
 
@@ -112,7 +135,7 @@ class UserServiceTest {
 
         // Assertions
         assertThat(messageResponse.getMessage()).isEqualTo(ROLE_NOT_FOUND);
-        verify(userRepository).findByUsername("admin");
+        verify(userRepository).findWithRolesByUsername("admin");
         verifyNoMoreInteractions(userRepository);
     }
 
@@ -123,14 +146,14 @@ class UserServiceTest {
         role.setId(1);
         role.setName(ROLE_USER);
 
-        doReturn(Optional.of(role)).when(roleRepository).findByName(any());
+        doReturn(Optional.of(role)).when(roleRegistry).findByName(ROLE_USER.getRoleId());
 
         User user = new User();
         user.setId(1l);
         user.setUsername("admin");
         user.setEmail("admin@oldEmail.lu");
         Optional<User> optionalUser = Optional.of(user);
-        doReturn(optionalUser).when(userRepository).findByUsername("admin");
+        doReturn(optionalUser).when(userRepository).findWithRolesByUsername("admin");
 
         // Test
         UserRoleUpdateRequest userRoleUpdateRequest = new UserRoleUpdateRequest();
@@ -142,13 +165,14 @@ class UserServiceTest {
 
         // Assertions
         assertThat(messageResponse.getMessage()).isEqualTo(USER_ROLE_UPDATE_SUCCESS);
-        ArgumentCaptor<User> capturedUser = ArgumentCaptor.forClass(User.class);
-        verify(userRepository).findByUsername("admin");
-        verify(userRepository).save(capturedUser.capture());
+        verify(userRepository).findWithRolesByUsername("admin");
+        // the managed user is updated in place and flushed on commit
         verifyNoMoreInteractions(userRepository);
-        assertThat(capturedUser.getValue().getId()).isEqualTo(1L);
-        assertThat(capturedUser.getValue().getUsername()).isEqualTo("admin");
-        assertThat(capturedUser.getValue().getRoles().stream().map(authority -> authority.getName().getRoleId()).collect(Collectors.toList()))
+        verify(transactionManager).commit(any());
+        verify(userChangeNotifier).rolesChanged("admin");
+        assertThat(user.getId()).isEqualTo(1L);
+        assertThat(user.getUsername()).isEqualTo("admin");
+        assertThat(user.getRoles().stream().map(authority -> authority.getName().getRoleId()).collect(Collectors.toList()))
                 .containsOnlyElementsOf(userRoleUpdateRequest.getRoles());
     }
 
@@ -293,6 +317,37 @@ class UserServiceTest {
         verify(userRepository).save(capturedUser.capture());
         assertThat(capturedUser.getValue().getPassword()).isEqualTo("encryptedPassword");
         verifyNoMoreInteractions(userRepository);
+        // the password and the revocation of the refresh tokens are committed together, after the hashing
+        InOrder inOrder = inOrder(encoder, transactionManager, userRepository, refreshTokenRepository, userChangeNotifier);
+        inOrder.verify(encoder).encode("password");
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(userRepository).save(user);
+        inOrder.verify(refreshTokenRepository).revokeAll(List.of("admin"));
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(userChangeNotifier).passwordChanged("admin");
+    }
+
+    @Test
+    public void passwordChangeIsRolledBackWhenTheRefreshTokensAreNotRevoked() {
+        // Setup
+        User user = new User();
+        user.setId(1l);
+        user.setUsername("admin");
+        doReturn(Optional.of(user)).when(userRepository).findByUsername("admin");
+        doReturn("encryptedPassword").when(encoder).encode(any());
+        doThrow(new TransactionSystemException("connection lost")).when(refreshTokenRepository).revokeAll(any());
+
+        mockSecurityContextHolderUserName("admin", false);
+
+        // Test
+        PasswordChangeRequest passwordChangeRequest = new PasswordChangeRequest(1L, "admin", "password");
+
+        // Assertions
+        assertThatThrownBy(() -> userService.changePassword(passwordChangeRequest))
+                .isInstanceOf(TransactionSystemException.class);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verifyNoInteractions(userChangeNotifier);
     }
 
     @Test
@@ -351,5 +406,125 @@ class UserServiceTest {
         verify(userRepository).delete(capturedUser.capture());
         assertThat(capturedUser.getValue().getUsername()).isEqualTo("admin");
         verifyNoMoreInteractions(userRepository);
+        verify(userChangeNotifier).userDeleted("admin");
+    }
+
+    @Test
+    public void bulkRoleUpdateAnswersEachItem() {
+        // Setup
+        Role role = new Role();
+        role.setId(1);
+        role.setName(ROLE_USER);
+        doReturn(Optional.of(role)).when(roleRegistry).findByName(ROLE_USER.getRoleId());
+
+        User bob = user(2L, "bob");
+        User admin = user(1L, "admin");
+        doReturn(List.of(bob, admin)).when(userRepository).findAllWithRolesByUsernameIn(Set.of("bob", "admin"));
+        doReturn(List.of()).when(userRepository).findAllWithRolesByUsernameIn(Set.of("ghost"));
+
+        mockSecurityContextHolderUserName("admin", false);
+
+        // Test
+        List<BulkItemResult> results = userService.updateUsersRoles(List.of(
+                new UserRoleUpdateRequest(2L, "bob", List.of(ROLE_USER.getRoleId())),
+                new UserRoleUpdateRequest(1L, "admin", List.of(ROLE_USER.getRoleId())),
+                new UserRoleUpdateRequest(3L, "ghost", List.of(ROLE_USER.getRoleId())))).getBody();
+
+        // Assertions - one transaction and one query per chunk of two items
+        assertThat(results).extracting(BulkItemResult::getIndex).containsExactly(0, 1, 2);
+        assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(200, 400, 400);
+        assertThat(results).extracting(BulkItemResult::getMessage)
+                .containsExactly(USER_ROLE_UPDATE_SUCCESS, CAN_NOT_REVOKE_OWN_AUTHORITY, USER_NOT_FOUND);
+        assertThat(bob.getRoles()).containsExactly(role);
+        assertThat(admin.getRoles()).isEmpty();
+        verify(transactionManager, times(2)).commit(any());
+        verify(userRepository, times(2)).findAllWithRolesByUsernameIn(any());
+        verifyNoMoreInteractions(userRepository);
+        verify(userChangeNotifier).rolesChanged("bob");
+        verifyNoMoreInteractions(userChangeNotifier);
+    }
+
+    @Test
+    public void bulkPasswordChangeHashesTheAcceptedItemsBeforeTheTransaction() {
+        // Setup
+        User bob = user(2L, "bob");
+        User alice = user(3L, "alice");
+        User reloadedBob = user(2L, "bob");
+        doReturn(List.of(bob, alice)).when(userRepository).findAllByUsernameIn(Set.of("bob", "alice"));
+        doReturn(List.of(reloadedBob)).when(userRepository).findAllByUsernameIn(Set.of("bob"));
+        doReturn(List.of("bobHash")).when(encoder).encodeAll(List.of("bobPassword"));
+
+        mockSecurityContextHolderUserName("admin", true);
+
+        // Test
+        List<BulkItemResult> results = userService.changePasswords(List.of(
+                new PasswordChangeRequest(2L, "bob", "bobPassword"),
+                new PasswordChangeRequest(4L, "alice", "alicePassword"))).getBody();
+
+        // Assertions - the forbidden item is not hashed, the accepted one is checked again in the transaction
+        assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(200, 403);
+        assertThat(reloadedBob.getPassword()).isEqualTo("bobHash");
+        assertThat(alice.getPassword()).isNull();
+        InOrder inOrder = inOrder(encoder, transactionManager, userRepository);
+        inOrder.verify(userRepository).findAllByUsernameIn(Set.of("bob", "alice"));
+        inOrder.verify(encoder).encodeAll(List.of("bobPassword"));
+        inOrder.verify(transactionManager).getTransaction(any());
+        inOrder.verify(userRepository).findAllByUsernameIn(Set.of("bob"));
+        inOrder.verify(transactionManager).commit(any());
+        verifyNoMoreInteractions(encoder, userRepository);
+        verify(refreshTokenRepository).revokeAll(List.of("bob"));
+        verify(userChangeNotifier).passwordChanged("bob");
+        verifyNoMoreInteractions(userChangeNotifier);
+    }
+
+    @Test
+    public void bulkPasswordChangeOfForbiddenItemsHashesNothing() {
+        // Setup
+        doReturn(List.of(user(3L, "alice"))).when(userRepository).findAllByUsernameIn(Set.of("alice"));
+
+        mockSecurityContextHolderUserName("bob", false);
+
+        // Test
+        List<BulkItemResult> results = userService.changePasswords(List.of(
+                new PasswordChangeRequest(3L, "alice", "alicePassword"))).getBody();
+
+        // Assertions
+        assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(403);
+        verifyNoInteractions(encoder, transactionManager, refreshTokenRepository, userChangeNotifier);
+    }
+
+    @Test
+    public void bulkDeletionKeepsTheCommittedChunks() {
+        // Setup
+        User admin = user(1L, "admin");
+        User bob = user(2L, "bob");
+        User alice = user(3L, "alice");
+        doReturn(List.of(admin, bob)).when(userRepository).findAllById(Set.of(1L, 2L));
+        doReturn(List.of(alice)).when(userRepository).findAllById(Set.of(3L));
+        // the second chunk fails on commit
+        doNothing().doThrow(new TransactionSystemException("connection lost")).when(transactionManager).commit(any());
+
+        mockSecurityContextHolderUserName("admin", false);
+
+        // Test
+        List<BulkItemResult> results = userService.deleteUsers(List.of(1L, 2L, 3L)).getBody();
+
+        // Assertions
+        assertThat(results).extracting(BulkItemResult::getStatus).containsExactly(400, 200, 500);
+        assertThat(results).extracting(BulkItemResult::getMessage)
+                .containsExactly(CAN_NOT_DELETE_OWN_ACCOUNT, USER_DELETION_SUCCESS, BULK_CHUNK_FAILED);
+        assertThat(results.get(2).getIndex()).isEqualTo(2);
+        verify(userRepository).delete(bob);
+        verify(userRepository).delete(alice);
+        verify(userRepository, never()).delete(admin);
+        verify(userChangeNotifier).userDeleted("bob");
+        verifyNoMoreInteractions(userChangeNotifier);
+    }
+
+    private static User user(Long id, String username) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        return user;
     }
-}
\ No newline at end of file
+}
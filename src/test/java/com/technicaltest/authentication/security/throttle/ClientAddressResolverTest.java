@@ -0,0 +1,44 @@
+package com.technicaltest.authentication.security.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientAddressResolverTest {
+
+    private final ClientAddressResolver resolver = new ClientAddressResolver("10.0.0.0/8, 192.168.1.1");
+
+    @Test
+    public void forwardedForIsIgnoredWithoutTrustedProxies() {
+        // Setup
+        ClientAddressResolver untrusting = new ClientAddressResolver("");
+
+        // Test & Assertions
+        assertThat(untrusting.resolve("10.0.0.1", List.of("203.0.113.7"))).isEqualTo("10.0.0.1");
+        assertThat(untrusting.resolve("10.0.0.1", null)).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    public void forwardedForIsOnlyReadFromTrustedProxies() {
+        assertThat(resolver.resolve("10.1.2.3", List.of("203.0.113.7"))).isEqualTo("203.0.113.7");
+        assertThat(resolver.resolve("198.51.100.1", List.of("203.0.113.7"))).isEqualTo("198.51.100.1");
+    }
+
+    @Test
+    public void clientIsTheFirstUntrustedHopFromTheRight() {
+        // Setup - the client forged the leftmost address, two trusted proxies appended theirs
+        List<String> forwardedFor = List.of("1.2.3.4, 203.0.113.7", "192.168.1.1");
+
+        // Test & Assertions
+        assertThat(resolver.resolve("10.0.0.1", forwardedFor)).isEqualTo("203.0.113.7");
+        assertThat(resolver.resolve("10.0.0.1", List.of("10.0.0.2, 10.0.0.3"))).isEqualTo("10.0.0.2");
+    }
+
+    @Test
+    public void hostNamesAreNeverTrusted() {
+        assertThat(resolver.resolve("10.0.0.1", List.of("proxy.example.com"))).isEqualTo("proxy.example.com");
+        assertThat(resolver.resolve("10.0.0.1", List.of("2001:db8::1"))).isEqualTo("2001:db8::1");
+    }
+}
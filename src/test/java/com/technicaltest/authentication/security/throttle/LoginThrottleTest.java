@@ -0,0 +1,195 @@
+package com.technicaltest.authentication.security.throttle;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LoginThrottleTest {
+
+    private final AtomicLong clock = new AtomicLong(-TimeUnit.DAYS.toNanos(1));
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // 5 failed attempts per minute per username and address, 20 per account, 8 attempts per minute per address, 15
+    // minutes of backoff at most
+    private final LoginThrottle loginThrottle = new LoginThrottle(true, 1000,
+            new LoginThrottle.Limit(5, Duration.ofMinutes(1)), new LoginThrottle.Limit(20, Duration.ofMinutes(1)),
+            new LoginThrottle.Limit(8, Duration.ofMinutes(1)), Duration.ofMinutes(15), meterRegistry, clock::get);
+
+    @Test
+    public void burstIsAdmittedThenEachAttemptDelaysTheNextOne() {
+        // Setup
+        for (int i = 0; i < 5; i++) {
+            fail("admin", "10.0.0.1");
+        }
+
+        // Test & Assertions - a token comes back every 12 s, each rejected attempt pushes it 12 s further
+        assertThat(retryAfter("admin", "10.0.0.1")).isEqualTo(24);
+        assertThat(retryAfter("admin", "10.0.0.1")).isEqualTo(36);
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(35));
+        assertThat(retryAfter("admin", "10.0.0.1")).isEqualTo(13);
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(13));
+        assertThatCode(() -> loginThrottle.acquire("admin", "10.0.0.1")).doesNotThrowAnyException();
+        assertThat(meterRegistry.counter(LoginThrottle.REJECTED_COUNTER, "key", "username").count()).isEqualTo(3);
+    }
+
+    @Test
+    public void backoffIsBounded() {
+        // Setup - the address is not limited here
+        LoginThrottle usernameOnly = new LoginThrottle(true, 1000,
+                new LoginThrottle.Limit(5, Duration.ofMinutes(1)), new LoginThrottle.Limit(1_000_000, Duration.ofMinutes(1)),
+                new LoginThrottle.Limit(1_000_000, Duration.ofMinutes(1)), Duration.ofMinutes(15), meterRegistry, clock::get);
+        for (int i = 0; i < 5; i++) {
+            usernameOnly.acquire("admin", "10.0.0.1");
+            usernameOnly.failed("admin", "10.0.0.1");
+        }
+
+        // Test
+        long retryAfter = 0;
+        for (int i = 0; i < 10_000; i++) {
+            try {
+                usernameOnly.acquire("admin", "10.0.0.1");
+            } catch (LoginThrottledException exception) {
+                retryAfter = exception.getRetryAfterSeconds();
+            }
+        }
+
+        // Assertions
+        assertThat(retryAfter).isEqualTo(TimeUnit.MINUTES.toSeconds(15));
+        clock.addAndGet(TimeUnit.MINUTES.toNanos(15));
+        assertThatCode(() -> usernameOnly.acquire("admin", "10.0.0.1")).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void usernamesAreThrottledWhateverTheirCase() {
+        // Setup
+        for (String username : List.of("admin", "Admin", "ADMIN", "aDmin", "adMin")) {
+            fail(username, "10.0.0.1");
+        }
+
+        // Test & Assertions
+        assertThatThrownBy(() -> loginThrottle.acquire("AdMiN", "10.0.0.1")).isInstanceOf(LoginThrottledException.class);
+    }
+
+    @Test
+    public void successfulSignInsTakeNoTokenOfTheUsername() {
+        // Test - more sign ins than the username allows failures, fewer than the address allows attempts
+        for (int i = 0; i < 8; i++) {
+            loginThrottle.acquire("admin", "10.0.0.1");
+        }
+
+        // Assertions
+        assertThat(meterRegistry.counter(LoginThrottle.REJECTED_COUNTER, "key", "username").count()).isZero();
+        assertThatThrownBy(() -> loginThrottle.acquire("admin", "10.0.0.1")).isInstanceOf(LoginThrottledException.class);
+        assertThat(meterRegistry.counter(LoginThrottle.REJECTED_COUNTER, "key", "address").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void failuresFromAnAddressDoNotLockOutTheOtherOnes() {
+        // Setup - one address fails on purpose for admin
+        for (int i = 0; i < 5; i++) {
+            fail("admin", "10.0.0.1");
+        }
+
+        // Test & Assertions
+        assertThatThrownBy(() -> loginThrottle.acquire("admin", "10.0.0.1")).isInstanceOf(LoginThrottledException.class);
+        assertThatCode(() -> loginThrottle.acquire("admin", "10.0.0.2")).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void failuresFromManyAddressesAreBoundedPerAccount() {
+        // Setup - a distributed burst, each address failing once, far below its own limits
+        for (int i = 0; i < 20; i++) {
+            fail("admin", "10.0.1." + i);
+        }
+
+        // Test & Assertions - the account is out of tokens from any address, the other users are not
+        assertThatThrownBy(() -> loginThrottle.acquire("admin", "10.0.2.1")).isInstanceOf(LoginThrottledException.class);
+        assertThatThrownBy(() -> loginThrottle.acquire("ADMIN", "10.0.2.2")).isInstanceOf(LoginThrottledException.class);
+        assertThatCode(() -> loginThrottle.acquire("user", "10.0.2.3")).doesNotThrowAnyException();
+        assertThat(meterRegistry.counter(LoginThrottle.REJECTED_COUNTER, "key", "account").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter(LoginThrottle.REJECTED_COUNTER, "key", "username").count()).isZero();
+
+        // a token of the account comes back every 3 s, pushed 3 s further by each of the 2 rejected attempts
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(9));
+        assertThatCode(() -> loginThrottle.acquire("admin", "10.0.2.4")).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void concurrentAttemptsTakeExactlyTheTokensOfTheBucket() throws Exception {
+        // Setup
+        int threads = 8;
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> admitted = new ArrayList<>();
+        try {
+            for (int thread = 0; thread < threads; thread++) {
+                int user = thread;
+                admitted.add(executorService.submit(() -> {
+                    start.await();
+                    int count = 0;
+                    for (int i = 0; i < 1000; i++) {
+                        try {
+                            loginThrottle.acquire("user" + user, "10.0.0.1");
+                            count++;
+                        } catch (LoginThrottledException ignored) {
+                            // over the limit
+                        }
+                    }
+                    return count;
+                }));
+            }
+
+            // Test
+            start.countDown();
+            int total = 0;
+            for (Future<Integer> count : admitted) {
+                total += count.get(30, TimeUnit.SECONDS);
+            }
+
+            // Assertions - the 8 tokens of the address
+            assertThat(total).isEqualTo(8);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void disabledThrottleAdmitsEverything() {
+        LoginThrottle disabled = new LoginThrottle(false, 1000,
+                new LoginThrottle.Limit(1, Duration.ofMinutes(1)), new LoginThrottle.Limit(1, Duration.ofMinutes(1)),
+                new LoginThrottle.Limit(1, Duration.ofMinutes(1)), Duration.ofMinutes(15), meterRegistry, clock::get);
+
+        for (int i = 0; i < 100; i++) {
+            disabled.acquire("admin", "10.0.0.1");
+        }
+    }
+
+    private void fail(String username, String address) {
+        loginThrottle.acquire(username, address);
+        loginThrottle.failed(username, address);
+    }
+
+    private long retryAfter(String username, String address) {
+        try {
+            loginThrottle.acquire(username, address);
+        } catch (LoginThrottledException exception) {
+            return exception.getRetryAfterSeconds();
+        }
+        throw new AssertionError("The attempt was not throttled");
+    }
+}